@@ -32,21 +32,29 @@ describe('PollComponent', () => {
   let fixture: ComponentFixture<PollComponent>;
   let pollServiceMock: {
     getPolls: ReturnType<typeof vi.fn>;
+    getPoll: ReturnType<typeof vi.fn>;
+    getMyVotes: ReturnType<typeof vi.fn>;
     createPoll: ReturnType<typeof vi.fn>;
     doVote: ReturnType<typeof vi.fn>;
     deletePoll: ReturnType<typeof vi.fn>;
   };
-  let authServiceMock: { getUserId: ReturnType<typeof vi.fn> };
+  let authServiceMock: {
+    getUserId: ReturnType<typeof vi.fn>;
+    isLoggedIn: ReturnType<typeof vi.fn>;
+  };
 
   beforeEach(async () => {
     pollServiceMock = {
-      getPolls: vi.fn().mockReturnValue(of(mockPolls)),
+      getPolls: vi.fn().mockReturnValue(of({ polls: mockPolls, nextCursor: null })),
+      getPoll: vi.fn(),
+      getMyVotes: vi.fn().mockReturnValue(of({})),
       createPoll: vi.fn(),
       doVote: vi.fn(),
       deletePoll: vi.fn(),
     };
     authServiceMock = {
       getUserId: vi.fn().mockReturnValue(null),
+      isLoggedIn: vi.fn().mockReturnValue(false),
     };
 
     await TestBed.configureTestingModule({
@@ -71,6 +79,40 @@ describe('PollComponent', () => {
     expect(component.polls.length).toBe(2);
   });
 
+  // ── loadMore() ────────────────────────────────────────────
+  describe('loadMore()', () => {
+    const olderPoll: Poll = {
+      id: 3,
+      question: 'Tabs or spaces?',
+      options: [
+        { optText: 'Tabs', voteCount: 1 },
+        { optText: 'Spaces', voteCount: 2 },
+      ],
+    };
+
+    it('appends the next page and the votes on it', () => {
+      authServiceMock.isLoggedIn.mockReturnValue(true);
+      component.nextCursor = 'page-2';
+      component.userVotes = { 1: 0 };
+      pollServiceMock.getPolls.mockReturnValue(of({ polls: [olderPoll], nextCursor: null }));
+      pollServiceMock.getMyVotes.mockReturnValue(of({ 3: 1 }));
+
+      component.loadMore();
+
+      expect(pollServiceMock.getPolls).toHaveBeenLastCalledWith('page-2');
+      expect(pollServiceMock.getMyVotes).toHaveBeenCalledWith([3]);
+      expect(component.polls.map((p) => p.id)).toEqual([1, 2, 3]);
+      expect(component.userVotes).toEqual({ 1: 0, 3: 1 });
+      expect(component.nextCursor).toBeNull();
+    });
+
+    it('does nothing after the last page', () => {
+      component.nextCursor = null;
+      component.loadMore();
+      expect(pollServiceMock.getPolls).toHaveBeenCalledTimes(1);
+    });
+  });
+
   // ── getTotalVotes() ───────────────────────────────────────
   describe('getTotalVotes()', () => {
     it('returns sum of all option vote counts', () => {
@@ -311,13 +353,24 @@ describe('PollComponent', () => {
       expect(pollServiceMock.doVote).toHaveBeenCalledWith(1, 0);
     });
 
-    it('reloads polls from the server after a successful vote', () => {
+    it('refreshes only the voted poll after a successful vote', () => {
       pollServiceMock.doVote.mockReturnValue(of(undefined));
-      const initialCallCount = pollServiceMock.getPolls.mock.calls.length;
+      const updated: Poll = {
+        ...mockPolls[0],
+        options: [
+          { optText: 'Red', voteCount: 4 },
+          { optText: 'Blue', voteCount: 7 },
+        ],
+      };
+      pollServiceMock.getPoll.mockReturnValue(of(updated));
 
       component.doVote(1, 0);
 
-      expect(pollServiceMock.getPolls.mock.calls.length).toBeGreaterThan(initialCallCount);
+      expect(pollServiceMock.getPoll).toHaveBeenCalledWith(1);
+      expect(pollServiceMock.getPolls).toHaveBeenCalledTimes(1);
+      expect(component.polls[0].options[0].voteCount).toBe(4);
+      expect(component.polls.length).toBe(2);
+      expect(component.userVotes[1]).toBe(0);
     });
   });
 
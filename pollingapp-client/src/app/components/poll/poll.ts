@@ -34,6 +34,10 @@ export class PollComponent implements OnInit, OnChanges {
 
   polls: Poll[] = [];
 
+  // Cursor of the next listing page, null once the last page is loaded
+  nextCursor: string | null = null;
+  loadingMore = false;
+
   @Input() view: 'all' | 'mine' | 'saved' = 'all';
   @Input() showCreate = false;
 
@@ -117,12 +121,15 @@ export class PollComponent implements OnInit, OnChanges {
     this.cdr.detectChanges();
   }
 
-  // Fetch data from the database
+  // Fetch the newest page of polls from the database
   loadPolls() {
     this.pollService.getPolls().subscribe({
-      next: (data) => {
-        this.polls = [...data];
+      next: (page) => {
+        this.polls = [...page.polls];
+        this.nextCursor = page.nextCursor;
+        this.userVotes = {};
         this.cdr.detectChanges();
+        this.loadUserVotes(page.polls);
       },
       error: (err) => {
         console.error('Error fetching polls:', err);
@@ -130,6 +137,44 @@ export class PollComponent implements OnInit, OnChanges {
     });
   }
 
+  // Append the next page of polls ("Load more")
+  loadMore() {
+    if (!this.nextCursor || this.loadingMore) return;
+    this.loadingMore = true;
+    this.pollService.getPolls(this.nextCursor).subscribe({
+      next: (page) => {
+        const loaded = new Set(this.polls.map((p) => p.id));
+        const added = page.polls.filter((p) => !loaded.has(p.id));
+        this.polls = [...this.polls, ...added];
+        this.nextCursor = page.nextCursor;
+        this.loadingMore = false;
+        this.cdr.detectChanges();
+        this.loadUserVotes(added);
+      },
+      error: (err) => {
+        console.error('Error fetching polls:', err);
+        this.loadingMore = false;
+        this.cdr.detectChanges();
+      },
+    });
+  }
+
+  // One request for the current user's votes on a newly loaded page of polls
+  loadUserVotes(polls: Poll[]) {
+    if (!this.authService.isLoggedIn() || polls.length === 0) {
+      return;
+    }
+    this.pollService.getMyVotes(polls.map((p) => p.id)).subscribe({
+      next: (votes) => {
+        this.userVotes = { ...this.userVotes, ...votes };
+        this.cdr.detectChanges();
+      },
+      error: (err) => {
+        console.error('Error fetching votes:', err);
+      },
+    });
+  }
+
   // Create and inject a new poll into database
   createPoll() {
     // Prefix with _ to indicate the id is intentionally discarded — we let
@@ -162,8 +207,9 @@ export class PollComponent implements OnInit, OnChanges {
   doVote(pollId: number, optionIndex: number) {
     this.pollService.doVote(pollId, optionIndex).subscribe({
       next: () => {
-        // Reload polls to get accurate counts from server
-        this.loadPolls();
+        // Refresh just this poll, so the pages loaded so far stay in place
+        this.userVotes = { ...this.userVotes, [pollId]: optionIndex };
+        this.refreshPoll(pollId);
       },
       error: (err) => {
         console.error('Error voting: ', err);
@@ -171,6 +217,19 @@ export class PollComponent implements OnInit, OnChanges {
     });
   }
 
+  // Replace a loaded poll with its current version from the server
+  refreshPoll(pollId: number) {
+    this.pollService.getPoll(pollId).subscribe({
+      next: (poll) => {
+        this.polls = this.polls.map((p) => (p.id === pollId ? poll : p));
+        this.cdr.detectChanges();
+      },
+      error: (err) => {
+        console.error('Error fetching poll:', err);
+      },
+    });
+  }
+
   // Increment number of options when creating a new poll (max 4)
   addOption() {
     if (this.newPoll.options.length < 4) {
@@ -6,7 +6,7 @@ export interface OptionVote {
 export interface PollOwner {
   id: number;
   username: string;
-  email: string;
+  email?: string;
 }
 
 export interface Poll {
@@ -25,3 +25,12 @@ export interface Poll {
    */
   savedByCurrentUser?: boolean;
 }
+
+/**
+ * One page of GET /api/polls/all or /api/polls/my, newest first.
+ * Pass nextCursor back as ?cursor= for the following page; it is null on the last page.
+ */
+export interface PollPage {
+  polls: Poll[];
+  nextCursor: string | null;
+}
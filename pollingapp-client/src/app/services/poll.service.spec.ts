@@ -0,0 +1,63 @@
+import { TestBed } from '@angular/core/testing';
+import { provideHttpClient } from '@angular/common/http';
+import { HttpTestingController, provideHttpClientTesting } from '@angular/common/http/testing';
+
+import { PollService } from './poll.service';
+
+describe('PollService', () => {
+  let service: PollService;
+  let httpMock: HttpTestingController;
+
+  beforeEach(() => {
+    TestBed.configureTestingModule({
+      providers: [PollService, provideHttpClient(), provideHttpClientTesting()],
+    });
+    service = TestBed.inject(PollService);
+    httpMock = TestBed.inject(HttpTestingController);
+  });
+
+  afterEach(() => httpMock.verify());
+
+  // ── getPolls() ────────────────────────────────────────────
+  describe('getPolls()', () => {
+    it('requests a single page, passing the cursor when given', () => {
+      service.getPolls('abc').subscribe((page) => {
+        expect(page.nextCursor).toBeNull();
+      });
+
+      const req = httpMock.expectOne(
+        (r) => r.url === 'http://localhost:8080/api/polls/all' && r.params.get('cursor') === 'abc',
+      );
+      expect(req.request.method).toBe('GET');
+      req.flush({ polls: [], nextCursor: null });
+    });
+  });
+
+  // ── getMyVotes() ──────────────────────────────────────────
+  describe('getMyVotes()', () => {
+    it('splits more than 100 poll ids into requests the backend accepts and merges the votes', () => {
+      const pollIds = Array.from({ length: 250 }, (_, i) => i + 1);
+      let result: Record<number, number> | undefined;
+
+      service.getMyVotes(pollIds).subscribe((votes) => (result = votes));
+
+      const chunks = httpMock.match((r) => r.url === 'http://localhost:8080/api/polls/my-votes');
+      expect(chunks.map((r) => r.request.params.get('pollIds')!.split(',').length)).toEqual([
+        100, 100, 50,
+      ]);
+      chunks[0].flush({ 1: 0 });
+      chunks[1].flush({ 150: 1 });
+      chunks[2].flush({});
+
+      expect(result).toEqual({ 1: 0, 150: 1 });
+    });
+
+    it('makes no request without poll ids', () => {
+      let result: Record<number, number> | undefined;
+
+      service.getMyVotes([]).subscribe((votes) => (result = votes));
+
+      expect(result).toEqual({});
+    });
+  });
+});
@@ -1,8 +1,8 @@
 import { HttpClient } from '@angular/common/http';
 import { Injectable, inject } from '@angular/core';
-import { Observable } from 'rxjs';
+import { Observable, forkJoin, map, of } from 'rxjs';
 
-import { Poll } from '../models/poll.model';
+import { Poll, PollPage } from '../models/poll.model';
 
 @Injectable({
   providedIn: 'root',
@@ -12,8 +12,29 @@ export class PollService {
 
   private http = inject(HttpClient);
 
-  getPolls(): Observable<Poll[]> {
-    return this.http.get<Poll[]>(`${this.baseUrl}/all`);
+  // Most poll ids /my-votes accepts at once (polls.list.max-page-size on the backend)
+  private static readonly MY_VOTES_CHUNK = 100;
+
+  // One page of the listing, newest first; pass the page's nextCursor to get the one after it
+  getPolls(cursor?: string): Observable<PollPage> {
+    const params: Record<string, string> = cursor ? { cursor } : {};
+    return this.http.get<PollPage>(`${this.baseUrl}/all`, { params });
+  }
+
+  getPoll(pollId: number): Observable<Poll> {
+    return this.http.get<Poll>(`${this.baseUrl}/${pollId}`);
+  }
+
+  // The option the current user picked on each of the given polls, one request per
+  // MY_VOTES_CHUNK polls; polls without a vote are missing from the result
+  getMyVotes(pollIds: number[]): Observable<Record<number, number>> {
+    if (pollIds.length === 0) return of({});
+    const requests: Observable<Record<number, number>>[] = [];
+    for (let i = 0; i < pollIds.length; i += PollService.MY_VOTES_CHUNK) {
+      const params = { pollIds: pollIds.slice(i, i + PollService.MY_VOTES_CHUNK).join(',') };
+      requests.push(this.http.get<Record<number, number>>(`${this.baseUrl}/my-votes`, { params }));
+    }
+    return forkJoin(requests).pipe(map((chunks) => Object.assign({}, ...chunks)));
   }
 
   createPoll(poll: Poll): Observable<Poll> {
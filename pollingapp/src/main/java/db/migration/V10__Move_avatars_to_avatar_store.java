@@ -0,0 +1,193 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Writes every avatar_url data URL into the avatar store and keeps its hash in avatar_hash.
+// Rows are read in id order, CHUNK_SIZE at a time, and each chunk is committed on its own, so the
+// users table is never locked for the whole run and an interrupted run resumes where it stopped
+// (moved rows have avatar_url NULL). Store location and thumbnail size come from the Flyway
+// placeholders set in application-prod.properties.
+// Nothing is lost: avatars that are links rather than uploaded images, and data URLs that are not
+// a supported image, stay in avatar_url and are still handed out by UserService.getAvatarUrl.
+// The file layout of AvatarStore is repeated here rather than calling it, so that later changes to
+// the store cannot change what this migration does.
+public class V10__Move_avatars_to_avatar_store extends BaseJavaMigration {
+
+	private static final Logger log = LoggerFactory.getLogger(V10__Move_avatars_to_avatar_store.class);
+	private static final int CHUNK_SIZE = 100;
+	private static final Pattern DATA_URL = Pattern.compile("^data:[\\w.+-]+/[\\w.+-]+;base64,");
+
+	@Override
+	public boolean canExecuteInTransaction() {
+		return false;
+	}
+
+	@Override
+	public void migrate(Context context) throws Exception {
+		Map<String, String> placeholders = context.getConfiguration().getPlaceholders();
+		Path dir = Paths.get(placeholders.getOrDefault("avatars-dir", "data/avatars")).toAbsolutePath();
+		int thumbnailSize = Integer.parseInt(placeholders.getOrDefault("avatars-thumbnail-size", "64"));
+
+		Connection connection = context.getConnection();
+		boolean autoCommit = connection.getAutoCommit();
+		connection.setAutoCommit(false);
+		try (PreparedStatement select = connection.prepareStatement(
+				"SELECT id, avatar_url FROM users WHERE id > ? AND avatar_url LIKE 'data:%' ORDER BY id LIMIT "
+						+ CHUNK_SIZE);
+				PreparedStatement update = connection.prepareStatement(
+						"UPDATE users SET avatar_hash = ?, avatar_url = NULL WHERE id = ?")) {
+			long lastId = 0;
+			int moved = 0;
+			int kept = 0;
+			while (true) {
+				int rows = 0;
+				int updates = 0;
+				select.setLong(1, lastId);
+				try (ResultSet resultSet = select.executeQuery()) {
+					while (resultSet.next()) {
+						rows++;
+						lastId = resultSet.getLong(1);
+						String hash = store(dir, thumbnailSize, lastId, resultSet.getString(2));
+						if (hash == null) {
+							kept++;
+							continue;
+						}
+						moved++;
+						updates++;
+						update.setString(1, hash);
+						update.setLong(2, lastId);
+						update.addBatch();
+					}
+				}
+				if (rows == 0) {
+					break;
+				}
+				if (updates > 0) {
+					update.executeBatch();
+				}
+				connection.commit();
+			}
+			log.info("Moved {} avatars to the avatar store, kept {} unsupported ones in avatar_url", moved, kept);
+		} catch (SQLException | IOException | RuntimeException e) {
+			connection.rollback();
+			throw e;
+		} finally {
+			connection.setAutoCommit(autoCommit);
+		}
+	}
+
+	// Store the image of a data URL as <dir>/<first two hex digits>/<hash> with its thumbnail
+	// <hash>-thumb.png, and return the hash; null if it is not a PNG, JPEG, GIF or WebP image
+	private static String store(Path dir, int thumbnailSize, long userId, String dataUrl) throws IOException {
+		Matcher matcher = DATA_URL.matcher(dataUrl);
+		byte[] bytes;
+		try {
+			bytes = matcher.find() ? Base64.getMimeDecoder().decode(dataUrl.substring(matcher.end())) : null;
+		} catch (IllegalArgumentException e) {
+			bytes = null;
+		}
+		if (bytes == null || !isImage(bytes)) {
+			log.warn("Keeping the avatar of user {} in avatar_url: not a supported image data URL", userId);
+			return null;
+		}
+
+		String hash = sha256(bytes);
+		Path original = dir.resolve(hash.substring(0, 2)).resolve(hash);
+		if (Files.notExists(original)) {
+			Files.createDirectories(original.getParent());
+			byte[] thumbnail = thumbnail(bytes, thumbnailSize);
+			if (thumbnail != null) {
+				write(original.resolveSibling(hash + "-thumb.png"), thumbnail);
+			}
+			// Written last: an existing original means its thumbnail is in place too
+			write(original, bytes);
+		}
+		return hash;
+	}
+
+	private static void write(Path target, byte[] bytes) throws IOException {
+		Path tmp = Files.createTempFile(target.getParent(), ".upload-", ".tmp");
+		try {
+			Files.write(tmp, bytes);
+			Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	// Center-cropped square PNG, or null if ImageIO cannot decode the image (WebP)
+	private static byte[] thumbnail(byte[] bytes, int size) throws IOException {
+		BufferedImage image = ImageIO.read(new ByteArrayInputStream(bytes));
+		if (image == null) {
+			return null;
+		}
+		int side = Math.min(image.getWidth(), image.getHeight());
+		int x = (image.getWidth() - side) / 2;
+		int y = (image.getHeight() - side) / 2;
+
+		BufferedImage thumbnail = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = thumbnail.createGraphics();
+		try {
+			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+			g.drawImage(image, 0, 0, size, size, x, y, x + side, y + side, null);
+		} finally {
+			g.dispose();
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(thumbnail, "png", out);
+		return out.toByteArray();
+	}
+
+	// PNG, JPEG, GIF or WebP by file signature
+	private static boolean isImage(byte[] bytes) {
+		return startsWith(bytes, 0, 0x89, 'P', 'N', 'G') || startsWith(bytes, 0, 0xFF, 0xD8, 0xFF)
+				|| startsWith(bytes, 0, 'G', 'I', 'F', '8')
+				|| startsWith(bytes, 0, 'R', 'I', 'F', 'F') && startsWith(bytes, 8, 'W', 'E', 'B', 'P');
+	}
+
+	private static boolean startsWith(byte[] bytes, int offset, int... signature) {
+		if (bytes.length < offset + signature.length) {
+			return false;
+		}
+		for (int i = 0; i < signature.length; i++) {
+			if ((bytes[offset + i] & 0xFF) != signature[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static String sha256(byte[] bytes) {
+		try {
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
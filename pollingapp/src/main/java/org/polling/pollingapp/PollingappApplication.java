@@ -2,8 +2,10 @@ package org.polling.pollingapp;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class PollingappApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,26 @@
+package org.polling.pollingapp.config;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Runs an action once the current transaction commits, or right away outside of one. The in-memory
+// caches, indexes and counters use it for changes that must only happen if the write they belong to
+// commits; a rolled back transaction runs nothing. Actions run in the order they were registered.
+public final class AfterCommit {
+
+	private AfterCommit() {
+	}
+
+	public static void run(Runnable action) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					action.run();
+				}
+			});
+		} else {
+			action.run();
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package org.polling.pollingapp.config;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+// Size cap of the in-process caches kept in a ConcurrentHashMap. Once the map holds more than
+// maxSize entries, the lowest ranked ones (e.g. least recently read) are removed down to 90% of
+// maxSize, so a full cache pays for one sort per maxSize / 10 additions rather than one per
+// addition. One thread evicts at a time; the others carry on instead of waiting for it.
+public final class BoundedEviction<K, V> {
+
+	private final Map<K, V> entries;
+	private final int maxSize;
+	private final ToLongFunction<V> rank;
+	private final Predicate<V> evictable;
+	private final ReentrantLock lock = new ReentrantLock();
+
+	// Entries for which evictable is false (e.g. loads still in flight) are never removed
+	public BoundedEviction(Map<K, V> entries, int maxSize, ToLongFunction<V> rank, Predicate<V> evictable) {
+		this.entries = entries;
+		this.maxSize = maxSize;
+		this.rank = rank;
+		this.evictable = evictable;
+	}
+
+	public BoundedEviction(Map<K, V> entries, int maxSize, ToLongFunction<V> rank) {
+		this(entries, maxSize, rank, value -> true);
+	}
+
+	// An entry with its rank as it was when eviction started; ranks can change while sorting
+	private record Candidate<K, V>(K key, V value, long rank) {
+	}
+
+	// Call after adding an entry; returns the number of entries evicted
+	public int evictIfFull() {
+		if (entries.size() <= maxSize || !lock.tryLock()) {
+			return 0;
+		}
+		try {
+			List<Candidate<K, V>> candidates = entries.entrySet().stream()
+					.filter(e -> evictable.test(e.getValue()))
+					.map(e -> new Candidate<>(e.getKey(), e.getValue(), rank.applyAsLong(e.getValue())))
+					.sorted(Comparator.comparingLong(Candidate::rank)).toList();
+			int excess = entries.size() - (maxSize - maxSize / 10);
+			int evicted = 0;
+			for (int i = 0; i < excess && i < candidates.size(); i++) {
+				if (entries.remove(candidates.get(i).key(), candidates.get(i).value())) {
+					evicted++;
+				}
+			}
+			return evicted;
+		} finally {
+			lock.unlock();
+		}
+	}
+}
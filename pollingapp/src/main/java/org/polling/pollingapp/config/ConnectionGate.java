@@ -0,0 +1,126 @@
+package org.polling.pollingapp.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Hands out at most one connection per pool slot: a caller first takes a permit from a fair
+// semaphore sized like the pool, and closing the connection gives it back. With virtual threads
+// there is no request thread pool bounding how many callers want a connection at once, so this is
+// where they wait, in arrival order and parked rather than pinned. Once maxWaiters callers are
+// waiting, or a permit does not come within acquireTimeoutMs, getConnection fails at once with
+// SQLTransientConnectionException instead of joining the pool's own queue.
+public class ConnectionGate extends DelegatingDataSource {
+
+	private final Semaphore permits;
+	private final int maxWaiters;
+	private final long acquireTimeoutMs;
+	private final AtomicInteger waiters = new AtomicInteger();
+
+	private final Timer waitTimer;
+	private final Counter rejectedCounter;
+
+	public ConnectionGate(DataSource target, int permits, int maxWaiters, long acquireTimeoutMs,
+			MeterRegistry meterRegistry) {
+		super(target);
+		this.permits = new Semaphore(permits, true);
+		this.maxWaiters = maxWaiters;
+		this.acquireTimeoutMs = acquireTimeoutMs;
+
+		waitTimer = Timer.builder("polls.db.connection.wait").publishPercentiles(0.5, 0.99).register(meterRegistry);
+		rejectedCounter = meterRegistry.counter("polls.db.connection.rejected");
+		Gauge.builder("polls.db.connection.waiters", waiters, AtomicInteger::get).register(meterRegistry);
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		acquire();
+		try {
+			return releasingOnClose(obtainTargetDataSource().getConnection());
+		} catch (SQLException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		acquire();
+		try {
+			return releasingOnClose(obtainTargetDataSource().getConnection(username, password));
+		} catch (SQLException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	private void acquire() throws SQLException {
+		try {
+			// A timed tryAcquire, even with no wait, respects the queue of a fair semaphore
+			if (permits.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+				return;
+			}
+			if (waiters.incrementAndGet() > maxWaiters) {
+				waiters.decrementAndGet();
+				rejectedCounter.increment();
+				throw new SQLTransientConnectionException("Too many requests waiting for a database connection");
+			}
+			long start = System.nanoTime();
+			try {
+				if (!permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+					rejectedCounter.increment();
+					throw new SQLTransientConnectionException(
+							"No database connection within " + acquireTimeoutMs + " ms");
+				}
+			} finally {
+				waiters.decrementAndGet();
+				waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLTransientConnectionException("Interrupted while waiting for a database connection", e);
+		}
+	}
+
+	// The connection, with close() also returning the permit (once, however often it is called)
+	private Connection releasingOnClose(Connection connection) {
+		AtomicBoolean released = new AtomicBoolean();
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+					if ("equals".equals(method.getName())) {
+						return proxy == args[0];
+					}
+					if ("hashCode".equals(method.getName())) {
+						return System.identityHashCode(proxy);
+					}
+					if ("close".equals(method.getName())) {
+						try {
+							connection.close();
+						} finally {
+							if (released.compareAndSet(false, true)) {
+								permits.release();
+							}
+						}
+						return null;
+					}
+					try {
+						return method.invoke(connection, args);
+					} catch (InvocationTargetException e) {
+						throw e.getTargetException();
+					}
+				});
+	}
+}
@@ -0,0 +1,37 @@
+package org.polling.pollingapp.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+// Puts a ConnectionGate with one permit per pool connection in front of the Hikari pool. On by
+// default when requests run on virtual threads (spring.threads.virtual.enabled); with platform
+// threads Tomcat's thread pool already bounds how many requests wait for a connection.
+@Configuration
+public class DataSourceConfig {
+
+	// Static, so the post-processor exists before the DataSource bean is created; the meter registry is
+	// only looked up once a pool is wrapped
+	@Bean
+	public static BeanPostProcessor connectionGatePostProcessor(Environment environment,
+			ObjectProvider<MeterRegistry> meterRegistry) {
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				boolean enabled = environment.getProperty("polls.db.gate.enabled", Boolean.class,
+						environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false));
+				if (!enabled || !(bean instanceof HikariDataSource pool)) {
+					return bean;
+				}
+				return new ConnectionGate(pool, pool.getMaximumPoolSize(),
+						environment.getProperty("polls.db.gate.max-waiters", Integer.class, 1000),
+						environment.getProperty("polls.db.gate.acquire-timeout-ms", Long.class, 5000L),
+						meterRegistry.getObject());
+			}
+		};
+	}
+}
@@ -1,7 +1,12 @@
 package org.polling.pollingapp.controller;
 
+import org.polling.pollingapp.security.PasswordHasher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -29,6 +34,31 @@ public class GlobalExceptionHandler {
 		return ResponseEntity.status(status).body(Map.of("message", message != null ? message : "An error occurred"));
 	}
 
+	// A vote kept losing optimistic-locking races and ran out of retries; the client may try again
+	@ExceptionHandler(OptimisticLockingFailureException.class)
+	public ResponseEntity<Map<String, String>> handleOptimisticLockingFailure(OptimisticLockingFailureException ex) {
+		return ResponseEntity.status(HttpStatus.CONFLICT)
+				.body(Map.of("message", "The poll was changed concurrently, please try again!"));
+	}
+
+	// The password hashing pool is saturated (a burst of logins); fail fast instead of queueing
+	@ExceptionHandler(PasswordHasher.BusyException.class)
+	public ResponseEntity<Map<String, String>> handlePasswordHasherBusy(PasswordHasher.BusyException ex) {
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+				.header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+				.body(Map.of("message", ex.getMessage()));
+	}
+
+	// No database connection was available in time (e.g. ConnectionGate turned the request away); the
+	// request did nothing yet, so the client can simply retry. Transactional code sees this as
+	// CannotCreateTransactionException, plain JdbcTemplate reads as CannotGetJdbcConnectionException
+	// (a DataAccessResourceFailureException).
+	@ExceptionHandler({CannotCreateTransactionException.class, DataAccessResourceFailureException.class})
+	public ResponseEntity<Map<String, String>> handleNoConnection(RuntimeException ex) {
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1")
+				.body(Map.of("message", "The service is busy at the moment, please try again!"));
+	}
+
 	@ExceptionHandler(MethodArgumentNotValidException.class)
 	public ResponseEntity<Map<String, String>> handleValidationException(MethodArgumentNotValidException ex) {
 		String message = ex.getBindingResult().getFieldErrors().stream()
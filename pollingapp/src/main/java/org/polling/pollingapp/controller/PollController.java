@@ -1,9 +1,20 @@
 package org.polling.pollingapp.controller;
 
 import org.polling.pollingapp.model.Poll;
-import org.polling.pollingapp.model.User;
+import org.polling.pollingapp.request.PollPage;
+import org.polling.pollingapp.request.PollResults;
+import org.polling.pollingapp.request.TrendingPoll;
 import org.polling.pollingapp.request.Vote;
+import org.polling.pollingapp.request.VoteResult;
+import org.polling.pollingapp.security.AuthUser;
 import org.polling.pollingapp.services.PollService;
+import org.polling.pollingapp.services.PollStreamService;
+import org.polling.pollingapp.services.VoteEventService;
+import org.polling.pollingapp.services.VoteIngestionQueue;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -13,9 +24,14 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 // The Controller/API Layer is implemented here
 // It tells Spring to take the JSON or XML data from the body of an HTTP request and "deserialize" it into a Java object.
@@ -23,57 +39,133 @@ import java.util.List;
 @RequestMapping("/api/polls")
 public class PollController {
 	private final PollService pollService;
+	private final VoteIngestionQueue voteIngestionQueue;
+	private final VoteEventService voteEventService;
+	private final PollStreamService pollStreamService;
 
-	public PollController(PollService pollService) {
+	public PollController(PollService pollService, VoteIngestionQueue voteIngestionQueue,
+			VoteEventService voteEventService, PollStreamService pollStreamService) {
 		this.pollService = pollService;
+		this.voteIngestionQueue = voteIngestionQueue;
+		this.voteEventService = voteEventService;
+		this.pollStreamService = pollStreamService;
 	}
 
 	// Create a new poll - requires authentication, sets the owner automatically
 	@PostMapping
-	public Poll createPoll(@RequestBody Poll poll, @AuthenticationPrincipal User currentUser) {
+	public Poll createPoll(@RequestBody Poll poll, @AuthenticationPrincipal AuthUser currentUser) {
 		return pollService.savePoll(poll, currentUser);
 	}
 
 	// If you put a URL in both, they concatenate (join together)
 	// If you leave @GetMapping empty, it defaults to the URL defined in the
 	// @RequestMapping
+	// Newest polls first, ?limit= per page (capped by polls.list.max-page-size);
+	// pass the returned nextCursor as ?cursor= to get the next page
 	@GetMapping("/all")
-	public List<Poll> getPolls() {
-		return pollService.getAllPolls();
+	public PollPage getPolls(@RequestParam(required = false) String cursor,
+			@RequestParam(required = false) Integer limit) {
+		return pollService.listPolls(cursor, limit);
 	}
 
+	// Polls whose question or options contain every word of ?q= (words may be cut short, e.g.
+	// "favo col"), best match first; paged with ?cursor= and ?limit= like /all
+	@GetMapping("/search")
+	public PollPage searchPolls(@RequestParam String q, @RequestParam(required = false) String cursor,
+			@RequestParam(required = false) Integer limit) {
+		return pollService.searchPolls(q, cursor, limit);
+	}
+
+	// Polls with the most recent votes, best first; ?limit= is capped like a listing page
+	@GetMapping("/trending")
+	public List<TrendingPoll> getTrending(@RequestParam(required = false) Integer limit) {
+		return pollService.getTrending(limit);
+	}
+
+	// Served as pre-serialized JSON from the poll cache with a strong ETag. Spring answers a
+	// matching If-None-Match with 304 Not Modified and leaves out the body.
 	@GetMapping("/{id}")
-	public ResponseEntity<Poll> getPollById(@PathVariable Long id) {
+	public ResponseEntity<byte[]> getPollById(@PathVariable Long id) {
+		return pollService.getPollJson(id)
+				.map(cached -> ResponseEntity.ok().eTag(cached.etag()).contentType(MediaType.APPLICATION_JSON)
+						.body(cached.json()))
+				.orElse(ResponseEntity.notFound().build());
+	}
+
+	// Results of a poll as they were at a point in time (e.g. ?asOf=2026-03-01T12:00:00),
+	// rebuilt from the vote event log; without asOf, as of now
+	@GetMapping("/{id}/results")
+	public ResponseEntity<PollResults> getResults(@PathVariable Long id,
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime asOf) {
+		return voteEventService.getResultsAsOf(id, asOf != null ? asOf : LocalDateTime.now()).map(ResponseEntity::ok)
+				.orElse(ResponseEntity.notFound().build());
+	}
 
-		return pollService.getPollById(id)
-				// Extracts the Poll from Optional<Poll> and wraps it in a ResponseEntity
-				.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+	// Live results: a "results" event with the poll's JSON right away and again whenever it changes
+	// (at most once per polls.stream.update-interval-ms), plus heartbeat comments.
+	// 503 with Retry-After when this node has reached polls.stream.max-subscribers.
+	@GetMapping(path = "/{id}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public ResponseEntity<SseEmitter> streamResults(@PathVariable Long id) {
+		try {
+			return pollStreamService.subscribe(id).map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+		} catch (PollStreamService.TooManySubscribersException e) {
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+					.header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds())).build();
+		}
 	}
 
-	// Get all polls created by the authenticated user
+	// Get the polls created by the authenticated user, paginated like /all
 	@GetMapping("/my")
-	public List<Poll> getMyPolls(@AuthenticationPrincipal User currentUser) {
-		return pollService.getPollsByOwner(currentUser.getId());
+	public PollPage getMyPolls(@RequestParam(required = false) String cursor,
+			@RequestParam(required = false) Integer limit, @AuthenticationPrincipal AuthUser currentUser) {
+		return pollService.listPollsByOwner(currentUser.id(), cursor, limit);
+	}
+
+	// The option the current user picked on each of ?pollIds=1,2,3 (e.g. the polls of a listing
+	// page), as {"pollId": optionIndex}; polls without a vote are left out
+	@GetMapping("/my-votes")
+	public Map<Long, Integer> getMyVotes(@RequestParam Set<Long> pollIds,
+			@AuthenticationPrincipal AuthUser currentUser) {
+		return pollService.getMyVotes(pollIds, currentUser);
 	}
 
 	// Update a poll - only the owner can update their poll
 	@PutMapping("/{id}")
 	public ResponseEntity<Poll> updatePoll(@PathVariable Long id, @RequestBody Poll poll,
-			@AuthenticationPrincipal User currentUser) {
+			@AuthenticationPrincipal AuthUser currentUser) {
 		Poll updated = pollService.updatePoll(id, poll, currentUser);
 		return ResponseEntity.ok(updated);
 	}
 
 	// Vote on a poll - requires authentication
 	// Users can change their vote (old option -1, new option +1)
+	// With async ingestion enabled the vote is validated and queued: 202 Accepted, or
+	// 429 with Retry-After when the queue is full
 	@PostMapping("/vote")
-	public void doVote(@RequestBody Vote vote, @AuthenticationPrincipal User currentUser) {
+	public ResponseEntity<Void> doVote(@RequestBody Vote vote, @AuthenticationPrincipal AuthUser currentUser) {
+		if (voteIngestionQueue.isEnabled()) {
+			if (!voteIngestionQueue.submit(vote.getPollId(), vote.getOptionIndex(), currentUser)) {
+				return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+						.header(HttpHeaders.RETRY_AFTER, String.valueOf(voteIngestionQueue.getRetryAfterSeconds()))
+						.build();
+			}
+			return ResponseEntity.accepted().build();
+		}
+
 		pollService.doVote(vote.getPollId(), vote.getOptionIndex(), currentUser);
+		return ResponseEntity.ok().build();
+	}
+
+	// Cast many votes in one request (kiosk and import clients)
+	// Each item gets its own result, so one bad item does not fail the whole batch
+	@PostMapping("/vote/batch")
+	public List<VoteResult> doVoteBatch(@RequestBody List<Vote> votes, @AuthenticationPrincipal AuthUser currentUser) {
+		return pollService.doVoteBatch(votes, currentUser);
 	}
 
 	// Delete a poll - only the owner can delete their poll
 	@DeleteMapping("/{id}")
-	public ResponseEntity<Void> deletePoll(@PathVariable Long id, @AuthenticationPrincipal User currentUser) {
+	public ResponseEntity<Void> deletePoll(@PathVariable Long id, @AuthenticationPrincipal AuthUser currentUser) {
 		pollService.deletePoll(id, currentUser);
 		return ResponseEntity.noContent().build();
 	}
@@ -1,9 +1,18 @@
 package org.polling.pollingapp.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.polling.pollingapp.model.User;
 import org.polling.pollingapp.request.UpdateProfileRequest;
+import org.polling.pollingapp.request.VoteHistoryPage;
+import org.polling.pollingapp.security.AuthUser;
+import org.polling.pollingapp.services.AvatarStore;
+import org.polling.pollingapp.services.PollService;
 import org.polling.pollingapp.services.UserService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -11,25 +20,47 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/users")
 public class UserController {
 
+	// Request attributes of Tomcat's sendfile support (org.apache.catalina.Globals)
+	private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+	private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+	private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+	private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
 	private final UserService userService;
+	private final PollService pollService;
 
-	public UserController(UserService userService) {
+	public UserController(UserService userService, PollService pollService) {
 		this.userService = userService;
+		this.pollService = pollService;
 	}
 
-	// Get the currently authenticated user's profile
+	// Get the currently authenticated user's profile (the principal only carries id, username and email)
 	@GetMapping("/me")
-	public ResponseEntity<Map<String, Object>> getCurrentUser(@AuthenticationPrincipal User currentUser) {
-		return ResponseEntity.ok(buildUserResponse(currentUser));
+	public ResponseEntity<Map<String, Object>> getCurrentUser(@AuthenticationPrincipal AuthUser currentUser) {
+		return ResponseEntity.ok(buildUserResponse(userService.getUserById(currentUser.id())));
+	}
+
+	// Polls the current user voted on, most recent vote first; paged with ?cursor= and ?limit= like
+	// /api/polls/all
+	@GetMapping("/me/votes")
+	public VoteHistoryPage getMyVotes(@RequestParam(required = false) String cursor,
+			@RequestParam(required = false) Integer limit, @AuthenticationPrincipal AuthUser currentUser) {
+		return pollService.listVotesByUser(currentUser.id(), cursor, limit);
 	}
 
 	// Get any user's public profile by ID
@@ -39,9 +70,47 @@ public class UserController {
 		return ResponseEntity.ok(buildUserResponse(user));
 	}
 
+	// A user's avatar image, or a small square thumbnail of it with ?size=thumb. Files are sent with
+	// Tomcat's sendfile when the connector supports it, so the bytes go from disk to socket without
+	// passing through the JVM. URLs carrying the current hash in ?v= never change and are cached for
+	// a year; without it, clients revalidate against the hash ETag.
+	@GetMapping("/{id}/avatar")
+	public void getAvatar(@PathVariable Long id, @RequestParam(required = false) String size,
+			@RequestParam(required = false) String v, ServletWebRequest webRequest, HttpServletResponse response)
+			throws IOException {
+		// An unknown user, or one without an avatar, is a plain 404 like a missing poll
+		Optional<AvatarStore.Blob> found = userService.findAvatar(id, "thumb".equals(size));
+		if (found.isEmpty()) {
+			response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+		AvatarStore.Blob avatar = found.get();
+
+		response.setHeader(HttpHeaders.CACHE_CONTROL, avatar.hash().equals(v)
+				? CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable().getHeaderValue()
+				: CacheControl.noCache().getHeaderValue());
+		if (webRequest.checkNotModified("\"" + avatar.path().getFileName() + "\"")) {
+			return;
+		}
+
+		response.setContentType(avatar.contentType());
+		response.setContentLengthLong(avatar.size());
+		HttpServletRequest request = webRequest.getRequest();
+		if (HttpMethod.HEAD.matches(request.getMethod())) {
+			return;
+		}
+		if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+			request.setAttribute(SENDFILE_FILENAME, avatar.path().toString());
+			request.setAttribute(SENDFILE_START, 0L);
+			request.setAttribute(SENDFILE_END, avatar.size());
+		} else {
+			Files.copy(avatar.path(), response.getOutputStream());
+		}
+	}
+
 	// Update the currently authenticated user's profile
 	@PutMapping("/me")
-	public ResponseEntity<Map<String, Object>> updateProfile(@AuthenticationPrincipal User currentUser,
+	public ResponseEntity<Map<String, Object>> updateProfile(@AuthenticationPrincipal AuthUser currentUser,
 			@Valid @RequestBody UpdateProfileRequest request) {
 		User updatedUser = userService.updateProfile(currentUser, request);
 		return ResponseEntity.ok(buildUserResponse(updatedUser));
@@ -54,7 +123,7 @@ public class UserController {
 		response.put("username", user.getUsername());
 		response.put("email", user.getEmail());
 		response.put("bio", user.getBio());
-		response.put("avatarUrl", user.getAvatarUrl());
+		response.put("avatarUrl", userService.getAvatarUrl(user));
 		response.put("firstName", user.getFirstName());
 		response.put("lastName", user.getLastName());
 		response.put("displayName", user.getDisplayName());
@@ -0,0 +1,30 @@
+package org.polling.pollingapp.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// The avatar_url column of users, kept out of User so that loading a user (e.g. every poll owner)
+// does not pull the LONGTEXT along. It holds avatars set before the avatar store: a link, or a
+// data URL not moved by V10 (Flyway is off in dev). Shown until the user uploads a new image.
+@Entity
+@Table(name = "users")
+@Data
+@NoArgsConstructor
+public class LegacyAvatar {
+
+	// Same column definition as User.id, which shares the table
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	@Lob
+	@Column(columnDefinition = "LONGTEXT")
+	private String avatarUrl;
+}
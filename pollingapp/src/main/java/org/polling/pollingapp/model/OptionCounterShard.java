@@ -0,0 +1,46 @@
+package org.polling.pollingapp.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+// One counter slot of a sharded option tally (see Poll.counterShards).
+// An option's vote count is its poll_options.vote_count plus the sum of its slots, so votes on a
+// hot poll spread over several rows instead of all waiting on the same row lock.
+// Rows are only read and written through OptionTallyRepository; the entity mapping exists so the
+// table is created by ddl-auto and checked by validate like every other table.
+@Entity
+@Table(name = "poll_option_counter_shards")
+@IdClass(OptionCounterShard.Key.class)
+@Data
+@NoArgsConstructor
+public class OptionCounterShard {
+
+	@Id
+	@Column(name = "poll_id")
+	private Long pollId;
+
+	@Id
+	@Column(name = "option_index")
+	private Integer optionIndex;
+
+	@Id
+	private Integer shard;
+
+	@Column(nullable = false)
+	private Long voteCount = 0L;
+
+	@Data
+	@NoArgsConstructor
+	public static class Key implements Serializable {
+		private Long pollId;
+		private Integer optionIndex;
+		private Integer shard;
+	}
+}
@@ -1,14 +1,21 @@
 package org.polling.pollingapp.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.persistence.CollectionTable;
+import jakarta.persistence.Column;
 import jakarta.persistence.ElementCollection;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.OrderColumn;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -20,6 +27,9 @@ import java.util.List;
 		// table)
 @Data // Lombok Annotation - Auto-generates boilerplate code at compile time
 @NoArgsConstructor // Generates a no-argument constructor
+// Listings page through polls by (created_at, id), globally and per owner
+@Table(indexes = {@Index(name = "idx_poll_created", columnList = "created_at, id"),
+		@Index(name = "idx_poll_owner_created", columnList = "owner_id, created_at, id")})
 public class Poll {
 	@Id // Marks a field as the primary key - each entity must have one
 	@GeneratedValue(strategy = GenerationType.IDENTITY) // The database generates the primary key value - assigns ID on
@@ -28,8 +38,16 @@ public class Poll {
 	private String question;
 
 	@ElementCollection // A collection of non-entity values that belong entirely to this entity.
+	// The order column gives every option row a (poll_id, option_index) key, so a changed
+	// vote count is a single-row UPDATE instead of re-inserting the whole collection
+	@CollectionTable(name = "poll_options", joinColumns = @JoinColumn(name = "poll_id"))
+	@OrderColumn(name = "option_index")
 	private List<OptionVote> options = new ArrayList<>();
 
+	// Number of counter slots per option. Above 1, vote tallies are spread over rows in
+	// poll_option_counter_shards and summed on read, which only pays off for hot polls.
+	private int counterShards = 1;
+
 	// The user who created this poll
 	// @ManyToOne by itself is enough to trigger the tables, even if there are other
 	// types/tables involved
@@ -37,9 +55,17 @@ public class Poll {
 	// column name
 	@ManyToOne(fetch = FetchType.EAGER)
 	@JoinColumn(name = "owner_id")
-	@JsonIgnoreProperties({"passwordHash", "bio", "avatarUrl", "firstName", "lastName", "displayName", "location",
-			"website", "gender", "dateOfBirth", "createdAt"})
+	@JsonIgnoreProperties({"passwordHash", "bio", "avatarHash", "firstName", "lastName", "displayName",
+			"location", "website", "gender", "dateOfBirth", "createdAt"})
 	private User owner;
 
+	@Column(nullable = false)
 	private LocalDateTime createdAt = LocalDateTime.now();
+
+	// Optimistic-lock version, bumped whenever Hibernate writes the poll or its options.
+	// Only polls.votes.commit-mode=optimistic relies on it; in that mode applyVotes bumps it
+	// too before its in-place counter UPDATEs.
+	@Version
+	@JsonIgnore
+	private long version;
 }
@@ -5,18 +5,19 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
-import jakarta.persistence.Lob;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "users") // "user" is a reserved keyword in MySQL
+@DynamicUpdate // Profile edits only write the changed columns
 @Data
 @NoArgsConstructor
 public class User {
@@ -42,9 +43,10 @@ public class User {
 	@Size(max = 255)
 	private String bio;
 
-	@Lob
-	@Column(columnDefinition = "LONGTEXT")
-	private String avatarUrl;
+	// SHA-256 of the avatar image in AvatarStore; the image itself is served by /api/users/{id}/avatar.
+	// Older avatars are in avatar_url, mapped by LegacyAvatar only.
+	@Column(length = 64)
+	private String avatarHash;
 
 	@Size(max = 50)
 	private String firstName;
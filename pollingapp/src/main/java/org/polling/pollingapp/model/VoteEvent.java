@@ -0,0 +1,52 @@
+package org.polling.pollingapp.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Append-only history of votes: one row per vote cast or changed, written in the same
+// transaction as the VoteRecord. Rows are never updated; VoteEventRepository appends them
+// over JDBC and VoteEventService folds them into VoteTallySnapshot rows.
+@Entity
+@Table(name = "vote_events", indexes = @Index(name = "idx_vote_events_poll", columnList = "poll_id, id"))
+@Data
+@NoArgsConstructor
+public class VoteEvent {
+
+	public enum Type {
+		CAST, // first vote of the user on the poll
+		CHANGED // vote moved from oldOptionIndex to newOptionIndex
+	}
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	@Column(name = "poll_id", nullable = false)
+	private Long pollId;
+
+	@Column(name = "user_id", nullable = false)
+	private Long userId;
+
+	@Enumerated(EnumType.STRING)
+	@Column(nullable = false, length = 16)
+	private Type type;
+
+	private Integer oldOptionIndex;
+
+	@Column(nullable = false)
+	private Integer newOptionIndex;
+
+	@Column(nullable = false)
+	private LocalDateTime createdAt;
+}
@@ -0,0 +1,24 @@
+package org.polling.pollingapp.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Id of the last vote event folded into snapshots by a compaction job. The row is locked
+// while compacting, so two instances never fold the same events twice.
+@Entity
+@Table(name = "vote_event_checkpoints")
+@Data
+@NoArgsConstructor
+public class VoteEventCheckpoint {
+
+	@Id
+	@Column(length = 50)
+	private String name;
+
+	@Column(nullable = false)
+	private Long lastEventId;
+}
@@ -1,10 +1,12 @@
 package org.polling.pollingapp.model;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
@@ -19,7 +21,8 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "votes", uniqueConstraints = {@UniqueConstraint(columnNames = {"poll_id", "user_id"}) // One vote per user
 																									// per poll
-})
+}, indexes = {@Index(name = "idx_votes_user_voted", columnList = "user_id, voted_at, id"), // Vote history
+		@Index(name = "idx_votes_voted_poll", columnList = "voted_at, poll_id")}) // Trending rebuild
 @Data
 @NoArgsConstructor
 public class VoteRecord {
@@ -38,5 +41,6 @@ public class VoteRecord {
 
 	private int optionIndex;
 
+	@Column(nullable = false)
 	private LocalDateTime votedAt = LocalDateTime.now();
 }
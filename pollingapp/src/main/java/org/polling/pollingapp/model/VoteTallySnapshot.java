@@ -0,0 +1,49 @@
+package org.polling.pollingapp.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+// One option's tally of a poll after folding every vote event up to lastEventId.
+// asOf is the newest createdAt among those events, so the snapshot is valid for any point in
+// time from asOf on (until the next event). Written and read over JDBC by VoteEventRepository.
+@Entity
+@Table(name = "vote_tally_snapshots")
+@IdClass(VoteTallySnapshot.Key.class)
+@Data
+@NoArgsConstructor
+public class VoteTallySnapshot {
+
+	@Id
+	@Column(name = "poll_id")
+	private Long pollId;
+
+	@Id
+	@Column(name = "last_event_id")
+	private Long lastEventId;
+
+	@Id
+	@Column(name = "option_index")
+	private Integer optionIndex;
+
+	@Column(nullable = false)
+	private Long voteCount;
+
+	@Column(nullable = false)
+	private LocalDateTime asOf;
+
+	@Data
+	@NoArgsConstructor
+	public static class Key implements Serializable {
+		private Long pollId;
+		private Long lastEventId;
+		private Integer optionIndex;
+	}
+}
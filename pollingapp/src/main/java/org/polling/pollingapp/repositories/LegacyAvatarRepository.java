@@ -0,0 +1,22 @@
+package org.polling.pollingapp.repositories;
+
+import org.polling.pollingapp.model.LegacyAvatar;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+// Reads and clears users.avatar_url; the rows themselves are created by saving a User
+@Repository
+public interface LegacyAvatarRepository extends JpaRepository<LegacyAvatar, Long> {
+
+	@Query("select a.avatarUrl from LegacyAvatar a where a.id = :id and a.avatarUrl is not null")
+	Optional<String> findAvatarUrlById(@Param("id") Long id);
+
+	@Modifying
+	@Query("update LegacyAvatar a set a.avatarUrl = null where a.id = :id and a.avatarUrl is not null")
+	int clearById(@Param("id") Long id);
+}
@@ -0,0 +1,91 @@
+package org.polling.pollingapp.repositories;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// JDBC access to poll_options vote counts and their counter shards.
+// Each row is addressed by its (poll_id, option_index) key and adjusted in place, so applying
+// many deltas is one batched statement instead of rewriting whole option collections.
+// Polls with counterShards > 1 add to poll_option_counter_shards instead; an option's count is
+// then its poll_options row plus the sum of its shard rows.
+@Repository
+public class OptionTallyRepository {
+
+	private static final String ADJUST_SQL = "UPDATE poll_options SET vote_count = vote_count + ? "
+			+ "WHERE poll_id = ? AND option_index = ?";
+
+	// Shard rows are created by the first vote that lands on them. The delta is bound twice rather
+	// than read back with VALUES(), which MySQL deprecates; H2 does not parse the row alias form.
+	private static final String ADJUST_SHARD_SQL = "INSERT INTO poll_option_counter_shards "
+			+ "(poll_id, option_index, shard, vote_count) VALUES (?, ?, ?, ?) "
+			+ "ON DUPLICATE KEY UPDATE vote_count = vote_count + ?";
+
+	private static final String SUM_SHARDS_SQL = "SELECT poll_id, option_index, SUM(vote_count) AS vote_count "
+			+ "FROM poll_option_counter_shards WHERE poll_id IN (:pollIds) GROUP BY poll_id, option_index";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+	public OptionTallyRepository(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+	}
+
+	// A change of one option's tally by delta votes
+	public record Delta(Long pollId, int optionIndex, long delta) {
+	}
+
+	// A change of one counter shard of an option's tally
+	public record ShardDelta(Long pollId, int optionIndex, int shard, long delta) {
+	}
+
+	// Apply all deltas as one JDBC batch; rows of deleted polls are silently skipped
+	public void applyDeltas(List<Delta> deltas) {
+		if (deltas.isEmpty()) {
+			return;
+		}
+		jdbcTemplate.batchUpdate(ADJUST_SQL, deltas, deltas.size(), (ps, d) -> {
+			ps.setLong(1, d.delta());
+			ps.setLong(2, d.pollId());
+			ps.setInt(3, d.optionIndex());
+		});
+	}
+
+	// Apply deltas to counter shards as one JDBC batch
+	public void applyShardDeltas(List<ShardDelta> deltas) {
+		if (deltas.isEmpty()) {
+			return;
+		}
+		jdbcTemplate.batchUpdate(ADJUST_SHARD_SQL, deltas, deltas.size(), (ps, d) -> {
+			ps.setLong(1, d.pollId());
+			ps.setInt(2, d.optionIndex());
+			ps.setInt(3, d.shard());
+			ps.setLong(4, d.delta());
+			ps.setLong(5, d.delta());
+		});
+	}
+
+	// Summed shard counts of the given polls: pollId -> optionIndex -> votes
+	public Map<Long, Map<Integer, Long>> sumShards(Collection<Long> pollIds) {
+		Map<Long, Map<Integer, Long>> sums = new HashMap<>();
+		if (pollIds.isEmpty()) {
+			return sums;
+		}
+		namedJdbcTemplate.query(SUM_SHARDS_SQL, Map.of("pollIds", pollIds), rs -> {
+			sums.computeIfAbsent(rs.getLong("poll_id"), id -> new HashMap<>()).put(rs.getInt("option_index"),
+					rs.getLong("vote_count"));
+		});
+		return sums;
+	}
+
+	// Remove all counter shards of a poll
+	public void deleteShards(Long pollId) {
+		jdbcTemplate.update("DELETE FROM poll_option_counter_shards WHERE poll_id = ?", pollId);
+	}
+}
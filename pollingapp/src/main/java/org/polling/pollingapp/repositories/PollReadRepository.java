@@ -0,0 +1,159 @@
+package org.polling.pollingapp.repositories;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+// Projection queries behind the poll read endpoints. A page of polls costs two statements:
+// the poll rows joined to their owner's id and username, then the options of all of them.
+@Repository
+public class PollReadRepository {
+
+	private static final String SELECT_POLLS = "SELECT p.id, p.question, p.counter_shards, p.created_at, "
+			+ "u.id AS owner_id, u.username AS owner_username FROM poll p LEFT JOIN users u ON u.id = p.owner_id";
+
+	private static final String NEWEST_FIRST = " ORDER BY p.created_at DESC, p.id DESC LIMIT :limit";
+
+	private static final String SELECT_OPTIONS = "SELECT poll_id, option_index, opt_text, vote_count "
+			+ "FROM poll_options WHERE poll_id IN (:pollIds) ORDER BY poll_id, option_index";
+
+	private static final RowMapper<PollRow> POLL_MAPPER = (rs, rowNum) -> new PollRow(rs.getLong("id"),
+			rs.getString("question"), rs.getInt("counter_shards"), rs.getTimestamp("created_at").toLocalDateTime(),
+			rs.getObject("owner_id", Long.class), rs.getString("owner_username"));
+
+	private final NamedParameterJdbcTemplate jdbcTemplate;
+
+	public PollReadRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	// A poll with only its owner's id and username (both null for polls without owner)
+	public record PollRow(Long id, String question, int counterShards, LocalDateTime createdAt, Long ownerId,
+			String ownerUsername) {
+	}
+
+	public record OptionRow(int optionIndex, String optText, long voteCount) {
+	}
+
+	// The text of a poll that search indexes: its question and option texts in option order
+	public record SearchDocument(Long id, String question, List<String> options) {
+	}
+
+	public record IdRange(long minId, long maxId) {
+	}
+
+	// One of a user's votes with its poll's question and the text of the chosen option
+	public record VotedPollRow(long voteId, Long pollId, String question, int optionIndex, String optText,
+			LocalDateTime votedAt) {
+	}
+
+	// Up to limit polls, newest first, optionally only those of one owner and only those after the
+	// (beforeCreatedAt, beforeId) keyset position; the filters are left out of the SQL when null so
+	// each variant uses its (owner_id,) created_at, id index
+	public List<PollRow> findPage(Long ownerId, LocalDateTime beforeCreatedAt, Long beforeId, int limit) {
+		List<String> conditions = new ArrayList<>();
+		MapSqlParameterSource params = new MapSqlParameterSource("limit", limit);
+		if (ownerId != null) {
+			conditions.add("p.owner_id = :ownerId");
+			params.addValue("ownerId", ownerId);
+		}
+		if (beforeCreatedAt != null) {
+			conditions.add("(p.created_at < :createdAt OR (p.created_at = :createdAt AND p.id < :id))");
+			params.addValue("createdAt", beforeCreatedAt).addValue("id", beforeId);
+		}
+		String where = conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+		return jdbcTemplate.query(SELECT_POLLS + where + NEWEST_FIRST, params, POLL_MAPPER);
+	}
+
+	public Optional<PollRow> findById(Long pollId) {
+		return jdbcTemplate.query(SELECT_POLLS + " WHERE p.id = :pollId", Map.of("pollId", pollId), POLL_MAPPER)
+				.stream().findFirst();
+	}
+
+	// The given polls, in no particular order; ids that do not exist are left out
+	public List<PollRow> findByIds(Collection<Long> pollIds) {
+		if (pollIds.isEmpty()) {
+			return List.of();
+		}
+		return jdbcTemplate.query(SELECT_POLLS + " WHERE p.id IN (:pollIds)", Map.of("pollIds", pollIds), POLL_MAPPER);
+	}
+
+	// Lowest and highest poll id, empty when there are no polls
+	public Optional<IdRange> findIdRange() {
+		return jdbcTemplate.query("SELECT MIN(id) AS min_id, MAX(id) AS max_id FROM poll", Map.of(),
+				(rs, rowNum) -> rs.getObject("min_id") == null ? null
+						: new IdRange(rs.getLong("min_id"), rs.getLong("max_id")))
+				.stream().filter(Objects::nonNull).findFirst();
+	}
+
+	// Search documents of the polls with fromId <= id < toId, in id order; two statements
+	public List<SearchDocument> findSearchDocuments(long fromId, long toId) {
+		Map<String, Object> range = Map.of("fromId", fromId, "toId", toId);
+		Map<Long, List<String>> options = new LinkedHashMap<>();
+		jdbcTemplate.query("SELECT poll_id, opt_text FROM poll_options WHERE poll_id >= :fromId AND poll_id < :toId "
+				+ "ORDER BY poll_id, option_index", range, rs -> {
+					options.computeIfAbsent(rs.getLong("poll_id"), id -> new ArrayList<>())
+							.add(rs.getString("opt_text"));
+				});
+		return jdbcTemplate.query("SELECT id, question FROM poll WHERE id >= :fromId AND id < :toId ORDER BY id",
+				range, (rs, rowNum) -> new SearchDocument(rs.getLong("id"), rs.getString("question"),
+						options.getOrDefault(rs.getLong("id"), List.of())));
+	}
+
+	// Ids of the polls whose question or one of whose options contains every word, newest first,
+	// skipping offset of them. The search fallback while PollSearchIndex is unavailable: the words
+	// come from PollSearchIndex.tokenize (lowercase letters and digits only), and accents match as
+	// the column collation decides. Scans the polls instead of using an index.
+	public List<Long> findIdsContainingWords(List<String> words, int offset, int limit) {
+		List<String> conditions = new ArrayList<>();
+		MapSqlParameterSource params = new MapSqlParameterSource("limit", limit).addValue("offset", offset);
+		for (int i = 0; i < words.size(); i++) {
+			conditions.add("(LOWER(p.question) LIKE :w" + i + " OR EXISTS (SELECT 1 FROM poll_options o "
+					+ "WHERE o.poll_id = p.id AND LOWER(o.opt_text) LIKE :w" + i + "))");
+			params.addValue("w" + i, "%" + words.get(i) + "%");
+		}
+		return jdbcTemplate.queryForList("SELECT p.id FROM poll p WHERE " + String.join(" AND ", conditions)
+				+ " ORDER BY p.created_at DESC, p.id DESC LIMIT :limit OFFSET :offset", params, Long.class);
+	}
+
+	// Up to limit of a user's votes, most recent first, optionally only those after the
+	// (beforeVotedAt, beforeId) keyset position; reads the votes (user_id, voted_at, id) index
+	public List<VotedPollRow> findVotesByUser(Long userId, LocalDateTime beforeVotedAt, Long beforeId, int limit) {
+		MapSqlParameterSource params = new MapSqlParameterSource("userId", userId).addValue("limit", limit);
+		String after = "";
+		if (beforeVotedAt != null) {
+			after = " AND (v.voted_at < :votedAt OR (v.voted_at = :votedAt AND v.id < :id))";
+			params.addValue("votedAt", beforeVotedAt).addValue("id", beforeId);
+		}
+		return jdbcTemplate.query("SELECT v.id, v.poll_id, p.question, v.option_index, o.opt_text, v.voted_at "
+				+ "FROM votes v JOIN poll p ON p.id = v.poll_id "
+				+ "LEFT JOIN poll_options o ON o.poll_id = v.poll_id AND o.option_index = v.option_index "
+				+ "WHERE v.user_id = :userId" + after + " ORDER BY v.voted_at DESC, v.id DESC LIMIT :limit", params,
+				(rs, rowNum) -> new VotedPollRow(rs.getLong("id"), rs.getLong("poll_id"), rs.getString("question"),
+						rs.getInt("option_index"), rs.getString("opt_text"),
+						rs.getTimestamp("voted_at").toLocalDateTime()));
+	}
+
+	// Options of the given polls in option order, keyed by poll id
+	public Map<Long, List<OptionRow>> findOptions(Collection<Long> pollIds) {
+		Map<Long, List<OptionRow>> options = new LinkedHashMap<>();
+		if (pollIds.isEmpty()) {
+			return options;
+		}
+		jdbcTemplate.query(SELECT_OPTIONS, Map.of("pollIds", pollIds), rs -> {
+			options.computeIfAbsent(rs.getLong("poll_id"), id -> new ArrayList<>()).add(
+					new OptionRow(rs.getInt("option_index"), rs.getString("opt_text"), rs.getLong("vote_count")));
+		});
+		return options;
+	}
+}
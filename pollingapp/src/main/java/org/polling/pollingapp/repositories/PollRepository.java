@@ -2,8 +2,12 @@ package org.polling.pollingapp.repositories;
 
 import org.polling.pollingapp.model.Poll;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -13,6 +17,30 @@ import java.util.List;
 // database operations on the Poll table, and the primary key is a Long."
 public interface PollRepository extends JpaRepository<Poll, Long> {
 
-	// Find all polls created by a specific user
-	List<Poll> findByOwnerId(Long ownerId);
+	// Number of options (and counter shards) of each poll, without loading the polls themselves
+	interface OptionCount {
+		Long getPollId();
+
+		Integer getOptionCount();
+
+		Integer getCounterShards();
+	}
+
+	@Query("select p.id as pollId, size(p.options) as optionCount, p.counterShards as counterShards "
+			+ "from Poll p where p.id in :pollIds")
+	List<OptionCount> countOptions(@Param("pollIds") Collection<Long> pollIds);
+
+	// Atomically add delta to one option's vote count, touching only that option's row
+	@Modifying
+	@Query(value = "UPDATE poll_options SET vote_count = vote_count + :delta "
+			+ "WHERE poll_id = :pollId AND option_index = :optionIndex", nativeQuery = true)
+	int adjustVoteCount(@Param("pollId") Long pollId, @Param("optionIndex") int optionIndex,
+			@Param("delta") long delta);
+
+	// Bump the optimistic-lock version of polls whose tallies are about to change in place, so
+	// an optimistic vote that loaded one of them earlier fails its version check instead of
+	// writing back counts that miss the change. Rows are locked in id order.
+	@Modifying
+	@Query(value = "UPDATE poll SET version = version + 1 WHERE id IN (:pollIds)", nativeQuery = true)
+	int bumpVersions(@Param("pollIds") Collection<Long> pollIds);
 }
@@ -1,9 +1,13 @@
 package org.polling.pollingapp.repositories;
 
 import org.polling.pollingapp.model.User;
+import org.polling.pollingapp.security.AuthUser;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -16,4 +20,18 @@ public interface UserRepository extends JpaRepository<User, Long> {
 	boolean existsByEmail(String email);
 
 	boolean existsByUsername(String username);
+
+	// Usernames matching a LIKE pattern with '!' as escape character; a prefix pattern is a range
+	// scan over uk_users_username that reads only the index
+	@Query("select u.username from User u where u.username like :pattern escape '!'")
+	List<String> findUsernamesLike(@Param("pattern") String pattern);
+
+	// Serving an avatar needs only its hash, not the user row
+	@Query("select u.avatarHash from User u where u.id = :id and u.avatarHash is not null")
+	Optional<String> findAvatarHashById(@Param("id") Long id);
+
+	// Only the columns of the authentication principal, not the whole profile
+	@Query("select new org.polling.pollingapp.security.AuthUser(u.id, u.username, u.email) "
+			+ "from User u where u.id = :id")
+	Optional<AuthUser> findAuthUserById(@Param("id") Long id);
 }
@@ -0,0 +1,182 @@
+package org.polling.pollingapp.repositories;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// JDBC access to the vote event log (vote_events), the tally snapshots folded from it
+// (vote_tally_snapshots) and the compaction checkpoint (vote_event_checkpoints).
+// Events are only ever inserted; they are appended in the transaction that writes the vote.
+@Repository
+public class VoteEventRepository {
+
+	private static final String INSERT_EVENT_SQL = "INSERT INTO vote_events "
+			+ "(poll_id, user_id, type, old_option_index, new_option_index, created_at) "
+			+ "VALUES (:pollId, :userId, :type, :oldOptionIndex, :newOptionIndex, :createdAt)";
+
+	private static final String EVENT_COLUMNS = "id, poll_id, old_option_index, new_option_index, created_at";
+
+	private static final String SNAPSHOT_COLUMNS = "s.poll_id, s.last_event_id, s.option_index, s.vote_count, s.as_of";
+
+	private static final String INSERT_SNAPSHOT_SQL = "INSERT INTO vote_tally_snapshots "
+			+ "(poll_id, last_event_id, option_index, vote_count, as_of) "
+			+ "VALUES (:pollId, :lastEventId, :optionIndex, :voteCount, :asOf)";
+
+	private static final RowMapper<StoredEvent> EVENT_MAPPER = (rs, rowNum) -> new StoredEvent(rs.getLong("id"),
+			rs.getLong("poll_id"), rs.getObject("old_option_index", Integer.class), rs.getInt("new_option_index"),
+			rs.getTimestamp("created_at").toLocalDateTime());
+
+	private static final RowMapper<SnapshotRow> SNAPSHOT_MAPPER = (rs, rowNum) -> new SnapshotRow(
+			rs.getLong("poll_id"), rs.getLong("last_event_id"), rs.getInt("option_index"), rs.getLong("vote_count"),
+			rs.getTimestamp("as_of").toLocalDateTime());
+
+	private final NamedParameterJdbcTemplate jdbcTemplate;
+
+	public VoteEventRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	// A vote to record: oldOptionIndex is null for a first vote
+	public record NewEvent(Long pollId, Long userId, Integer oldOptionIndex, int newOptionIndex) {
+	}
+
+	// A recorded event, as read back for folding and replay
+	public record StoredEvent(long id, Long pollId, Integer oldOptionIndex, int newOptionIndex,
+			LocalDateTime createdAt) {
+	}
+
+	// One option's count in a snapshot
+	public record SnapshotRow(Long pollId, long lastEventId, int optionIndex, long voteCount, LocalDateTime asOf) {
+	}
+
+	public void append(NewEvent event) {
+		appendAll(List.of(event));
+	}
+
+	public void appendAll(List<NewEvent> events) {
+		if (events.isEmpty()) {
+			return;
+		}
+		Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+		SqlParameterSource[] params = events.stream()
+				.map(e -> new MapSqlParameterSource().addValue("pollId", e.pollId()).addValue("userId", e.userId())
+						.addValue("type", e.oldOptionIndex() == null ? "CAST" : "CHANGED")
+						.addValue("oldOptionIndex", e.oldOptionIndex()).addValue("newOptionIndex", e.newOptionIndex())
+						.addValue("createdAt", now))
+				.toArray(SqlParameterSource[]::new);
+		jdbcTemplate.batchUpdate(INSERT_EVENT_SQL, params);
+	}
+
+	// The next events of all polls after afterId, oldest first
+	public List<StoredEvent> findAfter(long afterId, int limit) {
+		return jdbcTemplate.query(
+				"SELECT " + EVENT_COLUMNS + " FROM vote_events WHERE id > :afterId ORDER BY id LIMIT :limit",
+				Map.of("afterId", afterId, "limit", limit), EVENT_MAPPER);
+	}
+
+	// Events of one poll after afterId that happened at or before until, oldest first
+	public List<StoredEvent> findForPoll(Long pollId, long afterId, LocalDateTime until) {
+		return jdbcTemplate.query(
+				"SELECT " + EVENT_COLUMNS + " FROM vote_events "
+						+ "WHERE poll_id = :pollId AND id > :afterId AND created_at <= :until ORDER BY id",
+				Map.of("pollId", pollId, "afterId", afterId, "until", Timestamp.valueOf(until)), EVENT_MAPPER);
+	}
+
+	// Newest snapshot of each of the given polls
+	public List<SnapshotRow> findLatestSnapshots(Collection<Long> pollIds) {
+		if (pollIds.isEmpty()) {
+			return List.of();
+		}
+		return jdbcTemplate.query("SELECT " + SNAPSHOT_COLUMNS + " FROM vote_tally_snapshots s "
+				+ "JOIN (SELECT poll_id, MAX(last_event_id) AS last_event_id FROM vote_tally_snapshots "
+				+ "WHERE poll_id IN (:pollIds) GROUP BY poll_id) m "
+				+ "ON s.poll_id = m.poll_id AND s.last_event_id = m.last_event_id", Map.of("pollIds", pollIds),
+				SNAPSHOT_MAPPER);
+	}
+
+	// As-of time of the snapshot before the newest one, for each of the given polls that has two
+	public Map<Long, LocalDateTime> findPreviousSnapshotTimes(Collection<Long> pollIds) {
+		Map<Long, LocalDateTime> times = new HashMap<>();
+		if (pollIds.isEmpty()) {
+			return times;
+		}
+		jdbcTemplate.query("SELECT s.poll_id, MAX(s.as_of) AS as_of FROM vote_tally_snapshots s "
+				+ "JOIN (SELECT poll_id, MAX(last_event_id) AS last_event_id FROM vote_tally_snapshots "
+				+ "WHERE poll_id IN (:pollIds) GROUP BY poll_id) m "
+				+ "ON s.poll_id = m.poll_id AND s.last_event_id < m.last_event_id GROUP BY s.poll_id",
+				Map.of("pollIds", pollIds),
+				rs -> {
+					times.put(rs.getLong("poll_id"), rs.getTimestamp("as_of").toLocalDateTime());
+				});
+		return times;
+	}
+
+	// Newest snapshot of a poll that only covers events at or before until; empty if none does
+	public List<SnapshotRow> findSnapshotAsOf(Long pollId, LocalDateTime until) {
+		return jdbcTemplate.query("SELECT " + SNAPSHOT_COLUMNS + " FROM vote_tally_snapshots s "
+				+ "WHERE s.poll_id = :pollId AND s.last_event_id = (SELECT MAX(last_event_id) "
+				+ "FROM vote_tally_snapshots WHERE poll_id = :pollId AND as_of <= :until)",
+				Map.of("pollId", pollId, "until", Timestamp.valueOf(until)), SNAPSHOT_MAPPER);
+	}
+
+	public void insertSnapshots(List<SnapshotRow> rows) {
+		if (rows.isEmpty()) {
+			return;
+		}
+		SqlParameterSource[] params = rows.stream()
+				.map(r -> new MapSqlParameterSource().addValue("pollId", r.pollId())
+						.addValue("lastEventId", r.lastEventId()).addValue("optionIndex", r.optionIndex())
+						.addValue("voteCount", r.voteCount()).addValue("asOf", Timestamp.valueOf(r.asOf())))
+				.toArray(SqlParameterSource[]::new);
+		jdbcTemplate.batchUpdate(INSERT_SNAPSHOT_SQL, params);
+	}
+
+	// Delete whole snapshots, each given by its (pollId, lastEventId)
+	public void deleteSnapshots(Map<Long, Long> lastEventIds) {
+		if (lastEventIds.isEmpty()) {
+			return;
+		}
+		SqlParameterSource[] params = lastEventIds.entrySet().stream()
+				.map(e -> new MapSqlParameterSource().addValue("pollId", e.getKey())
+						.addValue("lastEventId", e.getValue()))
+				.toArray(SqlParameterSource[]::new);
+		jdbcTemplate.batchUpdate(
+				"DELETE FROM vote_tally_snapshots WHERE poll_id = :pollId AND last_event_id = :lastEventId", params);
+	}
+
+	// Read a checkpoint and lock its row until the transaction ends; creates it at 0 if missing.
+	// Instances compacting at the same time may both find it missing, so the insert tolerates
+	// the row the other one created.
+	public long lockCheckpoint(String name) {
+		Map<String, String> params = Map.of("name", name);
+		String select = "SELECT last_event_id FROM vote_event_checkpoints WHERE name = :name FOR UPDATE";
+		List<Long> ids = jdbcTemplate.queryForList(select, params, Long.class);
+		if (ids.isEmpty()) {
+			jdbcTemplate.update("INSERT INTO vote_event_checkpoints (name, last_event_id) VALUES (:name, 0) "
+					+ "ON DUPLICATE KEY UPDATE last_event_id = last_event_id", params);
+			ids = jdbcTemplate.queryForList(select, params, Long.class);
+		}
+		return ids.get(0);
+	}
+
+	public void updateCheckpoint(String name, long lastEventId) {
+		jdbcTemplate.update("UPDATE vote_event_checkpoints SET last_event_id = :lastEventId WHERE name = :name",
+				Map.of("name", name, "lastEventId", lastEventId));
+	}
+
+	// Remove the history of a poll that is being deleted
+	public void deleteForPoll(Long pollId) {
+		Map<String, Long> params = Map.of("pollId", pollId);
+		jdbcTemplate.update("DELETE FROM vote_tally_snapshots WHERE poll_id = :pollId", params);
+		jdbcTemplate.update("DELETE FROM vote_events WHERE poll_id = :pollId", params);
+	}
+}
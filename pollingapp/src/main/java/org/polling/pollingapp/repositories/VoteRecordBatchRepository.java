@@ -0,0 +1,67 @@
+package org.polling.pollingapp.repositories;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// JDBC batch writes (and bulk reads) for the votes table.
+// VoteRecord uses IDENTITY ids, which stops Hibernate from batching inserts, so bulk
+// submissions write their rows here instead of through VoteRecordRepository.save().
+@Repository
+public class VoteRecordBatchRepository {
+
+	private static final String INSERT_SQL = "INSERT INTO votes (poll_id, user_id, option_index, voted_at) "
+			+ "VALUES (?, ?, ?, ?)";
+
+	private static final String UPDATE_SQL = "UPDATE votes SET option_index = ? WHERE poll_id = ? AND user_id = ?";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	public VoteRecordBatchRepository(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	// One user's choice on one poll
+	public record VoteRow(Long pollId, Long userId, int optionIndex) {
+	}
+
+	public interface VoteTimeHandler {
+		void accept(Long pollId, LocalDateTime votedAt);
+	}
+
+	// Stream the poll and time of every vote cast since the given time, without collecting them;
+	// a range scan of idx_votes_voted_poll
+	public void forEachVoteSince(LocalDateTime since, VoteTimeHandler handler) {
+		jdbcTemplate.query("SELECT poll_id, voted_at FROM votes WHERE voted_at >= ?",
+				rs -> {
+					handler.accept(rs.getLong("poll_id"), rs.getTimestamp("voted_at").toLocalDateTime());
+				}, Timestamp.valueOf(since));
+	}
+
+	public void insertAll(List<VoteRow> rows) {
+		if (rows.isEmpty()) {
+			return;
+		}
+		Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+		jdbcTemplate.batchUpdate(INSERT_SQL, rows, rows.size(), (ps, row) -> {
+			ps.setLong(1, row.pollId());
+			ps.setLong(2, row.userId());
+			ps.setInt(3, row.optionIndex());
+			ps.setTimestamp(4, now);
+		});
+	}
+
+	public void updateAll(List<VoteRow> rows) {
+		if (rows.isEmpty()) {
+			return;
+		}
+		jdbcTemplate.batchUpdate(UPDATE_SQL, rows, rows.size(), (ps, row) -> {
+			ps.setInt(1, row.optionIndex());
+			ps.setLong(2, row.pollId());
+			ps.setLong(3, row.userId());
+		});
+	}
+}
@@ -2,8 +2,12 @@ package org.polling.pollingapp.repositories;
 
 import org.polling.pollingapp.model.VoteRecord;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -12,6 +16,21 @@ public interface VoteRecordRepository extends JpaRepository<VoteRecord, Long> {
 	// Find an existing vote by a user on a specific poll (for vote-changing)
 	Optional<VoteRecord> findByPollIdAndUserId(Long pollId, Long userId);
 
+	// The option each of the given users picked on each of the given polls
+	// (pairs without a vote are absent)
+	interface VoteChoice {
+		Long getPollId();
+
+		Long getUserId();
+
+		Integer getOptionIndex();
+	}
+
+	@Query("select v.poll.id as pollId, v.user.id as userId, v.optionIndex as optionIndex from VoteRecord v "
+			+ "where v.user.id in :userIds and v.poll.id in :pollIds")
+	List<VoteChoice> findChoices(@Param("userIds") Collection<Long> userIds,
+			@Param("pollIds") Collection<Long> pollIds);
+
 	// Delete all votes cast on a given poll (used before deleting the poll itself)
 	void deleteByPollId(Long pollId);
 }
@@ -0,0 +1,91 @@
+package org.polling.pollingapp.repositories;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+// Native single-vote write path: an option check, an insert of the vote on the (poll_id, user_id)
+// unique key (or, if the user already voted, a locking read of the old choice and an update) and
+// one tally UPDATE, instead of loading the poll and the existing vote through JPA first.
+// Works on MySQL and on H2 in MySQL mode.
+// Locking (InnoDB, REPEATABLE READ): the option check is a plain snapshot read and the vote is
+// inserted from VALUES, so poll_options rows are never share-locked before the tally UPDATE takes
+// its exclusive locks. An INSERT ... SELECT from poll_options would take shared next-key locks on
+// them, and two voters on one option would then deadlock upgrading to exclusive. The vote row is
+// only read with FOR UPDATE once the insert has found it, so no gap lock is taken for first votes.
+// The UPDATE locks the (at most two) option rows in primary key order, so opposite moves cannot
+// deadlock.
+@Repository
+public class VoteUpsertRepository {
+
+	// Whether the option exists on an unsharded poll; anything else (unknown poll, invalid
+	// index, sharded poll) is "not handled here"
+	private static final String CAN_UPSERT_SQL = "SELECT COUNT(*) FROM poll_options po "
+			+ "JOIN poll p ON p.id = po.poll_id "
+			+ "WHERE po.poll_id = :pollId AND po.option_index = :optionIndex AND p.counter_shards <= 1";
+
+	private static final String INSERT_SQL = "INSERT INTO votes (poll_id, user_id, option_index, voted_at) "
+			+ "VALUES (:pollId, :userId, :optionIndex, :votedAt)";
+
+	private static final String LOCK_CHOICE_SQL = "SELECT option_index FROM votes "
+			+ "WHERE poll_id = :pollId AND user_id = :userId FOR UPDATE";
+
+	private static final String UPDATE_SQL = "UPDATE votes SET option_index = :optionIndex "
+			+ "WHERE poll_id = :pollId AND user_id = :userId";
+
+	// +1 on the new option and -1 on the previous one (none for a first vote)
+	private static final String MOVE_TALLY_SQL = "UPDATE poll_options SET vote_count = vote_count + CASE "
+			+ "WHEN option_index = :optionIndex THEN 1 ELSE -1 END "
+			+ "WHERE poll_id = :pollId AND option_index IN (:optionIndexes)";
+
+	private final NamedParameterJdbcTemplate jdbcTemplate;
+
+	public VoteUpsertRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	// A vote written by upsertVote: previousOptionIndex is null for a first vote
+	public record Upsert(Long pollId, Integer previousOptionIndex, int optionIndex) {
+
+		// Whether the vote was cast or changed, rather than repeating the user's current choice
+		public boolean moved() {
+			return previousOptionIndex == null || previousOptionIndex != optionIndex;
+		}
+	}
+
+	// Insert or move the user's vote; empty when the vote was not written here
+	public Optional<Upsert> upsertVote(Long pollId, Long userId, int optionIndex) {
+		MapSqlParameterSource params = new MapSqlParameterSource().addValue("pollId", pollId)
+				.addValue("userId", userId).addValue("optionIndex", optionIndex)
+				.addValue("votedAt", Timestamp.valueOf(LocalDateTime.now()));
+		Integer options = jdbcTemplate.queryForObject(CAN_UPSERT_SQL, params, Integer.class);
+		if (options == null || options == 0) {
+			return Optional.empty();
+		}
+		try {
+			jdbcTemplate.update(INSERT_SQL, params);
+			return Optional.of(new Upsert(pollId, null, optionIndex));
+		} catch (DuplicateKeyException e) {
+			// The user already voted; only this statement failed, the transaction goes on
+		}
+		Integer previous = jdbcTemplate.queryForObject(LOCK_CHOICE_SQL, params, Integer.class);
+		if (previous != optionIndex) {
+			jdbcTemplate.update(UPDATE_SQL, params);
+		}
+		return Optional.of(new Upsert(pollId, previous, optionIndex));
+	}
+
+	// Apply the tally change of a vote that moved
+	public void moveTally(Upsert vote) {
+		List<Integer> optionIndexes = vote.previousOptionIndex() == null ? List.of(vote.optionIndex())
+				: List.of(vote.optionIndex(), vote.previousOptionIndex());
+		jdbcTemplate.update(MOVE_TALLY_SQL, new MapSqlParameterSource().addValue("pollId", vote.pollId())
+				.addValue("optionIndex", vote.optionIndex()).addValue("optionIndexes", optionIndexes));
+	}
+}
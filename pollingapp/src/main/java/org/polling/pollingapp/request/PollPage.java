@@ -0,0 +1,16 @@
+package org.polling.pollingapp.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+// One page of a poll listing, newest first. nextCursor is passed back as ?cursor= to get the
+// following page, and is null on the last page.
+@Data
+@AllArgsConstructor
+public class PollPage {
+
+	private List<PollView> polls;
+	private String nextCursor;
+}
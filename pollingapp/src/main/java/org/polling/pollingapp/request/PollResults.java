@@ -0,0 +1,19 @@
+package org.polling.pollingapp.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.polling.pollingapp.model.OptionVote;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// A poll's tallies as of a point in time, rebuilt from the vote event log
+@Data
+@AllArgsConstructor
+public class PollResults {
+
+	private Long pollId;
+	private String question;
+	private LocalDateTime asOf;
+	private List<OptionVote> options;
+}
@@ -0,0 +1,16 @@
+package org.polling.pollingapp.request;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// What the read endpoints return for a poll: built from projection queries instead of the Poll
+// entity, so reads never load full owner rows or fetch option collections one poll at a time
+public record PollView(Long id, String question, List<Option> options, int counterShards, Owner owner,
+		LocalDateTime createdAt) {
+
+	public record Option(String optText, long voteCount) {
+	}
+
+	public record Owner(Long id, String username) {
+	}
+}
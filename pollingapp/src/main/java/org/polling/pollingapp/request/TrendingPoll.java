@@ -0,0 +1,5 @@
+package org.polling.pollingapp.request;
+
+// A trending poll and its score: its votes, each one counting half as much per half-life of age
+public record TrendingPoll(PollView poll, double score) {
+}
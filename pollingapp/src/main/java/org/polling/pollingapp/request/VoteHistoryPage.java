@@ -0,0 +1,15 @@
+package org.polling.pollingapp.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+// One page of a user's vote history, most recent vote first. nextCursor works like PollPage's.
+@Data
+@AllArgsConstructor
+public class VoteHistoryPage {
+
+	private List<VotedPoll> votes;
+	private String nextCursor;
+}
@@ -0,0 +1,21 @@
+package org.polling.pollingapp.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Outcome of one item of a batch vote submission
+@Data
+@AllArgsConstructor
+public class VoteResult {
+
+	public enum Status {
+		APPLIED, // vote recorded or moved to this option
+		UNCHANGED, // user had already voted for this option
+		INVALID_OPTION, // option index out of range for the poll
+		POLL_NOT_FOUND
+	}
+
+	private Long pollId;
+	private int optionIndex;
+	private Status status;
+}
@@ -0,0 +1,7 @@
+package org.polling.pollingapp.request;
+
+import java.time.LocalDateTime;
+
+// A poll the user voted on, with the option they picked and when they first voted
+public record VotedPoll(Long pollId, String question, int optionIndex, String optionText, LocalDateTime votedAt) {
+}
@@ -0,0 +1,13 @@
+package org.polling.pollingapp.security;
+
+import org.polling.pollingapp.model.User;
+
+// The authenticated user as controllers receive it (@AuthenticationPrincipal): just enough to
+// identify the caller, read by JwtAuthFilter through a narrow projection. Code that needs the
+// rest of the profile loads the User entity explicitly.
+public record AuthUser(Long id, String username, String email) {
+
+	public static AuthUser of(User user) {
+		return new AuthUser(user.getId(), user.getUsername(), user.getEmail());
+	}
+}
@@ -4,14 +4,18 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.polling.pollingapp.model.User;
-import org.polling.pollingapp.repositories.UserRepository;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.Optional;
 
@@ -20,12 +24,15 @@ import java.util.Optional;
 @Component
 public class JwtAuthFilter extends OncePerRequestFilter {
 
+	private static final byte[] BUSY_BODY = "{\"message\":\"The service is busy at the moment, please try again!\"}"
+			.getBytes(StandardCharsets.UTF_8);
+
 	private final JwtUtil jwtUtil;
-	private final UserRepository userRepository;
+	private final PrincipalCache principalCache;
 
-	public JwtAuthFilter(JwtUtil jwtUtil, UserRepository userRepository) {
+	public JwtAuthFilter(JwtUtil jwtUtil, PrincipalCache principalCache) {
 		this.jwtUtil = jwtUtil;
-		this.userRepository = userRepository;
+		this.principalCache = principalCache;
 	}
 
 	@Override
@@ -43,12 +50,21 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
 		String token = authHeader.substring(7); // Remove "Bearer " prefix
 
-		if (jwtUtil.validateToken(token)) {
-			Long userId = jwtUtil.getUserIdFromToken(token);
-			Optional<User> userOpt = userRepository.findById(userId);
+		// One verification per request; requests repeating a recently verified token skip it entirely
+		JwtUtil.Verification verification = jwtUtil.verify(token);
+		if (verification.isValid()) {
+			Optional<AuthUser> userOpt;
+			try {
+				userOpt = principalCache.get(verification.userId());
+			} catch (CannotCreateTransactionException | DataAccessResourceFailureException e) {
+				// No database connection for loading the principal (a ConnectionGate rejection); this runs
+				// before the controllers, so answer the same 503 as GlobalExceptionHandler here
+				busy(response);
+				return;
+			}
 
 			if (userOpt.isPresent()) {
-				User user = userOpt.get();
+				AuthUser user = userOpt.get();
 				// Create authentication token and set it in the security context
 				UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(user, null,
 						Collections.emptyList());
@@ -58,4 +74,12 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
 		filterChain.doFilter(request, response);
 	}
+
+	private static void busy(HttpServletResponse response) throws IOException {
+		response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+		response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		response.setContentLength(BUSY_BODY.length);
+		response.getOutputStream().write(BUSY_BODY);
+	}
 }
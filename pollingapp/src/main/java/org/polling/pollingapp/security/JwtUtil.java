@@ -1,23 +1,70 @@
 package org.polling.pollingapp.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SecurityException;
+import org.polling.pollingapp.config.BoundedEviction;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 public class JwtUtil {
 
 	private final SecretKey key;
 	private final long expirationMs;
+	// Parsers are immutable and thread-safe, so one is shared by all requests
+	private final JwtParser parser;
+	private final int verifiedCacheSize;
 
-	public JwtUtil(@Value("${jwt.secret}") String secret, @Value("${jwt.expiration-ms}") long expirationMs) {
+	// Tokens that passed verification, keyed by their SHA-256 digest so the cache holds no bearer
+	// credentials; a token seen again skips the HMAC check and JSON parsing until it expires
+	private final Map<TokenDigest, Verification> verified = new ConcurrentHashMap<>();
+	// Evicts the tokens expiring soonest, which puts expired ones first
+	private final BoundedEviction<TokenDigest, Verification> eviction;
+
+	public JwtUtil(@Value("${jwt.secret}") String secret, @Value("${jwt.expiration-ms}") long expirationMs,
+			@Value("${jwt.verified-cache-size:10000}") int verifiedCacheSize) {
 		this.key = Keys.hmacShaKeyFor(secret.getBytes());
 		this.expirationMs = expirationMs;
+		this.parser = Jwts.parser().verifyWith(key).build();
+		this.verifiedCacheSize = verifiedCacheSize;
+		this.eviction = new BoundedEviction<>(verified, verifiedCacheSize, Verification::expiresAtMs);
+	}
+
+	// Outcome of verifying a token: the user id and expiry of a valid one, or why it was rejected
+	public record Verification(Long userId, long expiresAtMs, Failure failure) {
+
+		public enum Failure {
+			EXPIRED, BAD_SIGNATURE, MALFORMED
+		}
+
+		public static Verification valid(Long userId, long expiresAtMs) {
+			return new Verification(userId, expiresAtMs, null);
+		}
+
+		public static Verification failed(Failure failure) {
+			return new Verification(null, 0, failure);
+		}
+
+		public boolean isValid() {
+			return failure == null;
+		}
+	}
+
+	private record TokenDigest(long w0, long w1, long w2, long w3) {
 	}
 
 	// Generate a JWT token containing user ID and email
@@ -26,23 +73,71 @@ public class JwtUtil {
 				.expiration(new Date(System.currentTimeMillis() + expirationMs)).signWith(key).compact();
 	}
 
+	// Check signature and expiry once and return the token's user id, or the reason it is not valid.
+	// Tokens without an expiry or a numeric subject are never issued here and count as malformed.
+	public Verification verify(String token) {
+		if (verifiedCacheSize <= 0) {
+			return parse(token);
+		}
+
+		TokenDigest digest = digest(token);
+		Verification cached = verified.get(digest);
+		if (cached != null) {
+			if (System.currentTimeMillis() < cached.expiresAtMs()) {
+				return cached;
+			}
+			verified.remove(digest);
+			return Verification.failed(Verification.Failure.EXPIRED);
+		}
+
+		Verification verification = parse(token);
+		if (verification.isValid()) {
+			verified.put(digest, verification);
+			eviction.evictIfFull();
+		}
+		return verification;
+	}
+
 	// Extract user ID from a valid token
 	public Long getUserIdFromToken(String token) {
-		Claims claims = parseToken(token);
-		return Long.parseLong(claims.getSubject());
+		Verification verification = verify(token);
+		if (!verification.isValid()) {
+			throw new IllegalArgumentException("Invalid token: " + verification.failure());
+		}
+		return verification.userId();
 	}
 
 	// Validate token: not expired and properly signed
 	public boolean validateToken(String token) {
+		return verify(token).isValid();
+	}
+
+	private Verification parse(String token) {
 		try {
-			parseToken(token);
-			return true;
-		} catch (Exception e) {
-			return false;
+			Claims claims = parser.parseSignedClaims(token).getPayload();
+			Date expiration = claims.getExpiration();
+			if (expiration == null || claims.getSubject() == null) {
+				return Verification.failed(Verification.Failure.MALFORMED);
+			}
+			return Verification.valid(Long.parseLong(claims.getSubject()), expiration.getTime());
+		} catch (ExpiredJwtException e) {
+			return Verification.failed(Verification.Failure.EXPIRED);
+		} catch (SecurityException e) {
+			return Verification.failed(Verification.Failure.BAD_SIGNATURE);
+		} catch (JwtException | IllegalArgumentException e) {
+			// IllegalArgumentException also covers a subject that is not a number
+			return Verification.failed(Verification.Failure.MALFORMED);
 		}
 	}
 
-	private Claims parseToken(String token) {
-		return Jwts.parser().verifyWith(key).build().parseSignedClaims(token).getPayload();
+	private static TokenDigest digest(String token) {
+		try {
+			ByteBuffer hash = ByteBuffer.wrap(
+					MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+			return new TokenDigest(hash.getLong(), hash.getLong(), hash.getLong(), hash.getLong());
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform is required to provide SHA-256
+			throw new IllegalStateException(e);
+		}
 	}
 }
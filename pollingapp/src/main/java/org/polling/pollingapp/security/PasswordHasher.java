@@ -0,0 +1,120 @@
+package org.polling.pollingapp.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Runs BCrypt hashing and verification on a dedicated pool (polls.auth.hash-threads, by default
+// one thread per core), so a burst of logins cannot occupy every request thread with CPU-bound
+// work. Callers wait for their hash; when polls.auth.hash-queue-capacity requests are already
+// waiting, BusyException is thrown right away and answered with 503 and Retry-After.
+@Component
+public class PasswordHasher {
+
+	private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[aby]?\\$(\\d\\d)\\$");
+
+	private final PasswordEncoder passwordEncoder;
+	private final int strength;
+	private final long retryAfterSeconds;
+	private final ThreadPoolExecutor executor;
+
+	private final Timer encodeTimer;
+	private final Timer matchesTimer;
+	private final Counter rejectedCounter;
+
+	public PasswordHasher(PasswordEncoder passwordEncoder, MeterRegistry meterRegistry,
+			@Value("${polls.auth.bcrypt-strength:10}") int strength,
+			@Value("${polls.auth.hash-threads:0}") int threads,
+			@Value("${polls.auth.hash-queue-capacity:64}") int queueCapacity,
+			@Value("${polls.auth.retry-after-seconds:1}") long retryAfterSeconds) {
+		this.passwordEncoder = passwordEncoder;
+		this.strength = strength;
+		this.retryAfterSeconds = retryAfterSeconds;
+
+		int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+		ThreadFactory threadFactory = Thread.ofPlatform().name("password-hash-", 0).daemon().factory();
+		executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), threadFactory);
+
+		encodeTimer = Timer.builder("polls.auth.hash").tag("op", "encode").publishPercentiles(0.5, 0.99)
+				.register(meterRegistry);
+		matchesTimer = Timer.builder("polls.auth.hash").tag("op", "matches").publishPercentiles(0.5, 0.99)
+				.register(meterRegistry);
+		rejectedCounter = meterRegistry.counter("polls.auth.hash.rejected");
+		Gauge.builder("polls.auth.hash.queue.depth", executor, e -> e.getQueue().size()).register(meterRegistry);
+		Gauge.builder("polls.auth.hash.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+	}
+
+	// Thrown when the hashing pool and its queue are full; the client should retry after retryAfterSeconds
+	public static class BusyException extends RuntimeException {
+
+		private final long retryAfterSeconds;
+
+		public BusyException(long retryAfterSeconds) {
+			super("Too many sign-ins at the moment, please try again!");
+			this.retryAfterSeconds = retryAfterSeconds;
+		}
+
+		public long getRetryAfterSeconds() {
+			return retryAfterSeconds;
+		}
+	}
+
+	public String encode(CharSequence rawPassword) {
+		return run(() -> encodeTimer.record(() -> passwordEncoder.encode(rawPassword)));
+	}
+
+	public boolean matches(CharSequence rawPassword, String passwordHash) {
+		return run(() -> matchesTimer.record(() -> passwordEncoder.matches(rawPassword, passwordHash)));
+	}
+
+	// Whether a stored BCrypt hash was made with a cost other than polls.auth.bcrypt-strength,
+	// so it should be replaced once the password is known again (at login)
+	public boolean needsRehash(String passwordHash) {
+		Matcher matcher = BCRYPT_COST.matcher(passwordHash);
+		return matcher.find() && Integer.parseInt(matcher.group(1)) != strength;
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	private <T> T run(Callable<T> task) {
+		Future<T> future;
+		try {
+			future = executor.submit(task);
+		} catch (RejectedExecutionException e) {
+			rejectedCounter.increment();
+			throw new BusyException(retryAfterSeconds);
+		}
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while hashing a password", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package org.polling.pollingapp.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.polling.pollingapp.config.AfterCommit;
+import org.polling.pollingapp.config.BoundedEviction;
+import org.polling.pollingapp.repositories.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Bounded in-process cache of the principals behind JWTs, so authenticated requests do not read
+// the users table every time (a miss only reads the AuthUser columns). Entries expire
+// polls.principals.expire-after-write-ms after they were loaded, and once there are more than
+// polls.principals.max-size of them the least recently read tenth is evicted (0 disables the cache).
+// Profile updates evict their user; evict/evictAll (also reachable as the "principals" actuator
+// endpoint) force a reload, e.g. to revoke a user at once.
+// Other nodes only see a change once their own entry expires.
+@Component
+public class PrincipalCache {
+
+	private final UserRepository userRepository;
+	private final int maxSize;
+	private final long expireAfterWriteNanos;
+
+	private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+	private final BoundedEviction<Long, Entry> eviction;
+
+	private final Counter hitCounter;
+	private final Counter missCounter;
+
+	public PrincipalCache(UserRepository userRepository, MeterRegistry meterRegistry,
+			@Value("${polls.principals.max-size:10000}") int maxSize,
+			@Value("${polls.principals.expire-after-write-ms:60000}") long expireAfterWriteMs) {
+		this.userRepository = userRepository;
+		this.maxSize = maxSize;
+		this.expireAfterWriteNanos = expireAfterWriteMs * 1_000_000;
+		this.eviction = new BoundedEviction<>(entries, maxSize, entry -> entry.readAt);
+
+		hitCounter = meterRegistry.counter("polls.principals.gets", "result", "hit");
+		missCounter = meterRegistry.counter("polls.principals.gets", "result", "miss");
+		Gauge.builder("polls.principals.size", entries, Map::size).register(meterRegistry);
+	}
+
+	private static final class Entry {
+		private final AuthUser user;
+		private final long loadedAt;
+		private volatile long readAt;
+
+		private Entry(AuthUser user, long now) {
+			this.user = user;
+			this.loadedAt = now;
+			this.readAt = now;
+		}
+	}
+
+	// The user with this id, loaded on a miss; empty if there is none (absent users are not cached)
+	public Optional<AuthUser> get(Long userId) {
+		if (maxSize <= 0) {
+			return userRepository.findAuthUserById(userId);
+		}
+
+		long now = System.nanoTime();
+		Entry entry = entries.get(userId);
+		if (entry != null && now - entry.loadedAt <= expireAfterWriteNanos) {
+			hitCounter.increment();
+			entry.readAt = now;
+			return Optional.of(entry.user);
+		}
+
+		missCounter.increment();
+		Optional<AuthUser> user = userRepository.findAuthUserById(userId);
+		if (user.isEmpty()) {
+			entries.remove(userId);
+			return user;
+		}
+		entries.put(userId, new Entry(user.get(), now));
+		eviction.evictIfFull();
+		return user;
+	}
+
+	// Drop a user once the current transaction commits (right away outside of one)
+	public void evict(Long userId) {
+		AfterCommit.run(() -> entries.remove(userId));
+	}
+
+	public void evictAll() {
+		entries.clear();
+	}
+}
@@ -0,0 +1,30 @@
+package org.polling.pollingapp.security;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+// DELETE /actuator/principals/{userId} (or /actuator/principals for everyone) makes the next request
+// of that user reload it from the database. Not exposed over HTTP unless added to
+// management.endpoints.web.exposure.include.
+@Component
+@Endpoint(id = "principals")
+public class PrincipalCacheEndpoint {
+
+	private final PrincipalCache principalCache;
+
+	public PrincipalCacheEndpoint(PrincipalCache principalCache) {
+		this.principalCache = principalCache;
+	}
+
+	@DeleteOperation
+	public void evict(@Selector Long userId) {
+		principalCache.evict(userId);
+	}
+
+	@DeleteOperation
+	public void evictAll() {
+		principalCache.evictAll();
+	}
+}
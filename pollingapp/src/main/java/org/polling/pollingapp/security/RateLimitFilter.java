@@ -0,0 +1,182 @@
+package org.polling.pollingapp.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Token-bucket limits on the routes scripted clients hammer (login, register, voting), checked in
+// the security chain right after JwtAuthFilter so a rejected request never reaches BCrypt or MySQL.
+// Each route has a bucket per client IP and, once signed in, one per user id; a request needs a
+// token from both and otherwise gets 429 with Retry-After. The client IP is read from
+// X-Forwarded-For, counting polls.ratelimit.forwarded-hops entries from the right: with one proxy
+// (our nginx) that is the address nginx itself saw, which a client cannot forge.
+// Registered in SecurityConfig only, not as a servlet filter of its own.
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+	private static final byte[] BODY = "{\"message\":\"Too many requests, please try again later!\"}"
+			.getBytes(StandardCharsets.UTF_8);
+
+	private final boolean enabled;
+	private final int forwardedHops;
+	private final List<Route> routes;
+	private final RateLimiter buckets;
+	private final MeterRegistry meterRegistry;
+
+	public RateLimitFilter(MeterRegistry meterRegistry, @Value("${polls.ratelimit.enabled:true}") boolean enabled,
+			@Value("${polls.ratelimit.forwarded-hops:1}") int forwardedHops,
+			@Value("${polls.ratelimit.stripes:16}") int stripes,
+			@Value("${polls.ratelimit.login.per-ip:10/60}") String loginPerIp,
+			@Value("${polls.ratelimit.register.per-ip:5/60}") String registerPerIp,
+			@Value("${polls.ratelimit.vote.per-ip:300/10}") String votePerIp,
+			@Value("${polls.ratelimit.vote.per-user:30/10}") String votePerUser) {
+		this.enabled = enabled;
+		this.forwardedHops = forwardedHops;
+		this.buckets = new RateLimiter(stripes);
+		this.meterRegistry = meterRegistry;
+		this.routes = List.of(
+				new Route("login", "POST", List.of("/api/auth/login"), RateLimiter.Limit.parse(loginPerIp),
+						RateLimiter.Limit.NONE),
+				new Route("register", "POST", List.of("/api/auth/register"), RateLimiter.Limit.parse(registerPerIp),
+						RateLimiter.Limit.NONE),
+				new Route("vote", "POST", List.of("/api/polls/vote", "/api/polls/vote/batch"),
+						RateLimiter.Limit.parse(votePerIp), RateLimiter.Limit.parse(votePerUser)));
+		Gauge.builder("polls.ratelimit.buckets", buckets, RateLimiter::size).register(meterRegistry);
+	}
+
+	// A limited route and its limits; per-user applies to signed-in callers only
+	private final class Route {
+		private final String name;
+		private final String method;
+		private final List<String> paths;
+		private final RateLimiter.Limit perIp;
+		private final RateLimiter.Limit perUser;
+		private final Counter ipRejections;
+		private final Counter userRejections;
+
+		private Route(String name, String method, List<String> paths, RateLimiter.Limit perIp,
+				RateLimiter.Limit perUser) {
+			this.name = name;
+			this.method = method;
+			this.paths = paths;
+			this.perIp = perIp;
+			this.perUser = perUser;
+			this.ipRejections = meterRegistry.counter("polls.ratelimit.rejected", "route", name, "key", "ip");
+			this.userRejections = meterRegistry.counter("polls.ratelimit.rejected", "route", name, "key", "user");
+		}
+
+		private boolean matches(String requestMethod, String path) {
+			return method.equals(requestMethod) && paths.contains(path);
+		}
+	}
+
+	// Bucket keys; the route name keeps the buckets of different routes apart
+	private record IpKey(String route, String ip) {
+	}
+
+	private record UserKey(String route, Long userId) {
+	}
+
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request) {
+		return !enabled || !"POST".equals(request.getMethod());
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		String path = request.getRequestURI();
+		if (!request.getContextPath().isEmpty()) {
+			path = path.substring(request.getContextPath().length());
+		}
+		Route route = null;
+		for (Route candidate : routes) {
+			if (candidate.matches(request.getMethod(), path)) {
+				route = candidate;
+				break;
+			}
+		}
+		if (route == null) {
+			filterChain.doFilter(request, response);
+			return;
+		}
+
+		long now = System.nanoTime();
+		long wait = buckets.tryAcquire(new IpKey(route.name, clientIp(request)), route.perIp, now);
+		if (wait > 0) {
+			route.ipRejections.increment();
+			reject(response, wait);
+			return;
+		}
+		Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+		if (route.perUser.isEnabled() && authentication != null
+				&& authentication.getPrincipal() instanceof AuthUser user) {
+			wait = buckets.tryAcquire(new UserKey(route.name, user.id()), route.perUser, now);
+			if (wait > 0) {
+				route.userRejections.increment();
+				reject(response, wait);
+				return;
+			}
+		}
+		filterChain.doFilter(request, response);
+	}
+
+	// Buckets that have refilled hold nothing worth keeping
+	@Scheduled(fixedDelayString = "${polls.ratelimit.evict-interval-ms:60000}")
+	public void evictIdleBuckets() {
+		buckets.evictIdle(System.nanoTime());
+	}
+
+	// The forwardedHops-th X-Forwarded-For entry from the right, or the peer address when the header
+	// has fewer entries (or forwarded-hops is 0)
+	String clientIp(HttpServletRequest request) {
+		String forwardedFor = forwardedHops > 0 ? request.getHeader("X-Forwarded-For") : null;
+		if (forwardedFor != null) {
+			int end = forwardedFor.length();
+			for (int hop = 1; hop <= forwardedHops; hop++) {
+				int start = forwardedFor.lastIndexOf(',', end - 1) + 1;
+				if (hop == forwardedHops) {
+					String ip = forwardedFor.substring(start, end).trim();
+					if (!ip.isEmpty()) {
+						return ip;
+					}
+				}
+				if (start == 0) {
+					break;
+				}
+				end = start - 1;
+			}
+		}
+		return request.getRemoteAddr();
+	}
+
+	private static void reject(HttpServletResponse response, long waitNanos) throws IOException {
+		response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+		response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, ceilSeconds(waitNanos))));
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		response.setContentLength(BODY.length);
+		response.getOutputStream().write(BODY);
+	}
+
+	private static long ceilSeconds(long nanos) {
+		return (nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+	}
+}
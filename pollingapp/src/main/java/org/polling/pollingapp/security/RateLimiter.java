@@ -0,0 +1,100 @@
+package org.polling.pollingapp.security;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Token buckets keyed by any value (a client IP, a user id), kept in a fixed number of
+// ConcurrentHashMap stripes. A bucket is a single AtomicLong: the time at which it will be full
+// again (the generic cell rate algorithm). Taking a token is one CAS on it, so requests never lock,
+// and a bucket that has refilled is the same as no bucket at all, which lets evictIdle drop it
+// without changing any outcome.
+public class RateLimiter {
+
+	private final Map<Object, AtomicLong>[] stripes;
+
+	@SuppressWarnings("unchecked")
+	public RateLimiter(int stripes) {
+		int count = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+		this.stripes = new Map[count];
+		for (int i = 0; i < count; i++) {
+			this.stripes[i] = new ConcurrentHashMap<>();
+		}
+	}
+
+	// Up to burst requests at once, refilled evenly over periodSeconds; burst 0 means no limit
+	public record Limit(int burst, long periodSeconds) {
+
+		public static final Limit NONE = new Limit(0, 0);
+
+		// "<burst>/<seconds>", e.g. "10/60", or "0" for no limit
+		public static Limit parse(String value) {
+			String[] parts = value.trim().split("/");
+			int burst = Integer.parseInt(parts[0].trim());
+			if (burst <= 0) {
+				return NONE;
+			}
+			if (parts.length != 2) {
+				throw new IllegalArgumentException("Rate limit must be <burst>/<seconds>: " + value);
+			}
+			return new Limit(burst, Long.parseLong(parts[1].trim()));
+		}
+
+		public boolean isEnabled() {
+			return burst > 0;
+		}
+
+		// Nanoseconds between two tokens
+		long interval() {
+			return periodSeconds * 1_000_000_000L / burst;
+		}
+	}
+
+	// Take a token from the bucket of key at time now (System.nanoTime). Returns 0 when the request
+	// may go ahead, otherwise the nanoseconds until a token is available (nothing is taken then).
+	public long tryAcquire(Object key, Limit limit, long now) {
+		if (!limit.isEnabled()) {
+			return 0;
+		}
+		Map<Object, AtomicLong> stripe = stripeOf(key);
+		AtomicLong fullAt = stripe.get(key);
+		if (fullAt == null) {
+			fullAt = stripe.computeIfAbsent(key, k -> new AtomicLong(now));
+		}
+
+		long interval = limit.interval();
+		long tolerance = interval * (limit.burst() - 1);
+		while (true) {
+			long current = fullAt.get();
+			long base = current - now > 0 ? current : now;
+			long wait = base - tolerance - now;
+			if (wait > 0) {
+				return wait;
+			}
+			if (fullAt.compareAndSet(current, base + interval)) {
+				return 0;
+			}
+		}
+	}
+
+	// Drop buckets that have refilled by now. A token taken concurrently from a bucket being dropped
+	// is given back, which at worst lets one extra request through.
+	public void evictIdle(long now) {
+		for (Map<Object, AtomicLong> stripe : stripes) {
+			stripe.values().removeIf(fullAt -> fullAt.get() - now <= 0);
+		}
+	}
+
+	public int size() {
+		int size = 0;
+		for (Map<Object, AtomicLong> stripe : stripes) {
+			size += stripe.size();
+		}
+		return size;
+	}
+
+	private Map<Object, AtomicLong> stripeOf(Object key) {
+		int hash = key.hashCode();
+		return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+	}
+}
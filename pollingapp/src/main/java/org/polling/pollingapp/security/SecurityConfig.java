@@ -4,6 +4,7 @@ import java.util.Arrays;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -23,14 +24,16 @@ import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 public class SecurityConfig {
 
 	private final JwtAuthFilter jwtAuthFilter;
+	private final RateLimitFilter rateLimitFilter;
 
 	// Comma-separated list of allowed origins; override via CORS_ALLOWED_ORIGINS
 	// env var
 	@Value("${cors.allowed-origins:http://localhost:4200}")
 	private String allowedOrigins;
 
-	public SecurityConfig(JwtAuthFilter jwtAuthFilter) {
+	public SecurityConfig(JwtAuthFilter jwtAuthFilter, RateLimitFilter rateLimitFilter) {
 		this.jwtAuthFilter = jwtAuthFilter;
+		this.rateLimitFilter = rateLimitFilter;
 	}
 
 	@Bean
@@ -45,24 +48,42 @@ public class SecurityConfig {
 						// Health checks (ALB)
 						.requestMatchers("/actuator/health", "/actuator/info").permitAll()
 						// Public endpoints - no authentication required
-						.requestMatchers("/api/auth/**").permitAll().requestMatchers(HttpMethod.GET, "/api/polls/**")
-						.permitAll().requestMatchers(HttpMethod.POST, "/api/polls/vote").authenticated()
+						.requestMatchers("/api/auth/**").permitAll()
+						// The caller's own votes need a caller
+						.requestMatchers(HttpMethod.GET, "/api/polls/my-votes").authenticated()
+						.requestMatchers(HttpMethod.GET, "/api/polls/**")
+						.permitAll().requestMatchers(HttpMethod.POST, "/api/polls/vote", "/api/polls/vote/batch")
+						.authenticated()
 						// Protected endpoints - authentication required
 						.requestMatchers(HttpMethod.POST, "/api/polls").authenticated()
 						.requestMatchers(HttpMethod.PUT, "/api/polls/**").authenticated()
 						.requestMatchers(HttpMethod.DELETE, "/api/polls/**").authenticated()
+						// Avatars are loaded by <img> tags, which send no bearer token
+						.requestMatchers(HttpMethod.GET, "/api/users/*/avatar").permitAll()
 						.requestMatchers("/api/users/**").authenticated()
 						// Everything else requires authentication
 						.anyRequest().authenticated())
 				// Add our JWT filter before the default Spring Security authentication filter
-				.addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
+				.addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
+				// Rate limits need the caller JwtAuthFilter found, and run before anything costly
+				.addFilterAfter(rateLimitFilter, JwtAuthFilter.class);
 
 		return http.build();
 	}
 
+	// The rate limit filter only runs inside the security chain; as a servlet filter of its own it
+	// would run first, before the caller is known, and OncePerRequestFilter would then skip it there
 	@Bean
-	public PasswordEncoder passwordEncoder() {
-		return new BCryptPasswordEncoder();
+	public FilterRegistrationBean<RateLimitFilter> rateLimitFilterRegistration() {
+		FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(rateLimitFilter);
+		registration.setEnabled(false);
+		return registration;
+	}
+
+	// Hashing and verification go through PasswordHasher, which runs them on its own pool
+	@Bean
+	public PasswordEncoder passwordEncoder(@Value("${polls.auth.bcrypt-strength:10}") int strength) {
+		return new BCryptPasswordEncoder(strength);
 	}
 
 	@Bean
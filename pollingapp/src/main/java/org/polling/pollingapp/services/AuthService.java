@@ -6,19 +6,26 @@ import org.polling.pollingapp.request.AuthResponse;
 import org.polling.pollingapp.request.LoginRequest;
 import org.polling.pollingapp.request.RegisterRequest;
 import org.polling.pollingapp.security.JwtUtil;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.polling.pollingapp.security.PasswordHasher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
 @Service
 public class AuthService {
 
+	private static final int MAX_USERNAME_ATTEMPTS = 3;
+
 	private final UserRepository userRepository;
-	private final PasswordEncoder passwordEncoder;
+	private final PasswordHasher passwordHasher;
 	private final JwtUtil jwtUtil;
 
-	public AuthService(UserRepository userRepository, PasswordEncoder passwordEncoder, JwtUtil jwtUtil) {
+	public AuthService(UserRepository userRepository, PasswordHasher passwordHasher, JwtUtil jwtUtil) {
 		this.userRepository = userRepository;
-		this.passwordEncoder = passwordEncoder;
+		this.passwordHasher = passwordHasher;
 		this.jwtUtil = jwtUtil;
 	}
 
@@ -29,40 +36,77 @@ public class AuthService {
 		}
 
 		// Extract username from email (part before @)
-		String username = request.getEmail().split("@")[0];
+		String baseUsername = request.getEmail().split("@")[0];
+		String passwordHash = passwordHasher.encode(request.getPassword());
 
-		// If username already taken, append a number to make it unique
-		String baseUsername = username;
-		int suffix = 1;
-		while (userRepository.existsByUsername(username)) {
-			username = baseUsername + suffix;
-			suffix++;
+		// A concurrent registration can take the allocated username (or the email) between the
+		// lookup and the insert; the unique keys reject ours, and the name is allocated again
+		User savedUser;
+		for (int attempt = 1;; attempt++) {
+			// Create new user with hashed password
+			User user = new User();
+			user.setUsername(allocateUsername(baseUsername));
+			user.setEmail(request.getEmail());
+			user.setPasswordHash(passwordHash);
+			try {
+				savedUser = userRepository.save(user);
+				break;
+			} catch (DataIntegrityViolationException e) {
+				if (userRepository.existsByEmail(request.getEmail())) {
+					throw new RuntimeException("Email is already registered!");
+				}
+				if (attempt >= MAX_USERNAME_ATTEMPTS) {
+					throw new RuntimeException("Username is already taken!");
+				}
+			}
 		}
 
-		// Create new user with hashed password
-		User user = new User();
-		user.setUsername(username);
-		user.setEmail(request.getEmail());
-		user.setPasswordHash(passwordEncoder.encode(request.getPassword()));
-
-		User savedUser = userRepository.save(user);
-
 		// Generate JWT token
 		String token = jwtUtil.generateToken(savedUser.getId(), savedUser.getEmail());
 
 		return new AuthResponse(token, savedUser.getId(), savedUser.getUsername(), savedUser.getEmail());
 	}
 
+	// The base username if it is free, otherwise base1, base2, ... whichever comes first. All names
+	// starting with base are read in one query instead of one existsByUsername call per candidate;
+	// they are compared in lower case, as the unique key is under MySQL's default collation.
+	String allocateUsername(String base) {
+		String pattern = base.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+		Set<String> taken = new HashSet<>();
+		userRepository.findUsernamesLike(pattern).forEach(name -> taken.add(name.toLowerCase(Locale.ROOT)));
+
+		String lowerBase = base.toLowerCase(Locale.ROOT);
+		if (!taken.contains(lowerBase)) {
+			return base;
+		}
+		int suffix = 1;
+		while (taken.contains(lowerBase + suffix)) {
+			suffix++;
+		}
+		return base + suffix;
+	}
+
 	public AuthResponse login(LoginRequest request) {
 		// Find user by email
 		User user = userRepository.findByEmail(request.getEmail())
 				.orElseThrow(() -> new RuntimeException("Invalid email or password!"));
 
 		// Verify password against stored hash
-		if (!passwordEncoder.matches(request.getPassword(), user.getPasswordHash())) {
+		if (!passwordHasher.matches(request.getPassword(), user.getPasswordHash())) {
 			throw new RuntimeException("Invalid email or password!");
 		}
 
+		// Bring the stored hash to the configured BCrypt cost; if the hashing pool is busy it is
+		// left for a later login rather than failing this one
+		if (passwordHasher.needsRehash(user.getPasswordHash())) {
+			try {
+				user.setPasswordHash(passwordHasher.encode(request.getPassword()));
+				userRepository.save(user);
+			} catch (PasswordHasher.BusyException e) {
+				// Keep the old hash
+			}
+		}
+
 		// Generate JWT token
 		String token = jwtUtil.generateToken(user.getId(), user.getEmail());
 
@@ -0,0 +1,192 @@
+package org.polling.pollingapp.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Content-addressed avatar files on local disk (polls.avatars.dir). An avatar is stored once under
+// the SHA-256 of its bytes, <dir>/<first two hex digits>/<hash>, next to a square PNG thumbnail
+// <hash>-thumb.png made at upload; the users table keeps only the hash. Files are never
+// overwritten, so a hash can be cached by clients forever.
+// Thumbnails need a format ImageIO can decode (PNG, JPEG, GIF); WebP avatars are served whole.
+@Component
+public class AvatarStore {
+
+	private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+	private static final Pattern DATA_URL = Pattern.compile("^data:[\\w.+-]+/[\\w.+-]+;base64,");
+
+	private final Path dir;
+	private final int maxBytes;
+	private final int thumbnailSize;
+
+	public AvatarStore(@Value("${polls.avatars.dir:data/avatars}") String dir,
+			@Value("${polls.avatars.max-bytes:524288}") int maxBytes,
+			@Value("${polls.avatars.thumbnail-size:64}") int thumbnailSize) {
+		this.dir = Paths.get(dir).toAbsolutePath();
+		this.maxBytes = maxBytes;
+		this.thumbnailSize = thumbnailSize;
+	}
+
+	// A stored file of avatar hash and the media type it is served with
+	public record Blob(String hash, Path path, String contentType, long size) {
+	}
+
+	// Store a "data:image/...;base64,..." URL as the client sends it and return its hash
+	public String storeDataUrl(String dataUrl) {
+		Matcher matcher = DATA_URL.matcher(dataUrl);
+		if (!matcher.find()) {
+			throw new IllegalArgumentException("Avatar must be an image data URL!");
+		}
+		byte[] bytes;
+		try {
+			bytes = Base64.getMimeDecoder().decode(dataUrl.substring(matcher.end()));
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Avatar is not valid base64!");
+		}
+		return store(bytes);
+	}
+
+	// Store an image and its thumbnail unless the same bytes are already stored; returns the hash.
+	// The declared type is not trusted: the format is taken from the file signature.
+	public String store(byte[] bytes) {
+		if (bytes.length > maxBytes) {
+			throw new IllegalArgumentException("Avatar must be at most " + maxBytes / 1024 + " KB!");
+		}
+		if (contentType(bytes) == null) {
+			throw new IllegalArgumentException("Avatar must be a PNG, JPEG, GIF or WebP image!");
+		}
+
+		String hash = sha256(bytes);
+		Path original = pathOf(hash, false);
+		try {
+			if (Files.notExists(original)) {
+				Files.createDirectories(original.getParent());
+				byte[] thumbnail = thumbnail(bytes);
+				if (thumbnail != null) {
+					write(pathOf(hash, true), thumbnail);
+				}
+				// Written last: an existing original means its thumbnail is in place too
+				write(original, bytes);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not store avatar " + hash, e);
+		}
+		return hash;
+	}
+
+	// The stored avatar (or its thumbnail, falling back to the original when there is none)
+	public Optional<Blob> find(String hash, boolean thumbnail) {
+		if (!HASH.matcher(hash).matches()) {
+			return Optional.empty();
+		}
+		Path path = thumbnail && Files.exists(pathOf(hash, true)) ? pathOf(hash, true) : pathOf(hash, false);
+		try (InputStream in = Files.newInputStream(path)) {
+			String type = contentType(in.readNBytes(12));
+			if (type == null) {
+				type = "application/octet-stream";
+			}
+			return Optional.of(new Blob(hash, path, type, Files.size(path)));
+		} catch (NoSuchFileException e) {
+			return Optional.empty();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not read avatar " + hash, e);
+		}
+	}
+
+	private Path pathOf(String hash, boolean thumbnail) {
+		return dir.resolve(hash.substring(0, 2)).resolve(thumbnail ? hash + "-thumb.png" : hash);
+	}
+
+	// Write to a temporary file and move it into place, so readers never see a partial file
+	private static void write(Path target, byte[] bytes) throws IOException {
+		Path tmp = Files.createTempFile(target.getParent(), ".upload-", ".tmp");
+		try {
+			Files.write(tmp, bytes);
+			Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	// Center-cropped square PNG of thumbnailSize pixels, or null if ImageIO cannot decode the image
+	private byte[] thumbnail(byte[] bytes) throws IOException {
+		BufferedImage image = ImageIO.read(new ByteArrayInputStream(bytes));
+		if (image == null) {
+			return null;
+		}
+		int side = Math.min(image.getWidth(), image.getHeight());
+		int x = (image.getWidth() - side) / 2;
+		int y = (image.getHeight() - side) / 2;
+
+		BufferedImage thumbnail = new BufferedImage(thumbnailSize, thumbnailSize, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = thumbnail.createGraphics();
+		try {
+			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+			g.drawImage(image, 0, 0, thumbnailSize, thumbnailSize, x, y, x + side, y + side, null);
+		} finally {
+			g.dispose();
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(thumbnail, "png", out);
+		return out.toByteArray();
+	}
+
+	// Media type from the file signature, or null for anything but PNG, JPEG, GIF and WebP
+	static String contentType(byte[] head) {
+		if (startsWith(head, 0, 0x89, 'P', 'N', 'G')) {
+			return "image/png";
+		}
+		if (startsWith(head, 0, 0xFF, 0xD8, 0xFF)) {
+			return "image/jpeg";
+		}
+		if (startsWith(head, 0, 'G', 'I', 'F', '8')) {
+			return "image/gif";
+		}
+		if (startsWith(head, 0, 'R', 'I', 'F', 'F') && startsWith(head, 8, 'W', 'E', 'B', 'P')) {
+			return "image/webp";
+		}
+		return null;
+	}
+
+	private static boolean startsWith(byte[] bytes, int offset, int... signature) {
+		if (bytes.length < offset + signature.length) {
+			return false;
+		}
+		for (int i = 0; i < signature.length; i++) {
+			if ((bytes[offset + i] & 0xFF) != signature[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static String sha256(byte[] bytes) {
+		try {
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform is required to provide SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,28 @@
+package org.polling.pollingapp.services;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Position in a poll listing: the (createdAt, id) key of the last poll of a page (the vote
+// history uses it the same way for the (votedAt, id) key of a vote).
+// Clients get it as an opaque URL-safe token and must not build or parse it themselves.
+record PollCursor(LocalDateTime createdAt, Long id) {
+
+	String encode() {
+		String key = createdAt + "_" + id;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+	}
+
+	static PollCursor decode(String token) {
+		try {
+			String key = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+			int separator = key.lastIndexOf('_');
+			return new PollCursor(LocalDateTime.parse(key.substring(0, separator)),
+					Long.valueOf(key.substring(separator + 1)));
+		} catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+			throw new IllegalArgumentException("Invalid cursor!");
+		}
+	}
+}
@@ -0,0 +1,419 @@
+package org.polling.pollingapp.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.polling.pollingapp.config.AfterCommit;
+import org.polling.pollingapp.repositories.PollReadRepository;
+import org.polling.pollingapp.repositories.PollReadRepository.IdRange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// In-process inverted index over poll questions and option texts (GET /api/polls/search).
+// Text is split into lowercase words with accents removed. Each word has a posting list: the ids of
+// the polls containing it in ascending order, each with a weight (2 per occurrence in the question,
+// 1 per occurrence in an option), held in growable long[] / int[] arrays. Words are kept sorted, so a
+// query word also matches every word it is a prefix of.
+// PollService updates the index once its writes commit; at startup it is rebuilt from the database,
+// reading and tokenizing polls.search.rebuild-chunk-size id ranges on polls.search.rebuild-threads
+// threads. Writes made on other nodes are only picked up by the next rebuild.
+// If that rebuild fails the node still starts: the index reports itself unavailable, PollService
+// searches the database instead, and the rebuild is retried every polls.search.rebuild-retry-ms.
+@Component
+public class PollSearchIndex {
+
+	private static final Logger log = LoggerFactory.getLogger(PollSearchIndex.class);
+
+	private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+	private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+	private static final int QUESTION_WEIGHT = 2;
+	private static final int OPTION_WEIGHT = 1;
+	private static final int MAX_QUERY_WORDS = 8;
+
+	private final PollReadRepository pollReadRepository;
+	private final int rebuildThreads;
+	private final int rebuildChunkSize;
+	private final int maxResults;
+
+	// Everything below is guarded by lock
+	private final NavigableMap<String, Postings> words = new TreeMap<>();
+	// The posting lists each poll is in, to take it out again on update and delete
+	private final Map<Long, Postings[]> pollPostings = new HashMap<>();
+	// Polls deleted while a rebuild runs, which the rebuild must not bring back
+	private final Set<Long> removedDuringRebuild = new HashSet<>();
+	private boolean rebuilding;
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	// Set once a rebuild has read every poll; cleared by a failed one until a retry succeeds
+	private volatile boolean available;
+	private volatile boolean failed;
+
+	public PollSearchIndex(PollReadRepository pollReadRepository, MeterRegistry meterRegistry,
+			@Value("${polls.search.rebuild-threads:4}") int rebuildThreads,
+			@Value("${polls.search.rebuild-chunk-size:5000}") int rebuildChunkSize,
+			@Value("${polls.search.max-results:1000}") int maxResults) {
+		this.pollReadRepository = pollReadRepository;
+		this.rebuildThreads = rebuildThreads;
+		this.rebuildChunkSize = rebuildChunkSize;
+		this.maxResults = maxResults;
+
+		Gauge.builder("polls.search.words", words, Map::size).register(meterRegistry);
+		Gauge.builder("polls.search.polls", pollPostings, Map::size).register(meterRegistry);
+	}
+
+	// One word's polls, in ascending id order
+	private static final class Postings {
+		private final String word;
+		private long[] ids = new long[2];
+		private int[] weights = new int[2];
+		private int size;
+
+		private Postings(String word) {
+			this.word = word;
+		}
+
+		private void put(long id, int weight) {
+			// New polls have the highest id so far, which makes this an append
+			int at = size > 0 && ids[size - 1] < id ? -(size + 1) : Arrays.binarySearch(ids, 0, size, id);
+			if (at >= 0) {
+				weights[at] = weight;
+				return;
+			}
+			at = -(at + 1);
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, size * 2);
+				weights = Arrays.copyOf(weights, size * 2);
+			}
+			System.arraycopy(ids, at, ids, at + 1, size - at);
+			System.arraycopy(weights, at, weights, at + 1, size - at);
+			ids[at] = id;
+			weights[at] = weight;
+			size++;
+		}
+
+		private void remove(long id) {
+			int at = Arrays.binarySearch(ids, 0, size, id);
+			if (at < 0) {
+				return;
+			}
+			System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+			System.arraycopy(weights, at + 1, weights, at, size - at - 1);
+			size--;
+			if (size > 2 && size < ids.length / 4) {
+				ids = Arrays.copyOf(ids, ids.length / 2);
+				weights = Arrays.copyOf(weights, weights.length / 2);
+			}
+		}
+	}
+
+	// Polls matched by one or more query words with their scores, in ascending id order
+	private record Matches(long[] ids, int[] scores, int size) {
+	}
+
+	// A poll's words and their weights, computed before taking the lock
+	private record Document(Long pollId, Map<String, Integer> weights) {
+	}
+
+	// (Re)index a poll once the current transaction commits (right away outside of one)
+	public void index(Long pollId, String question, List<String> options) {
+		Document document = document(pollId, question, options);
+		AfterCommit.run(() -> {
+			lock.writeLock().lock();
+			try {
+				put(document);
+			} finally {
+				lock.writeLock().unlock();
+			}
+		});
+	}
+
+	public void remove(Long pollId) {
+		AfterCommit.run(() -> {
+			lock.writeLock().lock();
+			try {
+				unindex(pollId);
+				if (rebuilding) {
+					removedDuringRebuild.add(pollId);
+				}
+			} finally {
+				lock.writeLock().unlock();
+			}
+		});
+	}
+
+	// Whether search sees every poll; false until the startup rebuild has succeeded
+	public boolean isAvailable() {
+		return available;
+	}
+
+	// The distinct words of a search query, at most MAX_QUERY_WORDS of them. Throws
+	// IllegalArgumentException for a query without words.
+	public static List<String> queryWords(String query) {
+		List<String> queryWords = tokenize(query).distinct().limit(MAX_QUERY_WORDS).toList();
+		if (queryWords.isEmpty()) {
+			throw new IllegalArgumentException("Search query must contain a word!");
+		}
+		return queryWords;
+	}
+
+	// Ids of the polls containing every word of the query, whole or as a prefix, best first: by the
+	// summed weight of the matched words (prefix matches count half), then newest first. Throws
+	// IllegalArgumentException for a query without words. Only the first polls.search.max-results
+	// matches can be paged through.
+	public List<Long> search(String query, int offset, int limit) {
+		List<String> queryWords = queryWords(query);
+		int wanted = (int) Math.min((long) offset + limit, maxResults);
+		if (offset >= wanted) {
+			return List.of();
+		}
+
+		Matches matches = null;
+		lock.readLock().lock();
+		try {
+			for (String word : queryWords) {
+				Matches wordMatches = match(word);
+				matches = matches == null ? wordMatches : intersect(matches, wordMatches);
+				if (matches.size() == 0) {
+					return List.of();
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		List<Long> best = best(matches, wanted);
+		return best.subList(Math.min(offset, best.size()), best.size());
+	}
+
+	// Index all polls, before the node reports ready. Polls indexed or deleted by writes while
+	// this runs are newer than what it read, so they are left as they are. A failure is logged and
+	// leaves the index unavailable until retryRebuild succeeds.
+	@EventListener(ApplicationReadyEvent.class)
+	public void rebuild() {
+		try {
+			loadAll();
+			available = true;
+			failed = false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			unavailable(e);
+		} catch (ExecutionException e) {
+			unavailable(e.getCause());
+		} catch (RuntimeException e) {
+			unavailable(e);
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${polls.search.rebuild-retry-ms:60000}",
+			initialDelayString = "${polls.search.rebuild-retry-ms:60000}")
+	public void retryRebuild() {
+		if (failed) {
+			rebuild();
+		}
+	}
+
+	private void unavailable(Throwable cause) {
+		available = false;
+		failed = true;
+		log.error("Could not rebuild the poll search index, searching the database until a retry succeeds", cause);
+	}
+
+	// Read and index every poll; polls already in the index are kept
+	private void loadAll() throws InterruptedException, ExecutionException {
+		Optional<IdRange> range = pollReadRepository.findIdRange();
+		if (range.isEmpty()) {
+			return;
+		}
+		setRebuilding(true);
+		ExecutorService executor = Executors.newFixedThreadPool(rebuildThreads);
+		try {
+			// Chunks are loaded in id order, with at most two per thread read ahead
+			Deque<Future<List<Document>>> inFlight = new ArrayDeque<>();
+			long next = range.get().minId();
+			long indexed = 0;
+			while (next <= range.get().maxId() || !inFlight.isEmpty()) {
+				while (next <= range.get().maxId() && inFlight.size() < rebuildThreads * 2) {
+					long fromId = next;
+					long toId = Math.min(next + rebuildChunkSize, range.get().maxId() + 1);
+					inFlight.add(executor.submit(() -> pollReadRepository.findSearchDocuments(fromId, toId).stream()
+							.map(d -> document(d.id(), d.question(), d.options())).toList()));
+					next = toId;
+				}
+				List<Document> chunk = inFlight.poll().get();
+				load(chunk);
+				indexed += chunk.size();
+			}
+			log.info("Rebuilt poll search index from {} polls", indexed);
+		} finally {
+			executor.shutdownNow();
+			setRebuilding(false);
+		}
+	}
+
+	// Lowercase words without accents
+	static Stream<String> tokenize(String text) {
+		if (text == null) {
+			return Stream.empty();
+		}
+		String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFKD)).replaceAll("")
+				.toLowerCase(Locale.ROOT);
+		return NON_WORD.splitAsStream(folded).filter(word -> !word.isEmpty());
+	}
+
+	private static Document document(Long pollId, String question, List<String> options) {
+		Map<String, Integer> weights = new LinkedHashMap<>();
+		tokenize(question).forEach(word -> weights.merge(word, QUESTION_WEIGHT, Integer::sum));
+		options.forEach(option -> tokenize(option).forEach(word -> weights.merge(word, OPTION_WEIGHT, Integer::sum)));
+		return new Document(pollId, weights);
+	}
+
+	private void load(List<Document> chunk) {
+		lock.writeLock().lock();
+		try {
+			for (Document document : chunk) {
+				if (!pollPostings.containsKey(document.pollId())
+						&& !removedDuringRebuild.contains(document.pollId())) {
+					put(document);
+				}
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void setRebuilding(boolean value) {
+		lock.writeLock().lock();
+		try {
+			rebuilding = value;
+			removedDuringRebuild.clear();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// Callers hold the write lock
+	private void put(Document document) {
+		unindex(document.pollId());
+		Postings[] postings = new Postings[document.weights().size()];
+		int i = 0;
+		for (Map.Entry<String, Integer> entry : document.weights().entrySet()) {
+			Postings wordPostings = words.computeIfAbsent(entry.getKey(), Postings::new);
+			wordPostings.put(document.pollId(), entry.getValue());
+			postings[i++] = wordPostings;
+		}
+		pollPostings.put(document.pollId(), postings);
+	}
+
+	private void unindex(Long pollId) {
+		Postings[] postings = pollPostings.remove(pollId);
+		if (postings == null) {
+			return;
+		}
+		for (Postings wordPostings : postings) {
+			wordPostings.remove(pollId);
+			if (wordPostings.size == 0) {
+				words.remove(wordPostings.word);
+			}
+		}
+	}
+
+	// Union of the posting lists of all words starting with prefix, merged in id order.
+	// Scores are doubled weights for the word itself and plain weights for longer words.
+	private Matches match(String prefix) {
+		List<Postings> lists = new ArrayList<>(
+				words.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values());
+		int total = lists.stream().mapToInt(p -> p.size).sum();
+		long[] ids = new long[total];
+		int[] scores = new int[total];
+		int size = 0;
+
+		int[] positions = new int[lists.size()];
+		PriorityQueue<Integer> heads = new PriorityQueue<>(Math.max(1, lists.size()),
+				Comparator.comparingLong(i -> lists.get(i).ids[positions[i]]));
+		for (int i = 0; i < lists.size(); i++) {
+			heads.add(i);
+		}
+		while (!heads.isEmpty()) {
+			int i = heads.poll();
+			Postings postings = lists.get(i);
+			long id = postings.ids[positions[i]];
+			int score = postings.weights[positions[i]] * (postings.word.equals(prefix) ? 2 : 1);
+			if (size > 0 && ids[size - 1] == id) {
+				scores[size - 1] += score;
+			} else {
+				ids[size] = id;
+				scores[size++] = score;
+			}
+			if (++positions[i] < postings.size) {
+				heads.add(i);
+			}
+		}
+		return new Matches(ids, scores, size);
+	}
+
+	private static Matches intersect(Matches a, Matches b) {
+		int capacity = Math.min(a.size(), b.size());
+		long[] ids = new long[capacity];
+		int[] scores = new int[capacity];
+		int size = 0;
+		int i = 0;
+		int j = 0;
+		while (i < a.size() && j < b.size()) {
+			if (a.ids()[i] < b.ids()[j]) {
+				i++;
+			} else if (a.ids()[i] > b.ids()[j]) {
+				j++;
+			} else {
+				ids[size] = a.ids()[i];
+				scores[size++] = a.scores()[i++] + b.scores()[j++];
+			}
+		}
+		return new Matches(ids, scores, size);
+	}
+
+	// The wanted highest scoring matches, best first, keeping only that many while scanning
+	private static List<Long> best(Matches matches, int wanted) {
+		Comparator<Integer> worstFirst = Comparator.<Integer>comparingInt(i -> matches.scores()[i])
+				.thenComparingLong(i -> matches.ids()[i]);
+		PriorityQueue<Integer> top = new PriorityQueue<>(wanted + 1, worstFirst);
+		for (int i = 0; i < matches.size(); i++) {
+			top.add(i);
+			if (top.size() > wanted) {
+				top.poll();
+			}
+		}
+		Long[] ids = new Long[top.size()];
+		for (int i = ids.length - 1; i >= 0; i--) {
+			ids[i] = matches.ids()[top.poll()];
+		}
+		return Arrays.asList(ids);
+	}
+}
@@ -2,15 +2,47 @@ package org.polling.pollingapp.services;
 
 import org.polling.pollingapp.model.OptionVote;
 import org.polling.pollingapp.model.Poll;
-import org.polling.pollingapp.model.User;
 import org.polling.pollingapp.model.VoteRecord;
+import org.polling.pollingapp.repositories.OptionTallyRepository;
+import org.polling.pollingapp.repositories.OptionTallyRepository.ShardDelta;
+import org.polling.pollingapp.repositories.PollReadRepository;
+import org.polling.pollingapp.repositories.PollReadRepository.OptionRow;
+import org.polling.pollingapp.repositories.PollReadRepository.PollRow;
+import org.polling.pollingapp.repositories.PollReadRepository.VotedPollRow;
 import org.polling.pollingapp.repositories.PollRepository;
+import org.polling.pollingapp.repositories.UserRepository;
+import org.polling.pollingapp.repositories.VoteEventRepository;
+import org.polling.pollingapp.repositories.VoteEventRepository.NewEvent;
+import org.polling.pollingapp.repositories.VoteRecordBatchRepository;
+import org.polling.pollingapp.repositories.VoteRecordBatchRepository.VoteRow;
 import org.polling.pollingapp.repositories.VoteRecordRepository;
+import org.polling.pollingapp.repositories.VoteUpsertRepository;
+import org.polling.pollingapp.repositories.VoteUpsertRepository.Upsert;
+import org.polling.pollingapp.request.PollPage;
+import org.polling.pollingapp.request.PollView;
+import org.polling.pollingapp.request.TrendingPoll;
+import org.polling.pollingapp.request.Vote;
+import org.polling.pollingapp.request.VoteHistoryPage;
+import org.polling.pollingapp.request.VoteResult;
+import org.polling.pollingapp.request.VotedPoll;
+import org.polling.pollingapp.security.AuthUser;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionOperations;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
 // Business Layer is implemented here
 // It indicates that a class contains business logic (e.g., calculating a total, validating a user, or processing an order)
@@ -18,51 +50,260 @@ import java.util.Optional;
 public class PollService {
 
 	private final PollRepository pollRepository;
+	private final PollReadRepository pollReadRepository;
 	private final VoteRecordRepository voteRecordRepository;
+	private final UserRepository userRepository;
+	private final VoteTallyBuffer voteTallyBuffer;
+	private final VoteRecordBatchRepository voteRecordBatchRepository;
+	private final OptionTallyRepository optionTallyRepository;
+	private final VoteUpsertRepository voteUpsertRepository;
+	private final VoteConflictRetrier voteConflictRetrier;
+	private final VoteEventRepository voteEventRepository;
+	private final PollViewCache pollViewCache;
+	private final TrendingService trendingService;
+	private final PollSearchIndex pollSearchIndex;
+	private final TransactionOperations transactionOperations;
 
-	public PollService(PollRepository pollRepository, VoteRecordRepository voteRecordRepository) {
+	@Value("${polls.votes.batch.max-size:1000}")
+	private int maxBatchSize = 1000;
+
+	@Value("${polls.votes.counter-shards.max:64}")
+	private int maxCounterShards = 64;
+
+	@Value("${polls.votes.upsert.enabled:false}")
+	private boolean voteUpsertEnabled;
+
+	// Page size of poll listings when the client does not ask for one, and the most it may ask for
+	@Value("${polls.list.page-size:20}")
+	private int defaultPageSize = 20;
+
+	@Value("${polls.list.max-page-size:100}")
+	private int maxPageSize = 100;
+
+	// "atomic" (in-place counter UPDATEs) or "optimistic" (Poll @Version check with retries)
+	@Value("${polls.votes.commit-mode:atomic}")
+	private String commitMode = "atomic";
+
+	public PollService(PollRepository pollRepository, PollReadRepository pollReadRepository,
+			VoteRecordRepository voteRecordRepository, UserRepository userRepository,
+			VoteTallyBuffer voteTallyBuffer, VoteRecordBatchRepository voteRecordBatchRepository,
+			OptionTallyRepository optionTallyRepository, VoteUpsertRepository voteUpsertRepository,
+			VoteConflictRetrier voteConflictRetrier, VoteEventRepository voteEventRepository,
+			PollViewCache pollViewCache, TrendingService trendingService, PollSearchIndex pollSearchIndex,
+			TransactionOperations transactionOperations) {
 		this.pollRepository = pollRepository;
+		this.pollReadRepository = pollReadRepository;
 		this.voteRecordRepository = voteRecordRepository;
+		this.userRepository = userRepository;
+		this.voteTallyBuffer = voteTallyBuffer;
+		this.voteRecordBatchRepository = voteRecordBatchRepository;
+		this.optionTallyRepository = optionTallyRepository;
+		this.voteUpsertRepository = voteUpsertRepository;
+		this.voteConflictRetrier = voteConflictRetrier;
+		this.voteEventRepository = voteEventRepository;
+		this.pollViewCache = pollViewCache;
+		this.trendingService = trendingService;
+		this.pollSearchIndex = pollSearchIndex;
+		this.transactionOperations = transactionOperations;
 	}
 
 	// Save a poll and assign it to the authenticated owner
-	public Poll savePoll(Poll poll, User owner) {
-		poll.setOwner(owner);
-		return pollRepository.save(poll);
+	public Poll savePoll(Poll poll, AuthUser owner) {
+		validateCounterShards(poll.getCounterShards());
+		// The whole owner is loaded: the saved poll is returned with it
+		poll.setOwner(userRepository.findById(owner.id())
+				.orElseThrow(() -> new RuntimeException("User not found!")));
+		Poll saved = pollRepository.save(poll);
+		indexForSearch(saved);
+		return saved;
+	}
+
+	// Read paths return PollView projections, not Poll entities. Their counts include counter
+	// shards and vote deltas that the write-behind buffer has not flushed yet.
+	// Listings are keyset-paginated: cursor is the nextCursor of the previous page, or null for the first
+	public PollPage listPolls(String cursor, Integer limit) {
+		return listPage(null, cursor, limit);
+	}
+
+	// Single polls are served from the in-process cache; every write below invalidates its poll
+	public Optional<PollView> getPollById(Long id) {
+		return getPollJson(id).map(PollViewCache.CachedView::view);
+	}
+
+	// The cached poll together with its serialized JSON and ETag, for GET /api/polls/{id}
+	public Optional<PollViewCache.CachedView> getPollJson(Long id) {
+		return pollViewCache.get(id,
+				pollId -> pollReadRepository.findById(pollId).map(row -> toViews(List.of(row)).get(0)));
 	}
 
-	public List<Poll> getAllPolls() {
-		return pollRepository.findAll();
+	// Get the polls created by a specific user, paginated like listPolls
+	public PollPage listPollsByOwner(Long ownerId, String cursor, Integer limit) {
+		return listPage(ownerId, cursor, limit);
 	}
 
-	public Optional<Poll> getPollById(Long id) {
-		return pollRepository.findById(id);
+	// Polls matching all words of query, best match first (see PollSearchIndex). Results are ranked,
+	// so pages are offsets into the ranking: cursor is the nextCursor of the previous page.
+	// While the index is unavailable the database is searched instead, newest first.
+	public PollPage searchPolls(String query, String cursor, Integer limit) {
+		int pageSize = pageSize(limit);
+		int offset = cursor != null ? decodeOffset(cursor) : 0;
+		// One extra id tells whether there is a next page
+		List<Long> ids = pollSearchIndex.isAvailable() ? pollSearchIndex.search(query, offset, pageSize + 1)
+				: pollReadRepository.findIdsContainingWords(PollSearchIndex.queryWords(query), offset, pageSize + 1);
+		List<Long> pageIds = ids.subList(0, Math.min(ids.size(), pageSize));
+		Map<Long, PollRow> rows = new HashMap<>();
+		pollReadRepository.findByIds(pageIds).forEach(row -> rows.put(row.id(), row));
+		List<PollRow> ranked = pageIds.stream().map(rows::get).filter(Objects::nonNull).toList();
+		return new PollPage(toViews(ranked), ids.size() > pageSize ? String.valueOf(offset + pageSize) : null);
 	}
 
-	// Get all polls created by a specific user
-	public List<Poll> getPollsByOwner(Long ownerId) {
-		return pollRepository.findByOwnerId(ownerId);
+	private static int decodeOffset(String cursor) {
+		try {
+			int offset = Integer.parseInt(cursor);
+			if (offset >= 0) {
+				return offset;
+			}
+		} catch (NumberFormatException e) {
+			// handled below
+		}
+		throw new IllegalArgumentException("Invalid cursor!");
+	}
+
+	// The polls with the most recent votes, best first; views come from the poll cache
+	public List<TrendingPoll> getTrending(Integer limit) {
+		return trendingService.top(pageSize(limit)).stream()
+				.flatMap(ranked -> getPollById(ranked.pollId()).map(view -> new TrendingPoll(view, ranked.score()))
+						.stream())
+				.toList();
+	}
+
+	private PollPage listPage(Long ownerId, String cursor, Integer limit) {
+		int pageSize = pageSize(limit);
+		PollCursor after = cursor != null ? PollCursor.decode(cursor) : null;
+		// One extra row tells whether there is a next page
+		List<PollRow> rows = pollReadRepository.findPage(ownerId, after != null ? after.createdAt() : null,
+				after != null ? after.id() : null, pageSize + 1);
+		if (rows.size() <= pageSize) {
+			return new PollPage(toViews(rows), null);
+		}
+		List<PollRow> page = rows.subList(0, pageSize);
+		PollRow last = page.get(pageSize - 1);
+		return new PollPage(toViews(page), new PollCursor(last.createdAt(), last.id()).encode());
 	}
 
-	// Update a poll only if the authenticated user is the owner
-	public Poll updatePoll(Long pollId, Poll updatedPoll, User currentUser) {
-		Poll existingPoll = getPollById(pollId).orElseThrow(() -> new RuntimeException("Poll not found!"));
+	private int pageSize(Integer limit) {
+		if (limit == null) {
+			return defaultPageSize;
+		}
+		if (limit < 1) {
+			throw new IllegalArgumentException("Page size must be at least 1!");
+		}
+		return Math.min(limit, maxPageSize);
+	}
 
-		if (!existingPoll.getOwner().getId().equals(currentUser.getId())) {
+	// The user's votes, most recent first, keyset-paginated like listPolls. Reads a projection
+	// of votes, polls and options; no entities are loaded.
+	public VoteHistoryPage listVotesByUser(Long userId, String cursor, Integer limit) {
+		int pageSize = pageSize(limit);
+		PollCursor after = cursor != null ? PollCursor.decode(cursor) : null;
+		List<VotedPollRow> rows = pollReadRepository.findVotesByUser(userId, after != null ? after.createdAt() : null,
+				after != null ? after.id() : null, pageSize + 1);
+		List<VotedPollRow> page = rows.subList(0, Math.min(rows.size(), pageSize));
+		List<VotedPoll> votes = page.stream().map(row -> new VotedPoll(row.pollId(), row.question(), row.optionIndex(),
+				row.optText(), row.votedAt())).toList();
+		if (rows.size() <= pageSize) {
+			return new VoteHistoryPage(votes, null);
+		}
+		VotedPollRow last = page.get(pageSize - 1);
+		return new VoteHistoryPage(votes, new PollCursor(last.votedAt(), last.voteId()).encode());
+	}
+
+	// The option the user picked on each of the given polls, in one query on the votes
+	// (poll_id, user_id) index; polls the user has not voted on are left out
+	public Map<Long, Integer> getMyVotes(Collection<Long> pollIds, AuthUser user) {
+		if (pollIds.size() > maxPageSize) {
+			throw new IllegalArgumentException("At most " + maxPageSize + " polls can be looked up at once!");
+		}
+		Map<Long, Integer> votes = new HashMap<>();
+		if (pollIds.isEmpty()) {
+			return votes;
+		}
+		voteRecordRepository.findChoices(List.of(user.id()), pollIds)
+				.forEach(choice -> votes.put(choice.getPollId(), choice.getOptionIndex()));
+		return votes;
+	}
+
+	// Update a poll only if the authenticated user is the owner.
+	// The submitted options replace the old ones including their vote counts, so any counter
+	// shards and buffered vote deltas of the poll are dropped along with them.
+	@Transactional
+	public Poll updatePoll(Long pollId, Poll updatedPoll, AuthUser currentUser) {
+		Poll existingPoll = pollRepository.findById(pollId).orElseThrow(() -> new RuntimeException("Poll not found!"));
+
+		if (!existingPoll.getOwner().getId().equals(currentUser.id())) {
 			throw new RuntimeException("You are not authorized to edit this poll!");
 		}
 
+		validateCounterShards(updatedPoll.getCounterShards());
+		voteTallyBuffer.discard(pollId);
+		if (existingPoll.getCounterShards() > 1) {
+			optionTallyRepository.deleteShards(pollId);
+		}
+
 		existingPoll.setQuestion(updatedPoll.getQuestion());
 		existingPoll.setOptions(updatedPoll.getOptions());
-		return pollRepository.save(existingPoll);
+		existingPoll.setCounterShards(updatedPoll.getCounterShards());
+		pollViewCache.invalidate(pollId);
+		Poll saved = pollRepository.save(existingPoll);
+		indexForSearch(saved);
+		return saved;
 	}
 
 	// Vote on a poll - only authenticated users can vote
-	// If user already voted, their old vote is moved to the new option
-	@Transactional
-	public void doVote(Long pollId, int optionIndex, User user) {
+	// If user already voted, their old vote is moved to the new option.
+	// Every attempt is its own transaction, so in optimistic mode a vote that lost a
+	// version conflict can be retried from scratch.
+	public void doVote(Long pollId, int optionIndex, AuthUser user) {
+		if (isOptimisticCommit()) {
+			voteConflictRetrier.run(pollId, () -> transactionOperations
+					.executeWithoutResult(status -> castAndInvalidate(pollId, optionIndex, user)));
+			return;
+		}
+		transactionOperations.executeWithoutResult(status -> castAndInvalidate(pollId, optionIndex, user));
+	}
+
+	// The cache entry is dropped after commit, and after any write-behind deltas of the vote
+	// were buffered (synchronizations run in registration order). Only votes that moved count
+	// towards the trending ranking.
+	private void castAndInvalidate(Long pollId, int optionIndex, AuthUser user) {
+		boolean moved = castVote(pollId, optionIndex, user);
+		pollViewCache.invalidate(pollId);
+		if (moved) {
+			trendingService.recordVote(pollId);
+		}
+	}
+
+	// Returns whether the vote was cast or changed, rather than repeating the user's current choice
+	private boolean castVote(Long pollId, int optionIndex, AuthUser user) {
+		// Upsert fast path: plain JDBC statements check the option, write the vote and move the
+		// tally, without loading the poll or the old vote. Votes it does not take (unknown poll, invalid
+		// index, sharded poll) fall through to the checks below; write-behind and optimistic
+		// mode go through the loaded poll, so they always use the regular path.
+		Optional<Upsert> upsert = voteUpsertEnabled && !voteTallyBuffer.isEnabled() && !isOptimisticCommit()
+				? voteUpsertRepository.upsertVote(pollId, user.id(), optionIndex)
+				: Optional.empty();
+		if (upsert.isPresent()) {
+			Upsert vote = upsert.get();
+			if (!vote.moved()) {
+				return false;
+			}
+			voteUpsertRepository.moveTally(vote);
+			voteEventRepository.append(new NewEvent(pollId, user.id(), vote.previousOptionIndex(), optionIndex));
+			return true;
+		}
+
 		// Get poll from DB
-		Poll poll = getPollById(pollId).orElseThrow(() -> new RuntimeException("Poll not found!"));
+		Poll poll = pollRepository.findById(pollId).orElseThrow(() -> new RuntimeException("Poll not found!"));
 
 		// Extract all options
 		List<OptionVote> options = poll.getOptions();
@@ -73,20 +314,18 @@ public class PollService {
 		}
 
 		// Check if user has already voted on this poll
-		Optional<VoteRecord> existingVote = voteRecordRepository.findByPollIdAndUserId(pollId, user.getId());
+		Optional<VoteRecord> existingVote = voteRecordRepository.findByPollIdAndUserId(pollId, user.id());
+		Integer oldIndex = null;
 
 		if (existingVote.isPresent()) {
 			VoteRecord record = existingVote.get();
-			int oldIndex = record.getOptionIndex();
+			oldIndex = record.getOptionIndex();
 
 			// If voting for the same option, nothing to do
 			if (oldIndex == optionIndex) {
-				return;
+				return false;
 			}
 
-			// Decrement old option
-			options.get(oldIndex).setVoteCount(options.get(oldIndex).getVoteCount() - 1);
-
 			// Update the record to the new option
 			record.setOptionIndex(optionIndex);
 			voteRecordRepository.save(record);
@@ -94,30 +333,259 @@ public class PollService {
 			// First vote — create a new record
 			VoteRecord voteRecord = new VoteRecord();
 			voteRecord.setPoll(poll);
-			voteRecord.setUser(user);
+			voteRecord.setUser(userRepository.getReferenceById(user.id()));
 			voteRecord.setOptionIndex(optionIndex);
 			voteRecordRepository.save(voteRecord);
 		}
+		voteEventRepository.append(new NewEvent(pollId, user.id(), oldIndex, optionIndex));
 
-		// Increment the new option
-		options.get(optionIndex).setVoteCount(options.get(optionIndex).getVoteCount() + 1);
+		// In write-behind mode the tally change is buffered and flushed later;
+		// the VoteRecord above is still written in this transaction
+		if (voteTallyBuffer.isEnabled()) {
+			voteTallyBuffer.recordVote(pollId, oldIndex, optionIndex);
+			return true;
+		}
 
-		// Save poll with updated vote counts
-		pollRepository.save(poll);
+		// Optimistic mode: change the counts on the loaded poll. Hibernate writes them on commit
+		// and bumps Poll.version; if another vote committed first, the version check fails and
+		// doVote retries the whole transaction.
+		if (isOptimisticCommit()) {
+			if (oldIndex != null && oldIndex < options.size()) {
+				OptionVote oldOption = options.get(oldIndex);
+				oldOption.setVoteCount(oldOption.getVoteCount() - 1);
+			}
+			OptionVote newOption = options.get(optionIndex);
+			newOption.setVoteCount(newOption.getVoteCount() + 1);
+			return true;
+		}
+
+		// Hot poll: both changes go to one randomly picked counter slot, so concurrent voters
+		// rarely wait on the same row. A slot may go negative; only the sum is meaningful.
+		if (poll.getCounterShards() > 1) {
+			int shard = ThreadLocalRandom.current().nextInt(poll.getCounterShards());
+			List<ShardDelta> shardDeltas = new ArrayList<>(2);
+			if (oldIndex != null) {
+				shardDeltas.add(new ShardDelta(pollId, oldIndex, shard, -1));
+			}
+			shardDeltas.add(new ShardDelta(pollId, optionIndex, shard, 1));
+			optionTallyRepository.applyShardDeltas(shardDeltas);
+			return true;
+		}
+
+		// Decrement old option, increment the new one. Each is a single-row
+		// "vote_count = vote_count + delta" UPDATE, so concurrent votes never overwrite
+		// each other and the loaded poll is left untouched (nothing for Hibernate to flush).
+		if (oldIndex != null) {
+			pollRepository.adjustVoteCount(pollId, oldIndex, -1);
+		}
+		pollRepository.adjustVoteCount(pollId, optionIndex, 1);
+		return true;
+	}
+
+	// Apply many votes of one user in a single transaction.
+	// Each item gets its own result instead of failing the whole batch.
+	@Transactional
+	public List<VoteResult> doVoteBatch(List<Vote> votes, AuthUser user) {
+		if (votes.size() > maxBatchSize) {
+			throw new IllegalArgumentException("Batch exceeds the limit of " + maxBatchSize + " votes!");
+		}
+		return applyVotes(
+				votes.stream().map(v -> new VoteCommand(v.getPollId(), v.getOptionIndex(), user.id())).toList());
+	}
+
+	// Apply votes of any number of users in one transaction, in list order.
+	// Option counts and existing VoteRecords are loaded once for all affected polls, the
+	// votes are applied in memory, and the resulting rows and net tally deltas are written
+	// back as JDBC batches.
+	@Transactional
+	public List<VoteResult> applyVotes(List<VoteCommand> commands) {
+		Set<Long> pollIds = new HashSet<>();
+		Set<Long> userIds = new HashSet<>();
+		for (VoteCommand command : commands) {
+			if (command.pollId() != null) {
+				pollIds.add(command.pollId());
+				userIds.add(command.userId());
+			}
+		}
+		if (pollIds.isEmpty()) {
+			return commands.stream()
+					.map(c -> new VoteResult(c.pollId(), c.optionIndex(), VoteResult.Status.POLL_NOT_FOUND)).toList();
+		}
+
+		Map<Long, Integer> optionCounts = new HashMap<>();
+		Map<Long, Integer> counterShards = new HashMap<>();
+		pollRepository.countOptions(pollIds).forEach(c -> {
+			optionCounts.put(c.getPollId(), c.getOptionCount());
+			counterShards.put(c.getPollId(), c.getCounterShards());
+		});
+
+		// Current choice per (poll, user); the keys present now are the votes that already exist.
+		// The query may return a few unrelated (poll, user) pairs, which are simply never touched.
+		Map<PollUser, Integer> choices = new HashMap<>();
+		voteRecordRepository.findChoices(userIds, pollIds)
+				.forEach(c -> choices.put(new PollUser(c.getPollId(), c.getUserId()), c.getOptionIndex()));
+		Set<PollUser> previouslyVoted = new HashSet<>(choices.keySet());
+
+		List<VoteResult> results = new ArrayList<>(commands.size());
+		Map<Long, Map<Integer, Long>> deltas = new LinkedHashMap<>();
+		Set<PollUser> changed = new LinkedHashSet<>();
+		List<NewEvent> events = new ArrayList<>();
+		for (VoteCommand command : commands) {
+			Long pollId = command.pollId();
+			int optionIndex = command.optionIndex();
+			Integer optionCount = pollId != null ? optionCounts.get(pollId) : null;
+
+			VoteResult.Status status;
+			if (optionCount == null) {
+				status = VoteResult.Status.POLL_NOT_FOUND;
+			} else if (optionIndex < 0 || optionIndex >= optionCount) {
+				status = VoteResult.Status.INVALID_OPTION;
+			} else {
+				PollUser key = new PollUser(pollId, command.userId());
+				Integer oldIndex = choices.put(key, optionIndex);
+				if (Objects.equals(oldIndex, optionIndex)) {
+					status = VoteResult.Status.UNCHANGED;
+				} else {
+					Map<Integer, Long> pollDeltas = deltas.computeIfAbsent(pollId, id -> new HashMap<>());
+					if (oldIndex != null) {
+						pollDeltas.merge(oldIndex, -1L, Long::sum);
+					}
+					pollDeltas.merge(optionIndex, 1L, Long::sum);
+					changed.add(key);
+					events.add(new NewEvent(pollId, command.userId(), oldIndex, optionIndex));
+					status = VoteResult.Status.APPLIED;
+				}
+			}
+			results.add(new VoteResult(pollId, optionIndex, status));
+		}
+
+		// Only votes that actually moved need their VoteRecord written
+		List<VoteRow> inserts = new ArrayList<>();
+		List<VoteRow> updates = new ArrayList<>();
+		for (PollUser key : changed) {
+			VoteRow row = new VoteRow(key.pollId(), key.userId(), choices.get(key));
+			(previouslyVoted.contains(key) ? updates : inserts).add(row);
+		}
+		// Net tally changes; with write-behind off, those of sharded polls go to one random slot per poll
+		List<OptionTallyRepository.Delta> tallyDeltas = new ArrayList<>();
+		List<ShardDelta> shardDeltas = new ArrayList<>();
+		deltas.forEach((pollId, pollDeltas) -> {
+			int shards = counterShards.getOrDefault(pollId, 1);
+			boolean sharded = shards > 1 && !voteTallyBuffer.isEnabled();
+			int shard = sharded ? ThreadLocalRandom.current().nextInt(shards) : 0;
+			pollDeltas.forEach((index, delta) -> {
+				if (delta == 0) {
+					return;
+				}
+				if (sharded) {
+					shardDeltas.add(new ShardDelta(pollId, index, shard, delta));
+				} else {
+					tallyDeltas.add(new OptionTallyRepository.Delta(pollId, index, delta));
+				}
+			});
+		});
+
+		// Optimistic doVote writes absolute counts guarded by Poll.version, so in that mode the
+		// in-place changes below must bump it, or a vote that loaded the poll before them would
+		// overwrite them on commit. Done first, so the poll row is locked before its options, as
+		// in Hibernate's flush.
+		if (isOptimisticCommit() && !voteTallyBuffer.isEnabled() && !deltas.isEmpty()) {
+			pollRepository.bumpVersions(deltas.keySet());
+		}
+		voteRecordBatchRepository.insertAll(inserts);
+		voteRecordBatchRepository.updateAll(updates);
+		voteEventRepository.appendAll(events);
+		if (voteTallyBuffer.isEnabled()) {
+			voteTallyBuffer.recordDeltas(tallyDeltas);
+		} else {
+			optionTallyRepository.applyDeltas(tallyDeltas);
+			optionTallyRepository.applyShardDeltas(shardDeltas);
+		}
+		deltas.keySet().forEach(pollViewCache::invalidate);
+		trendingService.recordVotes(events.stream().map(NewEvent::pollId).toList());
+		return results;
+	}
+
+	// Check that a vote could be applied, without applying it (used before queueing votes)
+	public void validateVote(Long pollId, int optionIndex) {
+		List<PollRepository.OptionCount> counts = pollId != null
+				? pollRepository.countOptions(List.of(pollId))
+				: List.of();
+		if (counts.isEmpty()) {
+			throw new RuntimeException("Poll not found!");
+		}
+		if (optionIndex < 0 || optionIndex >= counts.get(0).getOptionCount()) {
+			throw new IllegalArgumentException("Invalid option index!");
+		}
 	}
 
 	// Delete a poll only if the authenticated user is the owner.
 	// VoteRecord rows have a FK on poll_id, so they must be removed first.
 	@Transactional
-	public void deletePoll(Long id, User currentUser) {
-		Poll poll = getPollById(id).orElseThrow(() -> new RuntimeException("Poll not found!"));
+	public void deletePoll(Long id, AuthUser currentUser) {
+		Poll poll = pollRepository.findById(id).orElseThrow(() -> new RuntimeException("Poll not found!"));
 
-		if (!poll.getOwner().getId().equals(currentUser.getId())) {
+		if (!poll.getOwner().getId().equals(currentUser.id())) {
 			throw new RuntimeException("You are not authorized to delete this poll!");
 		}
 
-		// Delete all votes cast on this poll before deleting the poll itself
+		voteTallyBuffer.discard(id);
+		// Delete all votes cast on this poll (and their history) before deleting the poll itself
 		voteRecordRepository.deleteByPollId(id);
+		voteEventRepository.deleteForPoll(id);
+		optionTallyRepository.deleteShards(id);
 		pollRepository.deleteById(id);
+		pollViewCache.invalidate(id);
+		trendingService.remove(id);
+		pollSearchIndex.remove(id);
+	}
+
+	private void indexForSearch(Poll poll) {
+		List<String> options = poll.getOptions() != null
+				? poll.getOptions().stream().map(OptionVote::getOptText).toList()
+				: List.of();
+		pollSearchIndex.index(poll.getId(), poll.getQuestion(), options);
+	}
+
+	private record PollUser(Long pollId, Long userId) {
+	}
+
+	private boolean isOptimisticCommit() {
+		return "optimistic".equals(commitMode);
+	}
+
+	private void validateCounterShards(int shards) {
+		if (shards < 1 || shards > maxCounterShards) {
+			throw new IllegalArgumentException("Counter shards must be between 1 and " + maxCounterShards + "!");
+		}
+	}
+
+	// Load the options of all polls in one query and fold in counter shards (one more query,
+	// only if some polls are sharded) and unflushed write-behind deltas, so every option
+	// still reports a single voteCount
+	private List<PollView> toViews(List<PollRow> rows) {
+		if (rows.isEmpty()) {
+			return List.of();
+		}
+		Map<Long, List<OptionRow>> options = pollReadRepository.findOptions(rows.stream().map(PollRow::id).toList());
+		List<Long> shardedIds = rows.stream().filter(r -> r.counterShards() > 1).map(PollRow::id).toList();
+		Map<Long, Map<Integer, Long>> shardSums = shardedIds.isEmpty() ? Map.of()
+				: optionTallyRepository.sumShards(shardedIds);
+
+		List<PollView> views = new ArrayList<>(rows.size());
+		for (PollRow row : rows) {
+			Map<Integer, Long> shards = shardSums.getOrDefault(row.id(), Map.of());
+			Map<Integer, Long> pending = voteTallyBuffer.isEnabled() ? voteTallyBuffer.pendingDeltas(row.id())
+					: Map.of();
+			List<PollView.Option> pollOptions = options.getOrDefault(row.id(), List.of()).stream()
+					.map(o -> new PollView.Option(o.optText(), o.voteCount() + shards.getOrDefault(o.optionIndex(), 0L)
+							+ pending.getOrDefault(o.optionIndex(), 0L)))
+					.toList();
+			PollView.Owner owner = row.ownerId() != null ? new PollView.Owner(row.ownerId(), row.ownerUsername())
+					: null;
+			views.add(new PollView(row.id(), row.question(), pollOptions, row.counterShards(), owner,
+					row.createdAt()));
+		}
+		return views;
 	}
 }
@@ -0,0 +1,227 @@
+package org.polling.pollingapp.services;
+
+import jakarta.annotation.PreDestroy;
+import org.polling.pollingapp.services.PollViewCache.CachedView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Live results over Server-Sent Events (GET /api/polls/{id}/stream).
+// Subscribers hold no request thread: the emitter is completed asynchronously, and frames are
+// written on virtual threads, one drain task per subscriber at a time. Every update-interval-ms the
+// polls with subscribers are checked against the poll cache; a poll whose JSON changed gets one
+// "results" frame, built once and shared by all of its subscribers. A subscriber that is still busy
+// writing only keeps the newest frame, so slow clients skip intermediate states instead of queueing them;
+// a heartbeat is only queued when no frame is waiting, so it never takes the place of newer results.
+@Service
+public class PollStreamService {
+
+	private static final Logger log = LoggerFactory.getLogger(PollStreamService.class);
+
+	private static final Set<DataWithMediaType> HEARTBEAT = SseEmitter.event().comment("heartbeat").build();
+
+	private final PollService pollService;
+	private final int maxSubscribers;
+	private final long timeoutMs;
+	private final long retryAfterSeconds;
+
+	private final Map<Long, Channel> channels = new ConcurrentHashMap<>();
+	private final AtomicInteger subscriberCount = new AtomicInteger();
+	private final ExecutorService senders;
+
+	@Autowired
+	public PollStreamService(PollService pollService,
+			@Value("${polls.stream.max-subscribers:50000}") int maxSubscribers,
+			@Value("${polls.stream.timeout-ms:1800000}") long timeoutMs,
+			@Value("${polls.stream.retry-after-seconds:5}") long retryAfterSeconds) {
+		this(pollService, maxSubscribers, timeoutMs, retryAfterSeconds, Executors.newVirtualThreadPerTaskExecutor());
+	}
+
+	// With the executor that writes frames (tests run it by hand)
+	PollStreamService(PollService pollService, int maxSubscribers, long timeoutMs, long retryAfterSeconds,
+			ExecutorService senders) {
+		this.pollService = pollService;
+		this.maxSubscribers = maxSubscribers;
+		this.timeoutMs = timeoutMs;
+		this.retryAfterSeconds = retryAfterSeconds;
+		this.senders = senders;
+	}
+
+	// Thrown when this node already streams to maxSubscribers clients; retry after retryAfterSeconds
+	public static class TooManySubscribersException extends RuntimeException {
+
+		private final long retryAfterSeconds;
+
+		public TooManySubscribersException(long retryAfterSeconds) {
+			super("Too many live result subscribers!");
+			this.retryAfterSeconds = retryAfterSeconds;
+		}
+
+		public long getRetryAfterSeconds() {
+			return retryAfterSeconds;
+		}
+	}
+
+	// Subscribers of one poll and the ETag of the last frame sent to them
+	private static final class Channel {
+		private final Set<Subscriber> subscribers = new CopyOnWriteArraySet<>();
+		private volatile String lastEtag;
+	}
+
+	// Start streaming a poll's results, beginning with the current ones. Empty if the poll does not
+	// exist; throws TooManySubscribersException when this node already has maxSubscribers open streams.
+	public Optional<SseEmitter> subscribe(Long pollId) {
+		Optional<CachedView> current = pollService.getPollJson(pollId);
+		if (current.isEmpty()) {
+			return Optional.empty();
+		}
+		if (subscriberCount.incrementAndGet() > maxSubscribers) {
+			subscriberCount.decrementAndGet();
+			throw new TooManySubscribersException(retryAfterSeconds);
+		}
+
+		Subscriber subscriber = new Subscriber(pollId, new SseEmitter(timeoutMs));
+		SseEmitter emitter = subscriber.emitter;
+		emitter.onCompletion(() -> unsubscribe(subscriber));
+		emitter.onTimeout(emitter::complete);
+		emitter.onError(e -> unsubscribe(subscriber));
+		channels.compute(pollId, (id, channel) -> {
+			Channel c = channel;
+			if (c == null) {
+				c = new Channel();
+				c.lastEtag = current.get().etag();
+			}
+			c.subscribers.add(subscriber);
+			return c;
+		});
+		subscriber.offer(frame(current.get()));
+		return Optional.of(emitter);
+	}
+
+	public int getSubscriberCount() {
+		return subscriberCount.get();
+	}
+
+	// Push changed results, at most once per interval per poll
+	@Scheduled(fixedDelayString = "${polls.stream.update-interval-ms:500}")
+	public void publishChanges() {
+		channels.forEach((pollId, channel) -> {
+			Optional<CachedView> current;
+			try {
+				current = pollService.getPollJson(pollId);
+			} catch (RuntimeException e) {
+				log.warn("Could not load poll {} for its live results", pollId, e);
+				return;
+			}
+			if (current.isEmpty()) {
+				// Poll deleted: end its streams
+				channel.subscribers.forEach(s -> s.emitter.complete());
+				return;
+			}
+			CachedView view = current.get();
+			if (view.etag().equals(channel.lastEtag)) {
+				return;
+			}
+			channel.lastEtag = view.etag();
+			Set<DataWithMediaType> frame = frame(view);
+			channel.subscribers.forEach(s -> s.offer(frame));
+		});
+	}
+
+	// Keeps idle connections open through proxies and detects clients that went away
+	@Scheduled(fixedRateString = "${polls.stream.heartbeat-ms:15000}")
+	public void sendHeartbeats() {
+		channels.values().forEach(channel -> channel.subscribers.forEach(Subscriber::offerHeartbeat));
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		channels.values().forEach(channel -> channel.subscribers.forEach(s -> s.emitter.complete()));
+		senders.shutdown();
+	}
+
+	private static Set<DataWithMediaType> frame(CachedView view) {
+		return SseEmitter.event().name("results").data(view.json(), MediaType.APPLICATION_JSON).build();
+	}
+
+	private void unsubscribe(Subscriber subscriber) {
+		if (!subscriber.closed.compareAndSet(false, true)) {
+			return;
+		}
+		subscriberCount.decrementAndGet();
+		channels.computeIfPresent(subscriber.pollId, (id, channel) -> {
+			channel.subscribers.remove(subscriber);
+			return channel.subscribers.isEmpty() ? null : channel;
+		});
+	}
+
+	private final class Subscriber {
+		private final Long pollId;
+		private final SseEmitter emitter;
+		private final AtomicReference<Set<DataWithMediaType>> next = new AtomicReference<>();
+		private final AtomicBoolean sending = new AtomicBoolean();
+		private final AtomicBoolean closed = new AtomicBoolean();
+
+		private Subscriber(Long pollId, SseEmitter emitter) {
+			this.pollId = pollId;
+			this.emitter = emitter;
+		}
+
+		// Replace the frame waiting for this subscriber and start a drain task unless one is running
+		private void offer(Set<DataWithMediaType> frame) {
+			next.set(frame);
+			startDrain();
+		}
+
+		// Queue a heartbeat only if nothing is waiting; a waiting frame keeps the connection alive too
+		private void offerHeartbeat() {
+			if (next.compareAndSet(null, HEARTBEAT)) {
+				startDrain();
+			}
+		}
+
+		private void startDrain() {
+			if (sending.compareAndSet(false, true)) {
+				senders.execute(this::drain);
+			}
+		}
+
+		private void drain() {
+			try {
+				Set<DataWithMediaType> frame;
+				while ((frame = next.getAndSet(null)) != null) {
+					emitter.send(frame);
+				}
+			} catch (IOException | IllegalStateException e) {
+				// Client disconnected or emitter already completed; after an IOException the
+				// container completes the request itself
+				unsubscribe(this);
+				return;
+			} finally {
+				sending.set(false);
+			}
+			// A frame offered between the last poll of next and clearing the flag
+			if (next.get() != null && sending.compareAndSet(false, true)) {
+				senders.execute(this::drain);
+			}
+		}
+	}
+}
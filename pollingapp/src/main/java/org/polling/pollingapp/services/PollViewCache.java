@@ -0,0 +1,149 @@
+package org.polling.pollingapp.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.polling.pollingapp.config.AfterCommit;
+import org.polling.pollingapp.config.BoundedEviction;
+import org.polling.pollingapp.request.PollView;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+// Bounded in-process read-through cache of single-poll read models (GET /api/polls/{id}), kept
+// together with their serialized JSON and its ETag so unchanged polls skip the database and Jackson.
+// Entries expire polls.cache.expire-after-write-ms after they were loaded, and once there are more
+// than polls.cache.max-size of them the least recently read tenth is evicted (0 disables the cache).
+// Each entry holds a future, so concurrent misses for one poll wait for a single database load.
+// Writes invalidate the poll after their transaction commits; other nodes only see the change
+// once their own entry expires.
+@Component
+public class PollViewCache {
+
+	private final JsonMapper jsonMapper;
+	private final int maxSize;
+	private final long expireAfterWriteNanos;
+
+	private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+	// Evicts the least recently read entries; loads still in flight are kept
+	private final BoundedEviction<Long, Entry> eviction;
+
+	private final Counter hitCounter;
+	private final Counter missCounter;
+	private final Counter sizeEvictionCounter;
+	private final Counter expiredEvictionCounter;
+	private final Timer loadTimer;
+
+	public PollViewCache(MeterRegistry meterRegistry, JsonMapper jsonMapper,
+			@Value("${polls.cache.max-size:10000}") int maxSize,
+			@Value("${polls.cache.expire-after-write-ms:30000}") long expireAfterWriteMs) {
+		this.jsonMapper = jsonMapper;
+		this.maxSize = maxSize;
+		this.expireAfterWriteNanos = expireAfterWriteMs * 1_000_000;
+		this.eviction = new BoundedEviction<>(entries, maxSize, entry -> entry.readAt, entry -> entry.value.isDone());
+
+		hitCounter = meterRegistry.counter("polls.cache.gets", "result", "hit");
+		missCounter = meterRegistry.counter("polls.cache.gets", "result", "miss");
+		sizeEvictionCounter = meterRegistry.counter("polls.cache.evictions", "cause", "size");
+		expiredEvictionCounter = meterRegistry.counter("polls.cache.evictions", "cause", "expired");
+		loadTimer = Timer.builder("polls.cache.load").publishPercentiles(0.5, 0.99).register(meterRegistry);
+		Gauge.builder("polls.cache.size", entries, Map::size).register(meterRegistry);
+	}
+
+	// A poll's read model, its JSON as the endpoint returns it, and a strong ETag derived from
+	// that JSON (the same content gives the same ETag on every node). The bytes are shared; never modify them.
+	public record CachedView(PollView view, byte[] json, String etag) {
+	}
+
+	// One cached poll; the future completes when its load does
+	private static final class Entry {
+		private final CompletableFuture<Optional<CachedView>> value = new CompletableFuture<>();
+		private final long loadedAt;
+		private volatile long readAt;
+
+		private Entry(long now) {
+			this.loadedAt = now;
+			this.readAt = now;
+		}
+	}
+
+	// Return the cached view of a poll, or load and serialize it with loader on a miss.
+	// Absent polls are not cached.
+	public Optional<CachedView> get(Long pollId, Function<Long, Optional<PollView>> loader) {
+		if (maxSize <= 0) {
+			return loader.apply(pollId).map(this::serialize);
+		}
+
+		long now = System.nanoTime();
+		Entry entry = entries.get(pollId);
+		if (entry != null && now - entry.loadedAt > expireAfterWriteNanos) {
+			if (entries.remove(pollId, entry)) {
+				expiredEvictionCounter.increment();
+			}
+			entry = null;
+		}
+		if (entry == null) {
+			Entry loading = new Entry(now);
+			entry = entries.putIfAbsent(pollId, loading);
+			if (entry == null) {
+				missCounter.increment();
+				return load(pollId, loading, loader);
+			}
+		}
+
+		// Cached, or being loaded by another thread
+		hitCounter.increment();
+		entry.readAt = now;
+		try {
+			return entry.value.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			throw e;
+		}
+	}
+
+	// Drop a poll once the current transaction commits (right away outside of one), so the next
+	// read loads what was committed. A load racing with the write loses its entry here as well.
+	public void invalidate(Long pollId) {
+		if (maxSize <= 0) {
+			return;
+		}
+		AfterCommit.run(() -> entries.remove(pollId));
+	}
+
+	private Optional<CachedView> load(Long pollId, Entry entry, Function<Long, Optional<PollView>> loader) {
+		Timer.Sample sample = Timer.start();
+		try {
+			Optional<CachedView> view = loader.apply(pollId).map(this::serialize);
+			entry.value.complete(view);
+			if (view.isEmpty()) {
+				entries.remove(pollId, entry);
+			} else {
+				sizeEvictionCounter.increment(eviction.evictIfFull());
+			}
+			return view;
+		} catch (RuntimeException e) {
+			entries.remove(pollId, entry);
+			entry.value.completeExceptionally(e);
+			throw e;
+		} finally {
+			sample.stop(loadTimer);
+		}
+	}
+
+	private CachedView serialize(PollView view) {
+		byte[] json = jsonMapper.writeValueAsBytes(view);
+		return new CachedView(view, json, "\"" + DigestUtils.md5DigestAsHex(json) + "\"");
+	}
+}
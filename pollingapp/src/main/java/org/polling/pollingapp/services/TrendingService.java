@@ -0,0 +1,154 @@
+package org.polling.pollingapp.services;
+
+import org.polling.pollingapp.config.AfterCommit;
+import org.polling.pollingapp.repositories.VoteRecordBatchRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+// In-memory "trending" ranking: every vote adds to its poll's score, and a vote's weight halves
+// every polls.trending.half-life-minutes. Scores use forward decay: a vote at time t adds
+// e^((t - landmark) / tau) instead of shrinking every existing score as time passes, so the order
+// never has to be recomputed. They are kept as logarithms, which never overflow.
+// Polls are kept in a concurrent skip list ordered by score, so the top N is read in O(N).
+// Only the polls.trending.max-tracked best are tracked; at startup the ranking is rebuilt from the
+// votes cast within polls.trending.rebuild-window-hours (first votes only, as votes.voted_at is
+// not changed when a vote moves).
+@Service
+public class TrendingService {
+
+	private static final Logger log = LoggerFactory.getLogger(TrendingService.class);
+
+	private static final Comparator<Rank> HIGHEST_FIRST = Comparator.comparingDouble(Rank::logScore).reversed()
+			.thenComparing(Rank::pollId);
+
+	private final VoteRecordBatchRepository voteRecordBatchRepository;
+	private final double tauMillis;
+	private final long rebuildWindowHours;
+	private final int maxTracked;
+	private final long landmarkMillis = System.currentTimeMillis();
+
+	private final Map<Long, Rank> ranks = new ConcurrentHashMap<>();
+	private final ConcurrentSkipListSet<Rank> ranking = new ConcurrentSkipListSet<>(HIGHEST_FIRST);
+	private final ReentrantLock trimLock = new ReentrantLock();
+
+	public TrendingService(VoteRecordBatchRepository voteRecordBatchRepository,
+			@Value("${polls.trending.half-life-minutes:60}") double halfLifeMinutes,
+			@Value("${polls.trending.rebuild-window-hours:24}") long rebuildWindowHours,
+			@Value("${polls.trending.max-tracked:10000}") int maxTracked) {
+		this.voteRecordBatchRepository = voteRecordBatchRepository;
+		this.tauMillis = halfLifeMinutes * 60_000 / Math.log(2);
+		this.rebuildWindowHours = rebuildWindowHours;
+		this.maxTracked = maxTracked;
+	}
+
+	// A poll's score as ln(sum of e^((voteTime - landmark) / tau))
+	private record Rank(Long pollId, double logScore) {
+	}
+
+	// A poll and its current score: its votes, each weighted by how recent it is
+	public record Ranked(Long pollId, double score) {
+	}
+
+	// Count a vote on a poll, once the current transaction commits
+	public void recordVote(Long pollId) {
+		recordVotes(List.of(pollId));
+	}
+
+	public void recordVotes(List<Long> pollIds) {
+		AfterCommit.run(() -> {
+			long now = System.currentTimeMillis();
+			pollIds.forEach(pollId -> add(pollId, now));
+		});
+	}
+
+	public void remove(Long pollId) {
+		ranks.computeIfPresent(pollId, (id, rank) -> {
+			ranking.remove(rank);
+			return null;
+		});
+	}
+
+	// The limit highest ranked polls, best first
+	public List<Ranked> top(int limit) {
+		double nowExponent = (System.currentTimeMillis() - landmarkMillis) / tauMillis;
+		List<Ranked> top = new ArrayList<>(limit);
+		// A poll being re-ranked can briefly appear twice
+		Set<Long> seen = new HashSet<>();
+		for (Rank rank : ranking) {
+			if (top.size() >= limit) {
+				break;
+			}
+			if (seen.add(rank.pollId())) {
+				top.add(new Ranked(rank.pollId(), Math.exp(rank.logScore() - nowExponent)));
+			}
+		}
+		return top;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void rebuild() {
+		LocalDateTime since = LocalDateTime.now().minusHours(rebuildWindowHours);
+		ZoneId zone = ZoneId.systemDefault();
+		int[] votes = new int[1];
+		voteRecordBatchRepository.forEachVoteSince(since, (pollId, votedAt) -> {
+			add(pollId, votedAt.atZone(zone).toInstant().toEpochMilli());
+			votes[0]++;
+		});
+		log.info("Rebuilt trending ranking from {} votes of the last {} hours", votes[0], rebuildWindowHours);
+	}
+
+	private void add(Long pollId, long timeMillis) {
+		double exponent = (timeMillis - landmarkMillis) / tauMillis;
+		ranks.compute(pollId, (id, old) -> {
+			Rank rank = new Rank(id, old == null ? exponent : logAddExp(old.logScore(), exponent));
+			if (old != null) {
+				ranking.remove(old);
+			}
+			ranking.add(rank);
+			return rank;
+		});
+		if (ranks.size() > maxTracked) {
+			trim();
+		}
+	}
+
+	// Drop the lowest ranked polls until maxTracked are left
+	private void trim() {
+		if (!trimLock.tryLock()) {
+			return;
+		}
+		try {
+			while (ranks.size() > maxTracked) {
+				Rank lowest = ranking.pollLast();
+				if (lowest == null) {
+					return;
+				}
+				ranks.remove(lowest.pollId(), lowest);
+			}
+		} finally {
+			trimLock.unlock();
+		}
+	}
+
+	// ln(e^a + e^b) without leaving the log domain
+	private static double logAddExp(double a, double b) {
+		double max = Math.max(a, b);
+		return max + Math.log1p(Math.exp(Math.min(a, b) - max));
+	}
+}
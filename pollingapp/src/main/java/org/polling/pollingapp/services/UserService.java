@@ -1,17 +1,30 @@
 package org.polling.pollingapp.services;
 
 import org.polling.pollingapp.model.User;
+import org.polling.pollingapp.repositories.LegacyAvatarRepository;
 import org.polling.pollingapp.repositories.UserRepository;
 import org.polling.pollingapp.request.UpdateProfileRequest;
+import org.polling.pollingapp.security.AuthUser;
+import org.polling.pollingapp.security.PrincipalCache;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
 
 @Service
 public class UserService {
 
 	private final UserRepository userRepository;
+	private final PrincipalCache principalCache;
+	private final AvatarStore avatarStore;
+	private final LegacyAvatarRepository legacyAvatarRepository;
 
-	public UserService(UserRepository userRepository) {
+	public UserService(UserRepository userRepository, PrincipalCache principalCache, AvatarStore avatarStore,
+			LegacyAvatarRepository legacyAvatarRepository) {
 		this.userRepository = userRepository;
+		this.principalCache = principalCache;
+		this.avatarStore = avatarStore;
+		this.legacyAvatarRepository = legacyAvatarRepository;
 	}
 
 	public User getUserById(Long id) {
@@ -19,7 +32,12 @@ public class UserService {
 	}
 
 	// Update profile fields — only non-null, non-blank values are applied.
-	public User updateProfile(User currentUser, UpdateProfileRequest request) {
+	// The user is loaded and changed inside the transaction, so with @DynamicUpdate the UPDATE only
+	// writes the columns that actually changed.
+	@Transactional
+	public User updateProfile(AuthUser principal, UpdateProfileRequest request) {
+		User currentUser = getUserById(principal.id());
+
 		if (hasText(request.getUsername())) {
 			if (userRepository.existsByUsername(request.getUsername())
 					&& !currentUser.getUsername().equals(request.getUsername())) {
@@ -33,7 +51,14 @@ public class UserService {
 		}
 
 		if (hasText(request.getAvatarUrl())) {
-			currentUser.setAvatarUrl(request.getAvatarUrl());
+			// A new image arrives as a data URL; the avatar URL handed out by getAvatarUrl is sent back
+			// unchanged when the picture was not edited
+			if (request.getAvatarUrl().startsWith("data:")) {
+				currentUser.setAvatarHash(avatarStore.storeDataUrl(request.getAvatarUrl()));
+				legacyAvatarRepository.clearById(currentUser.getId());
+			} else if (!request.getAvatarUrl().equals(getAvatarUrl(currentUser))) {
+				throw new IllegalArgumentException("Avatar must be an uploaded image!");
+			}
 		}
 
 		if (hasText(request.getFirstName())) {
@@ -64,7 +89,25 @@ public class UserService {
 			currentUser.setDateOfBirth(request.getDateOfBirth());
 		}
 
-		return userRepository.save(currentUser);
+		User saved = userRepository.save(currentUser);
+		// Later requests must authenticate as the updated user (evicted once this commits)
+		principalCache.evict(saved.getId());
+		return saved;
+	}
+
+	// Where the user's avatar is served, or null without one. The hash in ?v= changes with the
+	// image, so the response can be cached for good. Avatars from before the avatar store are
+	// handed out as they were stored; only users without a stored avatar cost a query for them.
+	public String getAvatarUrl(User user) {
+		if (user.getAvatarHash() == null) {
+			return legacyAvatarRepository.findAvatarUrlById(user.getId()).orElse(null);
+		}
+		return "/api/users/" + user.getId() + "/avatar?v=" + user.getAvatarHash();
+	}
+
+	// The avatar file of a user (or its thumbnail), empty if the user has none
+	public Optional<AvatarStore.Blob> findAvatar(Long userId, boolean thumbnail) {
+		return userRepository.findAvatarHashById(userId).flatMap(hash -> avatarStore.find(hash, thumbnail));
 	}
 
 	/**
@@ -0,0 +1,5 @@
+package org.polling.pollingapp.services;
+
+// One user's vote waiting to be applied, independent of the HTTP request that carried it
+public record VoteCommand(Long pollId, int optionIndex, Long userId) {
+}
@@ -0,0 +1,63 @@
+package org.polling.pollingapp.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// Retries vote transactions that lost an optimistic-locking race (polls.votes.commit-mode=optimistic).
+// Each retry waits a random time up to an exponentially growing cap ("full jitter"), so voters
+// that collided on the same poll do not collide again in lockstep.
+// Conflicts and retries are counted per poll; only polls that actually see conflicts get a series.
+@Component
+public class VoteConflictRetrier {
+
+	private final MeterRegistry meterRegistry;
+	private final int maxAttempts;
+	private final long backoffMs;
+	private final long maxBackoffMs;
+	private final Counter exhaustedCounter;
+
+	public VoteConflictRetrier(MeterRegistry meterRegistry,
+			@Value("${polls.votes.optimistic.max-attempts:5}") int maxAttempts,
+			@Value("${polls.votes.optimistic.backoff-ms:5}") long backoffMs,
+			@Value("${polls.votes.optimistic.max-backoff-ms:100}") long maxBackoffMs) {
+		this.meterRegistry = meterRegistry;
+		this.maxAttempts = maxAttempts;
+		this.backoffMs = backoffMs;
+		this.maxBackoffMs = maxBackoffMs;
+		this.exhaustedCounter = meterRegistry.counter("polls.votes.commit.exhausted");
+	}
+
+	// Run one attempt per call of action until it commits without a conflict or the attempts
+	// run out, in which case the last conflict is rethrown
+	public void run(Long pollId, Runnable action) {
+		for (int attempt = 1;; attempt++) {
+			try {
+				action.run();
+				return;
+			} catch (OptimisticLockingFailureException e) {
+				meterRegistry.counter("polls.votes.commit.conflicts", "poll", String.valueOf(pollId)).increment();
+				if (attempt >= maxAttempts) {
+					exhaustedCounter.increment();
+					throw e;
+				}
+				meterRegistry.counter("polls.votes.commit.retries", "poll", String.valueOf(pollId)).increment();
+				backOff(attempt, e);
+			}
+		}
+	}
+
+	private void backOff(int attempt, OptimisticLockingFailureException conflict) {
+		long cap = Math.min(maxBackoffMs, backoffMs << Math.min(attempt - 1, 20));
+		try {
+			Thread.sleep(ThreadLocalRandom.current().nextLong(cap + 1));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw conflict;
+		}
+	}
+}
@@ -0,0 +1,186 @@
+package org.polling.pollingapp.services;
+
+import org.polling.pollingapp.model.OptionVote;
+import org.polling.pollingapp.repositories.PollRepository;
+import org.polling.pollingapp.repositories.VoteEventRepository;
+import org.polling.pollingapp.repositories.VoteEventRepository.SnapshotRow;
+import org.polling.pollingapp.repositories.VoteEventRepository.StoredEvent;
+import org.polling.pollingapp.request.PollResults;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Reads and compacts the vote event log.
+// The compaction job folds new events into per-poll tally snapshots, starting from each poll's
+// previous snapshot and a stored checkpoint, so every event is read once. Historical results
+// start from the newest snapshot taken before the requested time and replay only the events
+// after it. Snapshots are thinned out as new ones are written: apart from the newest, a poll keeps
+// one at most every snapshot-interval-ms, so a historical read replays at most that much of the
+// log and the snapshot table grows with time rather than with every compaction run.
+// The checkpoint only advances over consecutive event ids. A missing id may belong to a vote that
+// is still committing, so folding stops there until the id shows up or has been missing for
+// gap-timeout-ms (a rolled back vote or a deleted poll), which is measured on this instance and
+// does not depend on the clocks that wrote created_at.
+@Service
+public class VoteEventService {
+
+	private static final Logger log = LoggerFactory.getLogger(VoteEventService.class);
+
+	static final String CHECKPOINT = "tally-snapshots";
+
+	private final VoteEventRepository voteEventRepository;
+	private final PollRepository pollRepository;
+	private final TransactionTemplate transactionTemplate;
+	private final int batchSize;
+	private final long gapTimeoutNanos;
+	private final long snapshotIntervalMs;
+
+	// First missing id of each gap seen after the checkpoint -> System.nanoTime() it was first seen
+	private final Map<Long, Long> gapsSeenAt = new ConcurrentHashMap<>();
+
+	public VoteEventService(VoteEventRepository voteEventRepository, PollRepository pollRepository,
+			PlatformTransactionManager transactionManager,
+			@Value("${polls.votes.events.compaction.batch-size:10000}") int batchSize,
+			@Value("${polls.votes.events.compaction.gap-timeout-ms:60000}") long gapTimeoutMs,
+			@Value("${polls.votes.events.compaction.snapshot-interval-ms:3600000}") long snapshotIntervalMs) {
+		this.voteEventRepository = voteEventRepository;
+		this.pollRepository = pollRepository;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.batchSize = batchSize;
+		this.gapTimeoutNanos = gapTimeoutMs * 1_000_000;
+		this.snapshotIntervalMs = snapshotIntervalMs;
+	}
+
+	// Tallies of a poll as they were at asOf; empty if the poll does not exist
+	@Transactional(readOnly = true)
+	public Optional<PollResults> getResultsAsOf(Long pollId, LocalDateTime asOf) {
+		return pollRepository.findById(pollId).map(poll -> {
+			Map<Integer, Long> counts = new HashMap<>();
+			long afterEventId = 0;
+			for (SnapshotRow row : voteEventRepository.findSnapshotAsOf(pollId, asOf)) {
+				counts.put(row.optionIndex(), row.voteCount());
+				afterEventId = row.lastEventId();
+			}
+			voteEventRepository.findForPoll(pollId, afterEventId, asOf).forEach(event -> fold(counts, event));
+
+			List<OptionVote> options = new ArrayList<>();
+			for (int i = 0; i < poll.getOptions().size(); i++) {
+				OptionVote option = new OptionVote();
+				option.setOptText(poll.getOptions().get(i).getOptText());
+				option.setVoteCount(counts.getOrDefault(i, 0L));
+				options.add(option);
+			}
+			return new PollResults(pollId, poll.getQuestion(), asOf, options);
+		});
+	}
+
+	// Fold everything that is ready, one batch per transaction
+	@Scheduled(fixedDelayString = "${polls.votes.events.compaction.interval-ms:60000}")
+	public void compact() {
+		int folded;
+		do {
+			folded = compactBatch();
+		} while (folded == batchSize);
+	}
+
+	// Fold the next batch of events into snapshots and advance the checkpoint; returns the
+	// number of events folded
+	int compactBatch() {
+		Integer folded = transactionTemplate.execute(status -> {
+			long checkpoint = voteEventRepository.lockCheckpoint(CHECKPOINT);
+			List<StoredEvent> events = voteEventRepository.findAfter(checkpoint, batchSize);
+			int ready = readyCount(checkpoint, events);
+			if (ready == 0) {
+				return 0;
+			}
+			events = events.subList(0, ready);
+			long lastEventId = events.get(ready - 1).id();
+
+			Map<Long, Map<Integer, Long>> counts = new HashMap<>();
+			Map<Long, LocalDateTime> asOf = new HashMap<>();
+			Map<Long, SnapshotRow> latest = new HashMap<>();
+			List<Long> pollIds = events.stream().map(StoredEvent::pollId).distinct().toList();
+			for (SnapshotRow row : voteEventRepository.findLatestSnapshots(pollIds)) {
+				counts.computeIfAbsent(row.pollId(), id -> new HashMap<>()).put(row.optionIndex(), row.voteCount());
+				asOf.merge(row.pollId(), row.asOf(), VoteEventService::later);
+				latest.put(row.pollId(), row);
+			}
+			for (StoredEvent event : events) {
+				fold(counts.computeIfAbsent(event.pollId(), id -> new HashMap<>()), event);
+				asOf.merge(event.pollId(), event.createdAt(), VoteEventService::later);
+			}
+
+			List<SnapshotRow> rows = new ArrayList<>();
+			for (Long pollId : pollIds) {
+				counts.get(pollId).forEach((index, count) -> rows
+						.add(new SnapshotRow(pollId, lastEventId, index, count, asOf.get(pollId))));
+			}
+			voteEventRepository.deleteSnapshots(superseded(latest));
+			voteEventRepository.insertSnapshots(rows);
+			voteEventRepository.updateCheckpoint(CHECKPOINT, lastEventId);
+			return ready;
+		});
+		return folded != null ? folded : 0;
+	}
+
+	// Number of leading events that can be folded: up to the first gap in the ids after the
+	// checkpoint that has not been missing for gap-timeout-ms yet. All gaps in the batch start
+	// their timeout now, so several of them are waited for at once.
+	private int readyCount(long checkpoint, List<StoredEvent> events) {
+		gapsSeenAt.keySet().removeIf(id -> id <= checkpoint);
+		long now = System.nanoTime();
+		long expected = checkpoint + 1;
+		int ready = -1;
+		for (int i = 0; i < events.size(); i++) {
+			long id = events.get(i).id();
+			if (id != expected) {
+				long seenAt = gapsSeenAt.computeIfAbsent(expected, missing -> now);
+				if (ready < 0 && now - seenAt < gapTimeoutNanos) {
+					ready = i;
+				} else if (ready < 0) {
+					log.warn("Vote event ids {}..{} missing for {} ms, compacting past them", expected, id - 1,
+							(now - seenAt) / 1_000_000);
+				}
+			}
+			expected = id + 1;
+		}
+		return ready < 0 ? events.size() : ready;
+	}
+
+	// The current newest snapshots that the ones being written replace: those taken less than
+	// snapshot-interval-ms after the snapshot kept before them. A poll's first snapshot stays.
+	private Map<Long, Long> superseded(Map<Long, SnapshotRow> latest) {
+		Map<Long, Long> superseded = new HashMap<>();
+		voteEventRepository.findPreviousSnapshotTimes(latest.keySet()).forEach((pollId, previousAsOf) -> {
+			SnapshotRow newest = latest.get(pollId);
+			if (newest.asOf().isBefore(previousAsOf.plusNanos(snapshotIntervalMs * 1_000_000))) {
+				superseded.put(pollId, newest.lastEventId());
+			}
+		});
+		return superseded;
+	}
+
+	private static void fold(Map<Integer, Long> counts, StoredEvent event) {
+		if (event.oldOptionIndex() != null) {
+			counts.merge(event.oldOptionIndex(), -1L, Long::sum);
+		}
+		counts.merge(event.newOptionIndex(), 1L, Long::sum);
+	}
+
+	private static LocalDateTime later(LocalDateTime a, LocalDateTime b) {
+		return a.isAfter(b) ? a : b;
+	}
+}
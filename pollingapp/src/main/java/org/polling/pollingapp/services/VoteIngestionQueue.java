@@ -0,0 +1,191 @@
+package org.polling.pollingapp.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.polling.pollingapp.security.AuthUser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Asynchronous vote ingestion (opt-in via polls.votes.async.enabled).
+// POST /api/polls/vote only validates the vote and puts it on a bounded queue, so request
+// threads and pooled connections are not held while tallies are written. Votes are
+// partitioned by poll id; each partition has a single consumer thread that drains up to
+// max-batch-size votes at a time and applies them in order with PollService.applyVotes.
+// A batch that keeps failing is split in halves until the votes that fail on their own are
+// found; only those are dropped (and counted), the rest of the batch is still applied.
+// When a partition is full, submit() returns false and the caller is asked to retry later.
+@Component
+public class VoteIngestionQueue {
+
+	private static final Logger log = LoggerFactory.getLogger(VoteIngestionQueue.class);
+
+	private static final int MAX_APPLY_ATTEMPTS = 3;
+
+	private final PollService pollService;
+	private final MeterRegistry meterRegistry;
+	private final boolean enabled;
+	private final int maxBatchSize;
+	private final long retryAfterSeconds;
+	private final List<BlockingQueue<VoteCommand>> partitions = new ArrayList<>();
+	private final List<Thread> consumers = new ArrayList<>();
+
+	private final Counter acceptedCounter;
+	private final Counter rejectedCounter;
+	private final Counter failedCounter;
+	private final DistributionSummary batchSizeSummary;
+	private final Timer applyTimer;
+
+	private volatile boolean running;
+
+	public VoteIngestionQueue(PollService pollService, MeterRegistry meterRegistry,
+			@Value("${polls.votes.async.enabled:false}") boolean enabled,
+			@Value("${polls.votes.async.partitions:4}") int partitionCount,
+			@Value("${polls.votes.async.queue-capacity:10000}") int queueCapacity,
+			@Value("${polls.votes.async.max-batch-size:500}") int maxBatchSize,
+			@Value("${polls.votes.async.retry-after-seconds:1}") long retryAfterSeconds) {
+		this.pollService = pollService;
+		this.meterRegistry = meterRegistry;
+		this.enabled = enabled;
+		this.maxBatchSize = maxBatchSize;
+		this.retryAfterSeconds = retryAfterSeconds;
+
+		for (int i = 0; i < partitionCount; i++) {
+			partitions.add(new ArrayBlockingQueue<>(queueCapacity));
+		}
+
+		acceptedCounter = meterRegistry.counter("polls.votes.ingest.accepted");
+		rejectedCounter = meterRegistry.counter("polls.votes.ingest.rejected");
+		failedCounter = meterRegistry.counter("polls.votes.ingest.failed");
+		batchSizeSummary = DistributionSummary.builder("polls.votes.ingest.batch.size").baseUnit("votes")
+				.register(meterRegistry);
+		applyTimer = Timer.builder("polls.votes.ingest.apply").publishPercentiles(0.5, 0.99).register(meterRegistry);
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public long getRetryAfterSeconds() {
+		return retryAfterSeconds;
+	}
+
+	@PostConstruct
+	public void start() {
+		if (!enabled) {
+			return;
+		}
+
+		running = true;
+		for (int i = 0; i < partitions.size(); i++) {
+			BlockingQueue<VoteCommand> queue = partitions.get(i);
+			Gauge.builder("polls.votes.ingest.queue.depth", queue, BlockingQueue::size)
+					.tag("partition", String.valueOf(i)).register(meterRegistry);
+			consumers.add(Thread.ofPlatform().name("vote-ingest-" + i).daemon().start(() -> consume(queue)));
+		}
+	}
+
+	// Stop accepting votes, let the consumers drain what is queued, then wait for them
+	@PreDestroy
+	public void stop() throws InterruptedException {
+		running = false;
+		for (Thread consumer : consumers) {
+			consumer.join(TimeUnit.SECONDS.toMillis(30));
+		}
+	}
+
+	// Validate a vote and queue it. Invalid votes throw like doVote does; returns false when
+	// the poll's partition is full (or the pipeline is shutting down) and the vote was not taken.
+	public boolean submit(Long pollId, int optionIndex, AuthUser user) {
+		pollService.validateVote(pollId, optionIndex);
+
+		if (!running || !partitionFor(pollId).offer(new VoteCommand(pollId, optionIndex, user.id()))) {
+			rejectedCounter.increment();
+			return false;
+		}
+		acceptedCounter.increment();
+		return true;
+	}
+
+	int queuedVotes() {
+		return partitions.stream().mapToInt(BlockingQueue::size).sum();
+	}
+
+	private BlockingQueue<VoteCommand> partitionFor(Long pollId) {
+		return partitions.get(Math.floorMod(pollId.hashCode(), partitions.size()));
+	}
+
+	private void consume(BlockingQueue<VoteCommand> queue) {
+		while (running || !queue.isEmpty()) {
+			try {
+				VoteCommand first = queue.poll(100, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+				List<VoteCommand> batch = new ArrayList<>(Math.min(queue.size() + 1, maxBatchSize));
+				batch.add(first);
+				queue.drainTo(batch, maxBatchSize - 1);
+				apply(batch);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	private void apply(List<VoteCommand> batch) throws InterruptedException {
+		batchSizeSummary.record(batch.size());
+		for (int attempt = 1; attempt <= MAX_APPLY_ATTEMPTS; attempt++) {
+			try {
+				applyBatch(batch);
+				return;
+			} catch (RuntimeException e) {
+				if (attempt == MAX_APPLY_ATTEMPTS) {
+					log.error("Failed to apply {} queued votes after {} attempts, isolating the failing votes",
+							batch.size(), attempt, e);
+					applyIsolating(batch, e);
+					return;
+				}
+				log.warn("Failed to apply {} queued votes (attempt {}), retrying", batch.size(), attempt, e);
+				Thread.sleep(100L * attempt);
+			}
+		}
+	}
+
+	// Apply a failed batch in halves, in order, splitting every half that fails again. A vote
+	// that fails on its own is dropped, so one bad vote costs about 2 * log2(batch size) attempts
+	// instead of the whole batch.
+	private void applyIsolating(List<VoteCommand> batch, RuntimeException failure) {
+		if (batch.size() == 1) {
+			log.error("Dropping queued vote {}: {}", batch.get(0), failure.toString());
+			failedCounter.increment();
+			return;
+		}
+		int middle = batch.size() / 2;
+		for (List<VoteCommand> half : List.of(batch.subList(0, middle), batch.subList(middle, batch.size()))) {
+			try {
+				applyBatch(half);
+			} catch (RuntimeException e) {
+				applyIsolating(half, e);
+			}
+		}
+	}
+
+	private void applyBatch(List<VoteCommand> batch) {
+		applyTimer.record(() -> {
+			pollService.applyVotes(List.copyOf(batch));
+		});
+	}
+}
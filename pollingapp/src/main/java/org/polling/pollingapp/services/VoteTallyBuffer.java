@@ -0,0 +1,214 @@
+package org.polling.pollingapp.services;
+
+import jakarta.annotation.PreDestroy;
+import org.polling.pollingapp.config.AfterCommit;
+import org.polling.pollingapp.model.OptionVote;
+import org.polling.pollingapp.model.Poll;
+import org.polling.pollingapp.repositories.OptionTallyRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Write-behind aggregation of vote tallies (opt-in via polls.votes.write-behind.enabled).
+// Instead of rewriting the poll on every vote, doVote adds +1/-1 deltas to in-memory counters
+// keyed by poll and option index. A scheduled job folds them into poll_options as one batch of
+// in-place row updates, and whatever is left is flushed on shutdown.
+// Each option has its own LongAdder, so concurrent votes on a hot poll do not contend on a lock.
+// A flush reads the counters and, once the batch has committed, subtracts what it wrote: a delta
+// stays visible to reads until it is in the database and votes arriving meanwhile are never lost.
+@Component
+public class VoteTallyBuffer {
+
+	private static final Logger log = LoggerFactory.getLogger(VoteTallyBuffer.class);
+
+	private final OptionTallyRepository optionTallyRepository;
+	private final TransactionTemplate transactionTemplate;
+	private final boolean enabled;
+
+	// pollId -> deltas not yet written to the database; a flush forgets polls whose deltas are zero
+	private final Map<Long, Tally> pending = new ConcurrentHashMap<>();
+
+	private final ReentrantLock flushLock = new ReentrantLock();
+
+	public VoteTallyBuffer(OptionTallyRepository optionTallyRepository, PlatformTransactionManager transactionManager,
+			@Value("${polls.votes.write-behind.enabled:false}") boolean enabled) {
+		this.optionTallyRepository = optionTallyRepository;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.enabled = enabled;
+	}
+
+	// Delta counters of one poll by option index. A flush retires a tally before dropping it from
+	// pending; a vote that finds its tally retired takes its delta back and retries on a new one.
+	private static final class Tally {
+		private final Map<Integer, LongAdder> options = new ConcurrentHashMap<>();
+		private volatile boolean retired;
+
+		// Non-zero deltas by option index
+		private Map<Integer, Long> sums() {
+			Map<Integer, Long> sums = new HashMap<>();
+			options.forEach((index, adder) -> {
+				long sum = adder.sum();
+				if (sum != 0) {
+					sums.put(index, sum);
+				}
+			});
+			return sums;
+		}
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	// Record a vote moving from oldIndex (null for a first vote) to newIndex.
+	// Inside a transaction the deltas are only buffered once it commits, so a rolled back
+	// VoteRecord never leaves a counted vote behind.
+	public void recordVote(Long pollId, Integer oldIndex, int newIndex) {
+		AfterCommit.run(() -> {
+			if (oldIndex != null) {
+				add(pollId, oldIndex, -1);
+			}
+			add(pollId, newIndex, 1);
+		});
+	}
+
+	// Record already aggregated tally changes, e.g. from a batch submission
+	public void recordDeltas(List<OptionTallyRepository.Delta> deltas) {
+		AfterCommit.run(() -> deltas.forEach(d -> add(d.pollId(), d.optionIndex(), d.delta())));
+	}
+
+	// Add unflushed deltas to the option counts of a poll that was just read from the database
+	public void mergeInto(Poll poll) {
+		Map<Integer, Long> deltas = pendingDeltas(poll.getId());
+		List<OptionVote> options = poll.getOptions();
+		deltas.forEach((index, delta) -> {
+			if (index < options.size()) {
+				OptionVote option = options.get(index);
+				option.setVoteCount(option.getVoteCount() + delta);
+			}
+		});
+	}
+
+	// Unflushed deltas of a poll (including any being written right now) by option index; empty if
+	// there are none
+	public Map<Integer, Long> pendingDeltas(Long pollId) {
+		Tally tally = pending.get(pollId);
+		Map<Integer, Long> deltas = tally != null ? tally.sums() : Map.of();
+		return deltas.isEmpty() ? Map.of() : deltas;
+	}
+
+	// Drop the buffered deltas of a poll whose options are being replaced or deleted. Inside a
+	// transaction they are dropped once it commits, and no flush runs until it has finished, so a
+	// batch written meanwhile cannot land the old deltas on the new options. Call it before the
+	// transaction locks any poll rows: a flush holds the lock while it writes to them.
+	public void discard(Long pollId) {
+		if (!enabled) {
+			return;
+		}
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			pending.remove(pollId);
+			return;
+		}
+		flushLock.lock();
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				pending.remove(pollId);
+			}
+
+			@Override
+			public void afterCompletion(int status) {
+				flushLock.unlock();
+			}
+		});
+	}
+
+	@Scheduled(fixedDelayString = "${polls.votes.write-behind.flush-interval-ms:500}")
+	public void flush() {
+		if (!enabled) {
+			return;
+		}
+
+		flushLock.lock();
+		try {
+			Map<Tally, Map<Integer, Long>> drained = new HashMap<>();
+			List<OptionTallyRepository.Delta> batch = new ArrayList<>();
+			pending.forEach((pollId, tally) -> {
+				Map<Integer, Long> deltas = tally.sums();
+				if (deltas.isEmpty()) {
+					retireIfIdle(pollId, tally);
+					return;
+				}
+				drained.put(tally, deltas);
+				deltas.forEach((index, delta) -> batch.add(new OptionTallyRepository.Delta(pollId, index, delta)));
+			});
+			if (!batch.isEmpty()) {
+				write(drained, batch);
+			}
+		} finally {
+			flushLock.unlock();
+		}
+	}
+
+	@PreDestroy
+	public void flushOnShutdown() {
+		flush();
+	}
+
+	// Written deltas leave the counters; after a failure they stay for the next flush to retry
+	private void write(Map<Tally, Map<Integer, Long>> drained, List<OptionTallyRepository.Delta> batch) {
+		try {
+			transactionTemplate.executeWithoutResult(status -> optionTallyRepository.applyDeltas(batch));
+		} catch (RuntimeException e) {
+			log.warn("Failed to flush vote deltas for {} polls, will retry", drained.size(), e);
+			return;
+		}
+		drained.forEach((tally, deltas) -> deltas.forEach((index, delta) -> tally.options.get(index).add(-delta)));
+	}
+
+	// Drop a poll whose deltas are all zero. The tally is marked retired before its counters are
+	// checked, and a vote checks the mark after counting: either the check sees the vote, or the
+	// vote sees the mark and moves to a new tally.
+	private void retireIfIdle(Long pollId, Tally tally) {
+		tally.retired = true;
+		if (tally.sums().isEmpty()) {
+			pending.remove(pollId, tally);
+		} else {
+			tally.retired = false;
+		}
+	}
+
+	private void add(Long pollId, int optionIndex, long delta) {
+		if (delta == 0) {
+			return;
+		}
+		while (true) {
+			Tally tally = pending.computeIfAbsent(pollId, id -> new Tally());
+			LongAdder adder = tally.options.computeIfAbsent(optionIndex, index -> new LongAdder());
+			adder.add(delta);
+			if (!tally.retired) {
+				return;
+			}
+			adder.add(-delta);
+		}
+	}
+
+	// Number of polls with pending deltas
+	int bufferedPolls() {
+		return pending.size();
+	}
+}
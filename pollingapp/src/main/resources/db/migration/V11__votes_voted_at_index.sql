@@ -0,0 +1,4 @@
+-- TrendingService rebuilds its ranking on startup from the votes cast in the last rebuild window;
+-- the range scan on voted_at reads poll_id from the index instead of the whole votes table
+
+CREATE INDEX idx_votes_voted_poll ON votes (voted_at, poll_id);
@@ -0,0 +1,5 @@
+-- The vote upsert reads the old choice with a locking read in its own transaction now, so the
+-- copy it kept in previous_option_index (V4) is no longer needed
+
+ALTER TABLE votes
+    DROP COLUMN previous_option_index;
@@ -0,0 +1,30 @@
+-- Give poll_options a real (poll_id, option_index) key so a vote can update one option row
+-- in place instead of Hibernate deleting and re-inserting the whole element collection.
+
+CREATE TABLE poll_options_keyed (
+    poll_id         BIGINT          NOT NULL,
+    option_index    INT             NOT NULL,
+    opt_text        VARCHAR(255),
+    vote_count      BIGINT,
+    PRIMARY KEY (poll_id, option_index)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- The old table has no key. Hibernate rewrote a poll's options in list order on every save and
+-- read them back in insertion order, so the list index is the insertion order. Adding an
+-- AUTO_INCREMENT column numbers the existing rows in that order (InnoDB copies them along its
+-- hidden, insertion-ordered row id); without an ORDER BY, ROW_NUMBER() could number a poll's
+-- options differently and move votes.option_index to other options.
+ALTER TABLE poll_options
+    ADD COLUMN legacy_order BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY;
+
+INSERT INTO poll_options_keyed (poll_id, option_index, opt_text, vote_count)
+SELECT poll_id, ROW_NUMBER() OVER (PARTITION BY poll_id ORDER BY legacy_order) - 1,
+       opt_text, vote_count
+FROM poll_options;
+
+DROP TABLE poll_options;
+
+RENAME TABLE poll_options_keyed TO poll_options;
+
+ALTER TABLE poll_options
+    ADD CONSTRAINT fk_poll_options_poll FOREIGN KEY (poll_id) REFERENCES poll (id);
@@ -0,0 +1,14 @@
+-- Sharded vote tallies for hot polls: with counter_shards > 1, votes add to one of N slot rows
+-- per option instead of the single poll_options row, and reads add the slots to vote_count.
+
+ALTER TABLE poll
+    ADD COLUMN counter_shards INT NOT NULL DEFAULT 1;
+
+CREATE TABLE poll_option_counter_shards (
+    poll_id         BIGINT          NOT NULL,
+    option_index    INT             NOT NULL,
+    shard           INT             NOT NULL,
+    vote_count      BIGINT          NOT NULL,
+    PRIMARY KEY (poll_id, option_index, shard),
+    CONSTRAINT fk_option_counter_shards_poll FOREIGN KEY (poll_id) REFERENCES poll (id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
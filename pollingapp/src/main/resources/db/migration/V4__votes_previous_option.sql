@@ -0,0 +1,5 @@
+-- Lets the single-statement vote upsert remember which option a changed vote came from,
+-- so the follow-up tally UPDATE can move the count without reading the vote back.
+
+ALTER TABLE votes
+    ADD COLUMN previous_option_index INT NULL;
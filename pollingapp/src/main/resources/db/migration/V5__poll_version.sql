@@ -0,0 +1,4 @@
+-- Optimistic-locking version for Poll (used by polls.votes.commit-mode=optimistic)
+
+ALTER TABLE poll
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,35 @@
+-- Append-only vote history, incremental tally snapshots, and the compaction checkpoint
+
+CREATE TABLE vote_events (
+    id                  BIGINT          NOT NULL AUTO_INCREMENT,
+    poll_id             BIGINT          NOT NULL,
+    user_id             BIGINT          NOT NULL,
+    type                VARCHAR(16)     NOT NULL,
+    old_option_index    INT,
+    new_option_index    INT             NOT NULL,
+    created_at          DATETIME(6)     NOT NULL,
+    PRIMARY KEY (id),
+    KEY idx_vote_events_poll (poll_id, id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE TABLE vote_tally_snapshots (
+    poll_id             BIGINT          NOT NULL,
+    last_event_id       BIGINT          NOT NULL,
+    option_index        INT             NOT NULL,
+    vote_count          BIGINT          NOT NULL,
+    as_of               DATETIME(6)     NOT NULL,
+    PRIMARY KEY (poll_id, last_event_id, option_index)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE TABLE vote_event_checkpoints (
+    name                VARCHAR(50)     NOT NULL,
+    last_event_id       BIGINT          NOT NULL,
+    PRIMARY KEY (name)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Votes cast before the log existed become one CAST event each, so replayed results
+-- start from the current choices instead of from zero
+INSERT INTO vote_events (poll_id, user_id, type, old_option_index, new_option_index, created_at)
+SELECT poll_id, user_id, 'CAST', NULL, option_index, COALESCE(voted_at, CURRENT_TIMESTAMP(6))
+FROM votes
+ORDER BY id;
@@ -0,0 +1,10 @@
+-- Keyset pagination of poll listings orders by (created_at, id); every poll needs a created_at
+
+UPDATE poll SET created_at = CURRENT_TIMESTAMP(6) WHERE created_at IS NULL;
+
+ALTER TABLE poll
+    MODIFY created_at DATETIME(6) NOT NULL;
+
+CREATE INDEX idx_poll_created ON poll (created_at, id);
+
+CREATE INDEX idx_poll_owner_created ON poll (owner_id, created_at, id);
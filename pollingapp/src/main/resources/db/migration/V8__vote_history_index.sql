@@ -0,0 +1,8 @@
+-- Vote history pages through a user's votes by (voted_at, id); every vote needs a voted_at
+
+UPDATE votes SET voted_at = CURRENT_TIMESTAMP(6) WHERE voted_at IS NULL;
+
+ALTER TABLE votes
+    MODIFY voted_at DATETIME(6) NOT NULL;
+
+CREATE INDEX idx_votes_user_voted ON votes (user_id, voted_at, id);
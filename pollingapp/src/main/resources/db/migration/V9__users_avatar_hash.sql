@@ -0,0 +1,6 @@
+-- Avatars move from inline data URLs to files in the avatar store, named by their SHA-256;
+-- V10 fills this column and clears avatar_url for the moved rows. avatar_url stays for avatars
+-- that cannot be moved (links), until their users upload an image
+
+ALTER TABLE users
+    ADD COLUMN avatar_hash VARCHAR(64);
@@ -0,0 +1,287 @@
+package org.polling.pollingapp;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+import org.h2.jdbcx.JdbcDataSource;
+import org.polling.pollingapp.model.OptionVote;
+import org.polling.pollingapp.model.Poll;
+import org.polling.pollingapp.security.AuthUser;
+import org.polling.pollingapp.security.JwtUtil;
+import org.polling.pollingapp.services.PollService;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.server.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+// Load test: the same closed-loop traffic against the app with requests on Tomcat's platform thread
+// pool and on virtual threads. Not a test (surefire skips it); run it from the IDE, or like
+// JwtVerificationBenchmark (add -Dclients=, -Dseconds= or -DdbLatencyMs= to change the load).
+// Each of CLIENTS clients loops over GET /api/polls/{id} (80%, mostly served from the poll cache)
+// and POST /api/polls/vote (20%, several statements). The H2 test database answers every statement
+// and commit only after DB_LATENCY_MS, like MySQL across a network, so requests mostly wait on JDBC.
+// Prints throughput, p50/p99 latency per request type, failed requests and, for virtual threads,
+// the jdk.VirtualThreadPinned events JFR saw with the frames that pinned them.
+public final class RequestThreadingBenchmark {
+
+	private static final int CLIENTS = Integer.getInteger("clients", 1000);
+	private static final int WARMUP_SECONDS = 10;
+	private static final int SECONDS = Integer.getInteger("seconds", 20);
+	private static final long DB_LATENCY_MS = Long.getLong("dbLatencyMs", 5);
+	private static final int USERS = CLIENTS;
+	private static final int POLLS = 100;
+	private static final int VOTE_PERCENT = 20;
+
+	private RequestThreadingBenchmark() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		System.out.printf("%d clients, %d s, %d ms per statement, %d%% votes%n", CLIENTS, SECONDS, DB_LATENCY_MS,
+				VOTE_PERCENT);
+		run(false);
+		run(true);
+	}
+
+	private static void run(boolean virtualThreads) throws Exception {
+		String mode = virtualThreads ? "virtual" : "platform";
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(PollingappApplication.class)
+				.profiles("test")
+				.properties("server.port=0", "spring.threads.virtual.enabled=" + virtualThreads,
+						"spring.datasource.url=jdbc:h2:mem:bench-" + mode + ";MODE=MySQL;DB_CLOSE_DELAY=-1",
+						"polls.ratelimit.enabled=false", "logging.level.root=WARN")
+				.initializers(c -> c.getBeanFactory().addBeanPostProcessor(new SimulatedDatabaseLatency()))
+				.run()) {
+			int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+			List<String> tokens = seed(context);
+
+			HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+					.connectTimeout(Duration.ofSeconds(30)).build();
+			String base = "http://localhost:" + port;
+			load(client, base, tokens, WARMUP_SECONDS);
+
+			Path jfr = Files.createTempFile("pinned-", ".jfr");
+			Recording recording = new Recording();
+			recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ofMillis(1)).withStackTrace();
+			recording.start();
+			Result result = load(client, base, tokens, SECONDS);
+			recording.stop();
+			recording.dump(jfr);
+			recording.close();
+
+			System.out.printf("%-8s %8.0f req/s  read p50 %6.1f ms p99 %7.1f ms  vote p50 %6.1f ms p99 %7.1f ms"
+					+ "  failed %d%n", mode, result.requests() / (double) SECONDS, result.readP50(), result.readP99(),
+					result.voteP50(), result.voteP99(), result.failed());
+			if (virtualThreads) {
+				printPinned(jfr);
+			}
+			Files.delete(jfr);
+		}
+	}
+
+	// USERS users with a token each, and POLLS polls with four options
+	private static List<String> seed(ConfigurableApplicationContext context) {
+		JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+		List<Object[]> rows = new ArrayList<>();
+		for (int i = 0; i < USERS; i++) {
+			rows.add(new Object[] {"user" + i, "user" + i + "@bench.com", "hash"});
+		}
+		jdbcTemplate.batchUpdate("insert into users (username, email, password_hash, created_at) "
+				+ "values (?, ?, ?, current_timestamp)", rows);
+		List<Long> userIds = jdbcTemplate.queryForList("select id from users order by id", Long.class);
+
+		PollService pollService = context.getBean(PollService.class);
+		AuthUser owner = new AuthUser(userIds.get(0), "user0", "user0@bench.com");
+		for (int i = 0; i < POLLS; i++) {
+			Poll poll = new Poll();
+			poll.setQuestion("Question " + i + "?");
+			for (String text : List.of("A", "B", "C", "D")) {
+				OptionVote option = new OptionVote();
+				option.setOptText(text);
+				poll.getOptions().add(option);
+			}
+			pollService.savePoll(poll, owner);
+		}
+
+		JwtUtil jwtUtil = context.getBean(JwtUtil.class);
+		return userIds.stream().map(id -> jwtUtil.generateToken(id, "bench@bench.com")).toList();
+	}
+
+	private record Result(long requests, int failed, double readP50, double readP99, double voteP50,
+			double voteP99) {
+	}
+
+	// CLIENTS virtual threads sending requests back to back for the given time
+	private static Result load(HttpClient client, String base, List<String> tokens, int seconds)
+			throws InterruptedException {
+		long end = System.nanoTime() + seconds * 1_000_000_000L;
+		AtomicInteger failed = new AtomicInteger();
+		long[][] reads = new long[CLIENTS][];
+		long[][] votes = new long[CLIENTS][];
+		List<Thread> threads = new ArrayList<>();
+		for (int c = 0; c < CLIENTS; c++) {
+			int clientIndex = c;
+			threads.add(Thread.ofVirtual().start(() -> {
+				LongList readTimes = new LongList();
+				LongList voteTimes = new LongList();
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				while (System.nanoTime() < end) {
+					long pollId = 1 + random.nextInt(POLLS);
+					boolean vote = random.nextInt(100) < VOTE_PERCENT;
+					HttpRequest request = vote
+							? HttpRequest.newBuilder(URI.create(base + "/api/polls/vote"))
+									.header("Authorization", "Bearer " + tokens.get(clientIndex))
+									.header("Content-Type", "application/json")
+									.POST(HttpRequest.BodyPublishers.ofString(
+											"{\"pollId\":" + pollId + ",\"optionIndex\":" + random.nextInt(4) + "}"))
+									.build()
+							: HttpRequest.newBuilder(URI.create(base + "/api/polls/" + pollId)).build();
+					long start = System.nanoTime();
+					try {
+						HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+						if (response.statusCode() >= 300) {
+							failed.incrementAndGet();
+							continue;
+						}
+					} catch (Exception e) {
+						failed.incrementAndGet();
+						continue;
+					}
+					(vote ? voteTimes : readTimes).add(System.nanoTime() - start);
+				}
+				reads[clientIndex] = readTimes.toArray();
+				votes[clientIndex] = voteTimes.toArray();
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		long[] allReads = merge(reads);
+		long[] allVotes = merge(votes);
+		return new Result(allReads.length + allVotes.length, failed.get(), percentile(allReads, 50),
+				percentile(allReads, 99), percentile(allVotes, 50), percentile(allVotes, 99));
+	}
+
+	private static void printPinned(Path jfr) throws Exception {
+		List<RecordedEvent> events = RecordingFile.readAllEvents(jfr);
+		Map<String, Long> byFrame = events.stream().collect(Collectors.groupingBy(RequestThreadingBenchmark::culprit,
+				TreeMap::new, Collectors.counting()));
+		System.out.printf("         %d jdk.VirtualThreadPinned events over 1 ms%n", events.size());
+		byFrame.forEach((frame, count) -> System.out.printf("           %6d  %s%n", count, frame));
+	}
+
+	// The first frame outside the JDK, which is where the monitor was taken
+	private static String culprit(RecordedEvent event) {
+		if (event.getStackTrace() == null) {
+			return "(no stack trace)";
+		}
+		for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+			String type = frame.getMethod().getType().getName();
+			if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+				return type + "." + frame.getMethod().getName();
+			}
+		}
+		return "(JDK only)";
+	}
+
+	private static long[] merge(long[][] perClient) {
+		long[] all = Arrays.stream(perClient).flatMapToLong(Arrays::stream).toArray();
+		Arrays.sort(all);
+		return all;
+	}
+
+	private static double percentile(long[] sorted, int percentile) {
+		if (sorted.length == 0) {
+			return Double.NaN;
+		}
+		int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+		return sorted[Math.max(0, index)] / 1_000_000.0;
+	}
+
+	private static final class LongList {
+		private long[] values = new long[1024];
+		private int size;
+
+		void add(long value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+
+		long[] toArray() {
+			return Arrays.copyOf(values, size);
+		}
+	}
+
+	// Points the Hikari pool at an H2 data source whose statements and commits first sleep
+	// DB_LATENCY_MS (a sleeping virtual thread unmounts, like one waiting on a socket)
+	private static final class SimulatedDatabaseLatency implements BeanPostProcessor {
+
+		@Override
+		public Object postProcessAfterInitialization(Object bean, String beanName) {
+			if (bean instanceof HikariDataSource pool) {
+				JdbcDataSource h2 = new JdbcDataSource();
+				h2.setURL(pool.getJdbcUrl());
+				h2.setUser(pool.getUsername());
+				h2.setPassword(pool.getPassword());
+				pool.setDataSource(delayed(h2, DataSource.class));
+			}
+			return bean;
+		}
+
+		@SuppressWarnings("unchecked")
+		private static <T> T delayed(Object target, Class<T> type) {
+			return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+				String name = method.getName();
+				if (name.startsWith("execute") || "commit".equals(name) || "rollback".equals(name)) {
+					Thread.sleep(DB_LATENCY_MS);
+				}
+				Object result;
+				try {
+					result = method.invoke(target, args);
+				} catch (InvocationTargetException e) {
+					throw e.getTargetException();
+				}
+				if (result instanceof Connection connection) {
+					return delayed(connection, Connection.class);
+				}
+				if (result instanceof CallableStatement statement) {
+					return delayed(statement, CallableStatement.class);
+				}
+				if (result instanceof PreparedStatement statement) {
+					return delayed(statement, PreparedStatement.class);
+				}
+				if (result instanceof Statement statement && Statement.class == method.getReturnType()) {
+					return delayed(statement, Statement.class);
+				}
+				return result;
+			});
+		}
+	}
+}
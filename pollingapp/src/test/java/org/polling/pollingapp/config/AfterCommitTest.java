@@ -0,0 +1,54 @@
+package org.polling.pollingapp.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Unit tests for the after-commit helper, with synchronization driven by hand instead of a transaction manager
+class AfterCommitTest {
+
+	private final List<String> ran = new ArrayList<>();
+
+	@AfterEach
+	void tearDown() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	@Test
+	void run_outsideTransaction_runsRightAway() {
+		AfterCommit.run(() -> ran.add("action"));
+
+		assertThat(ran).containsExactly("action");
+	}
+
+	@Test
+	void run_insideTransaction_waitsForCommitAndKeepsOrder() {
+		TransactionSynchronizationManager.initSynchronization();
+		AfterCommit.run(() -> ran.add("first"));
+		AfterCommit.run(() -> ran.add("second"));
+		assertThat(ran).isEmpty();
+
+		TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+		assertThat(ran).containsExactly("first", "second");
+	}
+
+	@Test
+	void run_rolledBackTransaction_runsNothing() {
+		TransactionSynchronizationManager.initSynchronization();
+		AfterCommit.run(() -> ran.add("action"));
+
+		TransactionSynchronizationManager.getSynchronizations()
+				.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+		assertThat(ran).isEmpty();
+	}
+}
@@ -0,0 +1,48 @@
+package org.polling.pollingapp.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Unit tests for the size cap shared by the in-process caches; values are their own rank
+class BoundedEvictionTest {
+
+	private final Map<String, Long> entries = new ConcurrentHashMap<>();
+
+	@Test
+	void evictIfFull_withinMaxSize_keepsEverything() {
+		BoundedEviction<String, Long> eviction = new BoundedEviction<>(entries, 10, Long::longValue);
+		put(10);
+
+		assertThat(eviction.evictIfFull()).isZero();
+		assertThat(entries).hasSize(10);
+	}
+
+	@Test
+	void evictIfFull_overMaxSize_removesLowestRankedDownTo90Percent() {
+		BoundedEviction<String, Long> eviction = new BoundedEviction<>(entries, 10, Long::longValue);
+		put(11);
+
+		assertThat(eviction.evictIfFull()).isEqualTo(2);
+		assertThat(entries).hasSize(9).doesNotContainKeys("k0", "k1");
+	}
+
+	@Test
+	void evictIfFull_keepsEntriesThatAreNotEvictable() {
+		BoundedEviction<String, Long> eviction = new BoundedEviction<>(entries, 10, Long::longValue,
+				value -> value != 0);
+		put(11);
+
+		assertThat(eviction.evictIfFull()).isEqualTo(2);
+		assertThat(entries).containsKey("k0").doesNotContainKeys("k1", "k2");
+	}
+
+	private void put(int count) {
+		for (long i = 0; i < count; i++) {
+			entries.put("k" + i, i);
+		}
+	}
+}
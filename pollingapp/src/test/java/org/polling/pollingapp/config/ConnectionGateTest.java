@@ -0,0 +1,88 @@
+package org.polling.pollingapp.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Unit tests for the connection semaphore, in front of a mocked pool
+class ConnectionGateTest {
+
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final DataSource pool = mock(DataSource.class);
+
+	@Test
+	void closingAConnectionReturnsItsPermitOnce() throws Exception {
+		Connection pooled = mock(Connection.class);
+		when(pool.getConnection()).thenReturn(pooled);
+		ConnectionGate gate = new ConnectionGate(pool, 1, 10, 50, meterRegistry);
+
+		Connection connection = gate.getConnection();
+		assertThatThrownBy(gate::getConnection).isInstanceOf(SQLTransientConnectionException.class)
+				.hasMessageContaining("within 50 ms");
+		connection.close();
+		connection.close();
+
+		// One permit came back, not two
+		Connection next = gate.getConnection();
+		assertThatThrownBy(gate::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+		next.close();
+		verify(pooled, times(3)).close();
+		assertThat(meterRegistry.counter("polls.db.connection.rejected").count()).isEqualTo(2);
+	}
+
+	@Test
+	void waitersGetTheConnectionOnceItIsClosed() throws Exception {
+		when(pool.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+		ConnectionGate gate = new ConnectionGate(pool, 1, 10, 5_000, meterRegistry);
+		Connection held = gate.getConnection();
+
+		CompletableFuture<Connection> waiting = CompletableFuture.supplyAsync(() -> {
+			try {
+				return gate.getConnection();
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		while (meterRegistry.get("polls.db.connection.waiters").gauge().value() < 1) {
+			Thread.sleep(5);
+		}
+		held.close();
+
+		assertThat(waiting.get(5, TimeUnit.SECONDS)).isNotNull();
+	}
+
+	@Test
+	void failsAtOnceWhenMaxWaitersAreWaiting() throws Exception {
+		when(pool.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+		ConnectionGate gate = new ConnectionGate(pool, 1, 0, 5_000, meterRegistry);
+		gate.getConnection();
+
+		long start = System.nanoTime();
+		assertThatThrownBy(gate::getConnection).isInstanceOf(SQLTransientConnectionException.class)
+				.hasMessageContaining("Too many requests waiting");
+		assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(1));
+	}
+
+	@Test
+	void aFailedPoolCheckoutReturnsThePermit() throws Exception {
+		when(pool.getConnection()).thenThrow(new SQLTransientConnectionException("pool timeout"))
+				.thenReturn(mock(Connection.class));
+		ConnectionGate gate = new ConnectionGate(pool, 1, 10, 50, meterRegistry);
+
+		assertThatThrownBy(gate::getConnection).hasMessage("pool timeout");
+		assertThat(gate.getConnection()).isNotNull();
+	}
+}
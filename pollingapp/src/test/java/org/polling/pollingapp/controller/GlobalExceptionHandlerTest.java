@@ -1,17 +1,34 @@
 package org.polling.pollingapp.controller;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import javax.sql.DataSource;
 import java.util.List;
 import java.util.Map;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.polling.pollingapp.config.ConnectionGate;
+import org.polling.pollingapp.security.PasswordHasher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
 
 // Pure unit tests for GlobalExceptionHandler — no Spring context needed
 class GlobalExceptionHandlerTest {
@@ -76,6 +93,72 @@ class GlobalExceptionHandlerTest {
 		assertThat(response.getBody()).containsKey("message");
 	}
 
+	// ── OptimisticLockingFailureException ─────────────────────────────
+
+	@Test
+	void handleOptimisticLockingFailure_returns409() {
+		OptimisticLockingFailureException ex = new OptimisticLockingFailureException("Row was updated");
+
+		ResponseEntity<Map<String, String>> response = handler.handleOptimisticLockingFailure(ex);
+
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+		assertThat(response.getBody().get("message")).contains("try again");
+	}
+
+	// ── PasswordHasher.BusyException ──────────────────────────────────
+
+	@Test
+	void handlePasswordHasherBusy_returns503WithRetryAfter() {
+		ResponseEntity<Map<String, String>> response = handler
+				.handlePasswordHasherBusy(new PasswordHasher.BusyException(2));
+
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+		assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("2");
+		assertThat(response.getBody().get("message")).contains("try again");
+	}
+
+	// ── CannotCreateTransactionException ──────────────────────────────
+
+	@Test
+	void handleNoConnection_returns503WithRetryAfter() {
+		ResponseEntity<Map<String, String>> response = handler.handleNoConnection(
+				new CannotCreateTransactionException("Could not open JPA EntityManager for transaction"));
+
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+		assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+		assertThat(response.getBody().get("message")).contains("try again");
+	}
+
+	// A gate rejection on a plain JdbcTemplate read (no transaction) reaches the handler as
+	// CannotGetJdbcConnectionException and must get the same 503, not the generic 400
+	@Test
+	void gateRejectionOnJdbcTemplateRead_returns503WithRetryAfter() throws Exception {
+		DataSource pool = mock(DataSource.class);
+		ConnectionGate gate = new ConnectionGate(pool, 0, 0, 50, new SimpleMeterRegistry());
+		MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new JdbcReadController(new JdbcTemplate(gate)))
+				.setControllerAdvice(handler).build();
+
+		mockMvc.perform(get("/read")).andExpect(status().isServiceUnavailable())
+				.andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"))
+				.andExpect(jsonPath("$.message").value(containsString("try again")));
+		verifyNoInteractions(pool);
+	}
+
+	@RestController
+	static class JdbcReadController {
+
+		private final JdbcTemplate jdbcTemplate;
+
+		JdbcReadController(JdbcTemplate jdbcTemplate) {
+			this.jdbcTemplate = jdbcTemplate;
+		}
+
+		@GetMapping("/read")
+		List<String> read() {
+			return jdbcTemplate.queryForList("select username from users", String.class);
+		}
+	}
+
 	// ── MethodArgumentNotValidException ───────────────────────────────
 
 	@Test
@@ -0,0 +1,78 @@
+package org.polling.pollingapp.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.polling.pollingapp.request.PollView;
+import org.polling.pollingapp.services.PollService;
+import org.polling.pollingapp.services.PollStreamService;
+import org.polling.pollingapp.services.PollViewCache.CachedView;
+import org.polling.pollingapp.services.VoteEventService;
+import org.polling.pollingapp.services.VoteIngestionQueue;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// GET /api/polls/{id} conditional requests, with the service mocked out
+@ExtendWith(MockitoExtension.class)
+class PollControllerTest {
+
+	private static final String JSON = "{\"id\":1,\"question\":\"Q?\"}";
+	private static final String ETAG = "\"abc123\"";
+
+	@Mock
+	private PollService pollService;
+
+	@Mock
+	private VoteIngestionQueue voteIngestionQueue;
+
+	@Mock
+	private VoteEventService voteEventService;
+
+	@Mock
+	private PollStreamService pollStreamService;
+
+	private MockMvc mockMvc;
+
+	@BeforeEach
+	void setUp() {
+		mockMvc = MockMvcBuilders.standaloneSetup(
+				new PollController(pollService, voteIngestionQueue, voteEventService, pollStreamService)).build();
+		PollView view = new PollView(1L, "Q?", List.of(), 1, null, LocalDateTime.now());
+		when(pollService.getPollJson(1L))
+				.thenReturn(Optional.of(new CachedView(view, JSON.getBytes(StandardCharsets.UTF_8), ETAG)));
+	}
+
+	@Test
+	void getPollById_returnsCachedJsonWithETag() throws Exception {
+		mockMvc.perform(get("/api/polls/1")).andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, ETAG))
+				.andExpect(content().contentType("application/json")).andExpect(content().string(JSON));
+	}
+
+	@Test
+	void getPollById_matchingIfNoneMatch_returns304WithoutBody() throws Exception {
+		mockMvc.perform(get("/api/polls/1").header(HttpHeaders.IF_NONE_MATCH, ETAG))
+				.andExpect(status().isNotModified()).andExpect(header().string(HttpHeaders.ETAG, ETAG))
+				.andExpect(content().string(""));
+	}
+
+	@Test
+	void getPollById_staleIfNoneMatch_returnsBody() throws Exception {
+		mockMvc.perform(get("/api/polls/1").header(HttpHeaders.IF_NONE_MATCH, "\"old\""))
+				.andExpect(status().isOk()).andExpect(content().string(JSON));
+	}
+}
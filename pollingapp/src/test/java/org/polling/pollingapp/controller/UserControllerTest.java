@@ -0,0 +1,86 @@
+package org.polling.pollingapp.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.polling.pollingapp.services.AvatarStore;
+import org.polling.pollingapp.services.PollService;
+import org.polling.pollingapp.services.UserService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// GET /api/users/{id}/avatar caching and file transfer, with the service mocked out
+@ExtendWith(MockitoExtension.class)
+class UserControllerTest {
+
+	private static final String HASH = "d".repeat(64);
+	private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+	@TempDir
+	private Path dir;
+
+	@Mock
+	private UserService userService;
+
+	@Mock
+	private PollService pollService;
+
+	private MockMvc mockMvc;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		mockMvc = MockMvcBuilders.standaloneSetup(new UserController(userService, pollService)).build();
+		Path file = Files.write(dir.resolve(HASH), PNG);
+		lenient().when(userService.findAvatar(1L, false))
+				.thenReturn(Optional.of(new AvatarStore.Blob(HASH, file, "image/png", PNG.length)));
+	}
+
+	@Test
+	void getAvatar_withCurrentHash_isCachedForGood() throws Exception {
+		mockMvc.perform(get("/api/users/1/avatar").param("v", HASH)).andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, public, immutable"))
+				.andExpect(header().string(HttpHeaders.ETAG, "\"" + HASH + "\""))
+				.andExpect(content().contentType("image/png")).andExpect(content().bytes(PNG));
+	}
+
+	@Test
+	void getAvatar_withoutHash_revalidatesAndAnswers304() throws Exception {
+		mockMvc.perform(get("/api/users/1/avatar").header(HttpHeaders.IF_NONE_MATCH, "\"" + HASH + "\""))
+				.andExpect(status().isNotModified()).andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+				.andExpect(content().bytes(new byte[0]));
+	}
+
+	@Test
+	void getAvatar_onTomcatWithSendfile_handsTheFileToTheConnector() throws Exception {
+		mockMvc.perform(get("/api/users/1/avatar").requestAttr("org.apache.tomcat.sendfile.support", true))
+				.andExpect(status().isOk()).andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, PNG.length))
+				.andExpect(request().attribute("org.apache.tomcat.sendfile.filename", dir.resolve(HASH).toString()))
+				.andExpect(request().attribute("org.apache.tomcat.sendfile.end", (long) PNG.length))
+				.andExpect(content().bytes(new byte[0]));
+	}
+
+	@Test
+	void getAvatar_withoutAvatar_answers404() throws Exception {
+		when(userService.findAvatar(2L, true)).thenReturn(Optional.empty());
+
+		mockMvc.perform(get("/api/users/2/avatar").param("size", "thumb")).andExpect(status().isNotFound())
+				.andExpect(content().bytes(new byte[0]));
+	}
+}
@@ -1,21 +1,23 @@
 package org.polling.pollingapp.security;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.polling.pollingapp.model.User;
 import org.polling.pollingapp.repositories.UserRepository;
+import org.polling.pollingapp.security.JwtUtil.Verification;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.core.context.SecurityContextHolder;
 
 import java.io.IOException;
+import java.sql.SQLTransientConnectionException;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -34,7 +36,6 @@ class JwtAuthFilterTest {
 	@Mock
 	private FilterChain filterChain;
 
-	@InjectMocks
 	private JwtAuthFilter jwtAuthFilter;
 
 	private MockHttpServletRequest request;
@@ -42,6 +43,8 @@ class JwtAuthFilterTest {
 
 	@BeforeEach
 	void setUp() {
+		jwtAuthFilter = new JwtAuthFilter(jwtUtil,
+				new PrincipalCache(userRepository, new SimpleMeterRegistry(), 100, 60_000));
 		request = new MockHttpServletRequest();
 		response = new MockHttpServletResponse();
 		SecurityContextHolder.clearContext();
@@ -77,14 +80,10 @@ class JwtAuthFilterTest {
 		String token = "valid-jwt-token";
 		request.addHeader("Authorization", "Bearer " + token);
 
-		User user = new User();
-		user.setId(1L);
-		user.setUsername("testuser");
-		user.setEmail("test@example.com");
+		AuthUser user = new AuthUser(1L, "testuser", "test@example.com");
 
-		when(jwtUtil.validateToken(token)).thenReturn(true);
-		when(jwtUtil.getUserIdFromToken(token)).thenReturn(1L);
-		when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+		when(jwtUtil.verify(token)).thenReturn(Verification.valid(1L, Long.MAX_VALUE));
+		when(userRepository.findAuthUserById(1L)).thenReturn(Optional.of(user));
 
 		jwtAuthFilter.doFilterInternal(request, response, filterChain);
 
@@ -97,7 +96,7 @@ class JwtAuthFilterTest {
 	void shouldNotSetAuthentication_whenTokenIsInvalid() throws ServletException, IOException {
 		request.addHeader("Authorization", "Bearer invalid-token");
 
-		when(jwtUtil.validateToken("invalid-token")).thenReturn(false);
+		when(jwtUtil.verify("invalid-token")).thenReturn(Verification.failed(Verification.Failure.BAD_SIGNATURE));
 
 		jwtAuthFilter.doFilterInternal(request, response, filterChain);
 
@@ -110,13 +109,28 @@ class JwtAuthFilterTest {
 		String token = "valid-but-user-deleted";
 		request.addHeader("Authorization", "Bearer " + token);
 
-		when(jwtUtil.validateToken(token)).thenReturn(true);
-		when(jwtUtil.getUserIdFromToken(token)).thenReturn(999L);
-		when(userRepository.findById(999L)).thenReturn(Optional.empty());
+		when(jwtUtil.verify(token)).thenReturn(Verification.valid(999L, Long.MAX_VALUE));
+		when(userRepository.findAuthUserById(999L)).thenReturn(Optional.empty());
 
 		jwtAuthFilter.doFilterInternal(request, response, filterChain);
 
 		verify(filterChain).doFilter(request, response);
 		assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
 	}
+
+	@Test
+	void shouldAnswer503_whenNoConnectionForLoadingThePrincipal() throws ServletException, IOException {
+		request.addHeader("Authorization", "Bearer valid-jwt-token");
+
+		when(jwtUtil.verify("valid-jwt-token")).thenReturn(Verification.valid(1L, Long.MAX_VALUE));
+		when(userRepository.findAuthUserById(1L)).thenThrow(new CannotGetJdbcConnectionException(
+				"Failed to obtain JDBC Connection", new SQLTransientConnectionException("gate full")));
+
+		jwtAuthFilter.doFilterInternal(request, response, filterChain);
+
+		verify(filterChain, never()).doFilter(request, response);
+		assertThat(response.getStatus()).isEqualTo(503);
+		assertThat(response.getHeader("Retry-After")).isEqualTo("1");
+		assertThat(response.getContentAsString()).contains("try again");
+	}
 }
@@ -2,6 +2,8 @@ package org.polling.pollingapp.security;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.polling.pollingapp.security.JwtUtil.Verification;
+import org.polling.pollingapp.security.JwtUtil.Verification.Failure;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -16,7 +18,7 @@ class JwtUtilTest {
 
 	@BeforeEach
 	void setUp() {
-		jwtUtil = new JwtUtil(TEST_SECRET, EXPIRATION_MS);
+		jwtUtil = new JwtUtil(TEST_SECRET, EXPIRATION_MS, 100);
 	}
 
 	@Test
@@ -66,7 +68,7 @@ class JwtUtilTest {
 	@Test
 	void validateToken_shouldReturnFalseForExpiredToken() {
 		// Create a JwtUtil with 0ms expiration so the token is immediately expired
-		JwtUtil expiredJwtUtil = new JwtUtil(TEST_SECRET, 0);
+		JwtUtil expiredJwtUtil = new JwtUtil(TEST_SECRET, 0, 100);
 		String token = expiredJwtUtil.generateToken(1L, "test@example.com");
 
 		boolean isValid = expiredJwtUtil.validateToken(token);
@@ -76,11 +78,50 @@ class JwtUtilTest {
 
 	@Test
 	void validateToken_shouldReturnFalseForTokenSignedWithDifferentKey() {
-		JwtUtil otherJwtUtil = new JwtUtil("aCompletelyDifferentSecretKeyThat32Ch!", EXPIRATION_MS);
+		JwtUtil otherJwtUtil = new JwtUtil("aCompletelyDifferentSecretKeyThat32Ch!", EXPIRATION_MS, 100);
 		String tokenFromOtherKey = otherJwtUtil.generateToken(1L, "test@example.com");
 
 		boolean isValid = jwtUtil.validateToken(tokenFromOtherKey);
 
 		assertThat(isValid).isFalse();
 	}
+
+	@Test
+	void verify_returnsUserIdAndExpiryOfValidToken() {
+		long before = System.currentTimeMillis();
+		String token = jwtUtil.generateToken(42L, "test@example.com");
+
+		Verification verification = jwtUtil.verify(token);
+
+		assertThat(verification.isValid()).isTrue();
+		assertThat(verification.userId()).isEqualTo(42L);
+		// The exp claim has second precision
+		assertThat(verification.expiresAtMs()).isBetween(before + EXPIRATION_MS - 1000, before + EXPIRATION_MS + 1000);
+	}
+
+	@Test
+	void verify_reportsWhyTokenWasRejected() {
+		String token = jwtUtil.generateToken(1L, "test@example.com");
+		JwtUtil otherJwtUtil = new JwtUtil("aCompletelyDifferentSecretKeyThat32Ch!", EXPIRATION_MS, 100);
+		JwtUtil expiredJwtUtil = new JwtUtil(TEST_SECRET, 0, 100);
+
+		assertThat(jwtUtil.verify(otherJwtUtil.generateToken(1L, "test@example.com")).failure())
+				.isEqualTo(Failure.BAD_SIGNATURE);
+		assertThat(jwtUtil.verify(expiredJwtUtil.generateToken(1L, "test@example.com")).failure())
+				.isEqualTo(Failure.EXPIRED);
+		assertThat(jwtUtil.verify("not.a.real.token").failure()).isEqualTo(Failure.MALFORMED);
+		assertThat(jwtUtil.verify(token.substring(0, token.lastIndexOf('.'))).failure()).isEqualTo(Failure.MALFORMED);
+	}
+
+	@Test
+	void verify_repeatedTokenIsServedFromCacheUntilItExpires() throws InterruptedException {
+		JwtUtil shortLivedJwtUtil = new JwtUtil(TEST_SECRET, 1000, 100);
+		String token = shortLivedJwtUtil.generateToken(1L, "test@example.com");
+
+		Verification first = shortLivedJwtUtil.verify(token);
+		assertThat(shortLivedJwtUtil.verify(token)).isSameAs(first);
+
+		Thread.sleep(Math.max(0, first.expiresAtMs() - System.currentTimeMillis()) + 10);
+		assertThat(shortLivedJwtUtil.verify(token).failure()).isEqualTo(Failure.EXPIRED);
+	}
 }
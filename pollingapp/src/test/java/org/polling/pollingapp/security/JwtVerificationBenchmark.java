@@ -0,0 +1,60 @@
+package org.polling.pollingapp.security;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+
+import javax.crypto.SecretKey;
+import java.lang.management.ManagementFactory;
+import java.util.function.ToLongFunction;
+
+// Per-request cost of authenticating a bearer token, before and after single-parse verification.
+// Not a test (surefire skips it); after mvn test-compile, run it from the IDE or with
+//   mvn dependency:build-classpath -Dmdep.includeScope=test -Dmdep.outputFile=target/cp.txt
+//   java -cp target/classes:target/test-classes:$(cat target/cp.txt) \
+//       org.polling.pollingapp.security.JwtVerificationBenchmark
+// "before" is the old filter path: validateToken and getUserIdFromToken each built a parser and
+// parsed the token. Prints the average time and heap allocation of one request.
+public final class JwtVerificationBenchmark {
+
+	private static final String SECRET = "benchmarkSecretKeyThatIsAtLeast32Chars!!";
+	private static final int WARMUP_ROUNDS = 5;
+	private static final int ITERATIONS = 200_000;
+
+	private JwtVerificationBenchmark() {
+	}
+
+	public static void main(String[] args) {
+		SecretKey key = Keys.hmacShaKeyFor(SECRET.getBytes());
+		JwtUtil uncached = new JwtUtil(SECRET, 3_600_000, 0);
+		JwtUtil cached = new JwtUtil(SECRET, 3_600_000, 10_000);
+		String token = cached.generateToken(42L, "bench@example.com");
+
+		run("before: two parses, new parser each", token, t -> {
+			Jwts.parser().verifyWith(key).build().parseSignedClaims(t);
+			return Long.parseLong(Jwts.parser().verifyWith(key).build().parseSignedClaims(t).getPayload().getSubject());
+		});
+		run("after: one parse, shared parser", token, t -> uncached.verify(t).userId());
+		run("after: repeated token, cached", token, t -> cached.verify(t).userId());
+	}
+
+	private static void run(String name, String token, ToLongFunction<String> authenticate) {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long sink = 0;
+		for (int round = 0; round < WARMUP_ROUNDS; round++) {
+			for (int i = 0; i < ITERATIONS / 10; i++) {
+				sink += authenticate.applyAsLong(token);
+			}
+		}
+
+		long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			sink += authenticate.applyAsLong(token);
+		}
+		long nanos = System.nanoTime() - start;
+		long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+		System.out.printf("%-40s %8.0f ns/op %8d B/op (%d)%n", name, (double) nanos / ITERATIONS,
+				allocated / ITERATIONS, sink % 10);
+	}
+}
@@ -0,0 +1,77 @@
+package org.polling.pollingapp.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Unit tests for the BCrypt pool; strength 4 keeps real hashing fast
+class PasswordHasherTest {
+
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	void encodeAndMatches_runOnThePoolAndAreTimed() {
+		PasswordHasher hasher = new PasswordHasher(new BCryptPasswordEncoder(4), meterRegistry, 4, 2, 10, 1);
+
+		String hash = hasher.encode("Password1!x");
+
+		assertThat(hasher.matches("Password1!x", hash)).isTrue();
+		assertThat(hasher.matches("wrong", hash)).isFalse();
+		assertThat(meterRegistry.get("polls.auth.hash").tag("op", "encode").timer().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("polls.auth.hash").tag("op", "matches").timer().count()).isEqualTo(2);
+		hasher.shutdown();
+	}
+
+	@Test
+	void needsRehash_whenStoredCostDiffersFromConfiguredStrength() {
+		PasswordHasher hasher = new PasswordHasher(new BCryptPasswordEncoder(4), meterRegistry, 5, 1, 10, 1);
+
+		assertThat(hasher.needsRehash(new BCryptPasswordEncoder(4).encode("pw"))).isTrue();
+		assertThat(hasher.needsRehash(new BCryptPasswordEncoder(5).encode("pw"))).isFalse();
+		assertThat(hasher.needsRehash(new BCryptPasswordEncoder(6).encode("pw"))).isTrue();
+		assertThat(hasher.needsRehash("not-a-bcrypt-hash")).isFalse();
+		hasher.shutdown();
+	}
+
+	@Test
+	void encode_failsFastWhenPoolAndQueueAreFull() throws Exception {
+		// One thread and one queue slot, held by an encoder that blocks until released
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		PasswordEncoder blockingEncoder = mock(PasswordEncoder.class);
+		when(blockingEncoder.encode(any())).thenAnswer(invocation -> {
+			started.countDown();
+			release.await();
+			return "hash";
+		});
+		PasswordHasher hasher = new PasswordHasher(blockingEncoder, meterRegistry, 4, 1, 1, 3);
+
+		CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> hasher.encode("a"));
+		assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+		CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> hasher.encode("b"));
+		while (meterRegistry.get("polls.auth.hash.queue.depth").gauge().value() < 1) {
+			Thread.sleep(5);
+		}
+
+		assertThatThrownBy(() -> hasher.encode("c")).isInstanceOf(PasswordHasher.BusyException.class)
+				.extracting(e -> ((PasswordHasher.BusyException) e).getRetryAfterSeconds()).isEqualTo(3L);
+		assertThat(meterRegistry.counter("polls.auth.hash.rejected").count()).isEqualTo(1);
+
+		release.countDown();
+		assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("hash");
+		assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("hash");
+		hasher.shutdown();
+	}
+}
@@ -0,0 +1,73 @@
+package org.polling.pollingapp.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.polling.pollingapp.repositories.UserRepository;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Unit tests for the JWT principal cache; no transaction is active, so eviction is immediate
+class PrincipalCacheTest {
+
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final UserRepository userRepository = mock(UserRepository.class);
+
+	@Test
+	void get_loadsOnceUntilEvicted() {
+		PrincipalCache cache = new PrincipalCache(userRepository, meterRegistry, 100, 60_000);
+		when(userRepository.findAuthUserById(1L)).thenReturn(Optional.of(user(1L, "alice")));
+
+		cache.get(1L);
+		cache.get(1L);
+		verify(userRepository, times(1)).findAuthUserById(1L);
+
+		cache.evict(1L);
+		cache.get(1L);
+		verify(userRepository, times(2)).findAuthUserById(1L);
+		assertThat(meterRegistry.counter("polls.principals.gets", "result", "hit").count()).isEqualTo(1);
+		assertThat(meterRegistry.counter("polls.principals.gets", "result", "miss").count()).isEqualTo(2);
+	}
+
+	@Test
+	void get_expiredEntryAndUnknownUserAreReloaded() throws InterruptedException {
+		PrincipalCache cache = new PrincipalCache(userRepository, meterRegistry, 100, 1);
+		when(userRepository.findAuthUserById(1L)).thenReturn(Optional.of(user(1L, "alice")));
+
+		cache.get(1L);
+		Thread.sleep(5);
+		cache.get(1L);
+		assertThat(cache.get(2L)).isEmpty();
+		assertThat(cache.get(2L)).isEmpty();
+
+		verify(userRepository, times(2)).findAuthUserById(1L);
+		verify(userRepository, times(2)).findAuthUserById(2L);
+	}
+
+	@Test
+	void evictAll_forcesReloadOfEveryone() {
+		PrincipalCache cache = new PrincipalCache(userRepository, meterRegistry, 100, 60_000);
+		when(userRepository.findAuthUserById(1L)).thenReturn(Optional.of(user(1L, "alice")));
+		when(userRepository.findAuthUserById(2L)).thenReturn(Optional.of(user(2L, "bob")));
+		cache.get(1L);
+		cache.get(2L);
+
+		cache.evictAll();
+		cache.get(1L);
+		cache.get(2L);
+
+		verify(userRepository, times(2)).findAuthUserById(1L);
+		verify(userRepository, times(2)).findAuthUserById(2L);
+		assertThat(meterRegistry.get("polls.principals.size").gauge().value()).isEqualTo(2);
+	}
+
+	private static AuthUser user(Long id, String username) {
+		return new AuthUser(id, username, username + "@test.com");
+	}
+}
@@ -0,0 +1,109 @@
+package org.polling.pollingapp.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+// Overhead RateLimitFilter adds to a request. Not a test (surefire skips it); after mvn test-compile,
+// run it from the IDE or with
+//   mvn dependency:build-classpath -Dmdep.includeScope=test -Dmdep.outputFile=target/cp.txt
+//   java -cp target/classes:target/test-classes:$(cat target/cp.txt) \
+//       org.polling.pollingapp.security.RateLimitFilterBenchmark
+// Limits are set high enough that every request is let through, so this measures the bucket
+// lookup and CAS, not rejections. Prints the average time and heap allocation of one request on one
+// thread, then the throughput of THREADS threads voting as distinct users and as one user (all
+// CASing the same bucket).
+public final class RateLimitFilterBenchmark {
+
+	private static final int WARMUP_ROUNDS = 5;
+	private static final int ITERATIONS = 1_000_000;
+	private static final int THREADS = 8;
+	private static final FilterChain PASS = (request, response) -> {
+	};
+
+	private RateLimitFilterBenchmark() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		RateLimitFilter off = new RateLimitFilter(new SimpleMeterRegistry(), false, 1, 16, "0", "0", "0", "0");
+		RateLimitFilter on = new RateLimitFilter(new SimpleMeterRegistry(), true, 1, 16, "0", "0",
+				"1000000000/1", "1000000000/1");
+
+		run("disabled", off, "/api/polls/vote");
+		run("enabled, route not limited", on, "/api/polls");
+		run("enabled, vote (ip + user buckets)", on, "/api/polls/vote");
+		throughput("8 threads, distinct users", on, true);
+		throughput("8 threads, one user", on, false);
+	}
+
+	private static void run(String name, RateLimitFilter filter, String path) throws Exception {
+		MockHttpServletRequest request = request(path, 1);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		withUser(1L, () -> {
+			for (int i = 0; i < WARMUP_ROUNDS * ITERATIONS / 10; i++) {
+				filter.doFilter(request, response, PASS);
+			}
+
+			com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+					.getThreadMXBean();
+			long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+			long start = System.nanoTime();
+			for (int i = 0; i < ITERATIONS; i++) {
+				filter.doFilter(request, response, PASS);
+			}
+			long nanos = System.nanoTime() - start;
+			long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+			System.out.printf("%-40s %8.1f ns/op %8d B/op (status %d)%n", name, (double) nanos / ITERATIONS,
+					allocated / ITERATIONS, response.getStatus());
+		});
+	}
+
+	private static void throughput(String name, RateLimitFilter filter, boolean distinctUsers) {
+		long start = System.nanoTime();
+		CompletableFuture.allOf(IntStream.range(0, THREADS).mapToObj(t -> CompletableFuture.runAsync(() -> {
+			MockHttpServletRequest request = request("/api/polls/vote", t);
+			MockHttpServletResponse response = new MockHttpServletResponse();
+			try {
+				withUser(distinctUsers ? t : 0L, () -> {
+					for (int i = 0; i < ITERATIONS; i++) {
+						filter.doFilter(request, response, PASS);
+					}
+				});
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		})).toArray(CompletableFuture[]::new)).join();
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("%-40s %8.2f M requests/s%n", name, THREADS * ITERATIONS / seconds / 1e6);
+	}
+
+	private static MockHttpServletRequest request(String path, int client) {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+		request.setRemoteAddr("172.18.0.5");
+		request.addHeader("X-Forwarded-For", "10.0.0." + client);
+		return request;
+	}
+
+	private interface Body {
+		void run() throws Exception;
+	}
+
+	private static void withUser(long userId, Body body) throws Exception {
+		SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+				new AuthUser(userId, "user" + userId, "user" + userId + "@example.com"), null,
+				Collections.emptyList()));
+		try {
+			body.run();
+		} finally {
+			SecurityContextHolder.clearContext();
+		}
+	}
+}
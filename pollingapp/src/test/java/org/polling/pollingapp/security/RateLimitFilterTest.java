@@ -0,0 +1,89 @@
+package org.polling.pollingapp.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+// Unit tests for RateLimitFilter: which requests are limited, by which key, and the 429 it answers
+class RateLimitFilterTest {
+
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final FilterChain filterChain = mock(FilterChain.class);
+
+	@AfterEach
+	void tearDown() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void login_overPerIpLimit_answers429WithRetryAfter() throws Exception {
+		RateLimitFilter filter = filter(1, "2/60", "0");
+
+		assertThat(post(filter, "/api/auth/login", "10.0.0.1").getStatus()).isEqualTo(200);
+		assertThat(post(filter, "/api/auth/login", "10.0.0.1").getStatus()).isEqualTo(200);
+		MockHttpServletResponse rejected = post(filter, "/api/auth/login", "10.0.0.1");
+
+		assertThat(rejected.getStatus()).isEqualTo(429);
+		assertThat(rejected.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("30");
+		assertThat(rejected.getContentAsString()).contains("Too many requests");
+		assertThat(meterRegistry.counter("polls.ratelimit.rejected", "route", "login", "key", "ip").count())
+				.isEqualTo(1);
+		// Another client and other routes are unaffected
+		assertThat(post(filter, "/api/auth/login", "10.0.0.2").getStatus()).isEqualTo(200);
+		assertThat(post(filter, "/api/polls", "10.0.0.1").getStatus()).isEqualTo(200);
+		verify(filterChain, times(4)).doFilter(any(), any());
+	}
+
+	@Test
+	void vote_isLimitedPerUserAcrossAddresses() throws Exception {
+		RateLimitFilter filter = filter(1, "0", "1/60");
+		SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+				new AuthUser(7L, "voter", "voter@example.com"), null, Collections.emptyList()));
+
+		assertThat(post(filter, "/api/polls/vote", "10.0.0.1").getStatus()).isEqualTo(200);
+		assertThat(post(filter, "/api/polls/vote/batch", "10.0.0.2").getStatus()).isEqualTo(429);
+		assertThat(meterRegistry.counter("polls.ratelimit.rejected", "route", "vote", "key", "user").count())
+				.isEqualTo(1);
+	}
+
+	@Test
+	void clientIp_countsForwardedHopsFromTheRight() {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setRemoteAddr("172.18.0.5");
+		request.addHeader("X-Forwarded-For", "1.1.1.1, 203.0.113.9");
+
+		assertThat(filter(1, "0", "0").clientIp(request)).isEqualTo("203.0.113.9");
+		assertThat(filter(2, "0", "0").clientIp(request)).isEqualTo("1.1.1.1");
+		// Fewer entries than hops, or the header ignored: the peer address
+		assertThat(filter(3, "0", "0").clientIp(request)).isEqualTo("172.18.0.5");
+		assertThat(filter(0, "0", "0").clientIp(request)).isEqualTo("172.18.0.5");
+	}
+
+	private RateLimitFilter filter(int forwardedHops, String loginPerIp, String votePerUser) {
+		return new RateLimitFilter(meterRegistry, true, forwardedHops, 4, loginPerIp, "0", "0", votePerUser);
+	}
+
+	private MockHttpServletResponse post(RateLimitFilter filter, String path, String clientIp) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+		request.setRemoteAddr("172.18.0.5"); // nginx
+		request.addHeader("X-Forwarded-For", clientIp);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(request, response, filterChain);
+		return response;
+	}
+}
@@ -0,0 +1,75 @@
+package org.polling.pollingapp.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Unit tests for the token buckets, driven by an explicit clock in nanoseconds
+class RateLimiterTest {
+
+	private static final long SECOND = 1_000_000_000L;
+
+	private final RateLimiter limiter = new RateLimiter(4);
+
+	@Test
+	void tryAcquire_allowsBurstThenRefillsEvenly() {
+		RateLimiter.Limit limit = RateLimiter.Limit.parse("3/3"); // one token per second
+		long now = 5 * SECOND;
+
+		for (int i = 0; i < 3; i++) {
+			assertThat(limiter.tryAcquire("a", limit, now)).isZero();
+		}
+		assertThat(limiter.tryAcquire("a", limit, now)).isEqualTo(SECOND);
+		// Other keys have their own bucket
+		assertThat(limiter.tryAcquire("b", limit, now)).isZero();
+
+		assertThat(limiter.tryAcquire("a", limit, now + SECOND / 2)).isEqualTo(SECOND / 2);
+		assertThat(limiter.tryAcquire("a", limit, now + SECOND)).isZero();
+		assertThat(limiter.tryAcquire("a", limit, now + SECOND)).isPositive();
+	}
+
+	@Test
+	void evictIdle_dropsOnlyRefilledBuckets() {
+		RateLimiter.Limit limit = RateLimiter.Limit.parse("2/10");
+		limiter.tryAcquire("busy", limit, 0);
+		limiter.tryAcquire("busy", limit, 0);
+		limiter.tryAcquire("idle", limit, 0);
+
+		limiter.evictIdle(5 * SECOND);
+
+		assertThat(limiter.size()).isEqualTo(1);
+		// The busy bucket kept its state: one token back after 5 s, none for a second request
+		assertThat(limiter.tryAcquire("busy", limit, 5 * SECOND)).isZero();
+		assertThat(limiter.tryAcquire("busy", limit, 5 * SECOND)).isPositive();
+	}
+
+	@Test
+	void tryAcquire_concurrentCallersNeverExceedTheBurst() {
+		RateLimiter.Limit limit = RateLimiter.Limit.parse("100/3600");
+		AtomicInteger allowed = new AtomicInteger();
+
+		CompletableFuture.allOf(IntStream.range(0, 8).mapToObj(t -> CompletableFuture.runAsync(() -> {
+			for (int i = 0; i < 1000; i++) {
+				if (limiter.tryAcquire(42L, limit, 0) == 0) {
+					allowed.incrementAndGet();
+				}
+			}
+		})).toArray(CompletableFuture[]::new)).join();
+
+		assertThat(allowed).hasValue(100);
+	}
+
+	@Test
+	void limitParse_zeroDisablesAndMalformedIsRejected() {
+		assertThat(RateLimiter.Limit.parse("0").isEnabled()).isFalse();
+		assertThat(limiter.tryAcquire("a", RateLimiter.Limit.parse("0"), 0)).isZero();
+		assertThat(limiter.size()).isZero();
+		assertThat(RateLimiter.Limit.parse(" 10 / 60 ")).isEqualTo(new RateLimiter.Limit(10, 60));
+		assertThatThrownBy(() -> RateLimiter.Limit.parse("10")).isInstanceOf(IllegalArgumentException.class);
+	}
+}
@@ -12,8 +12,10 @@ import org.polling.pollingapp.request.AuthResponse;
 import org.polling.pollingapp.request.LoginRequest;
 import org.polling.pollingapp.request.RegisterRequest;
 import org.polling.pollingapp.security.JwtUtil;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.polling.pollingapp.security.PasswordHasher;
+import org.springframework.dao.DataIntegrityViolationException;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -30,7 +32,7 @@ class AuthServiceTest {
 	private UserRepository userRepository;
 
 	@Mock
-	private PasswordEncoder passwordEncoder;
+	private PasswordHasher passwordHasher;
 
 	@Mock
 	private JwtUtil jwtUtil;
@@ -58,8 +60,8 @@ class AuthServiceTest {
 	void register_shouldReturnAuthResponse_whenValidRequest() {
 		// Arrange
 		when(userRepository.existsByEmail(anyString())).thenReturn(false);
-		when(userRepository.existsByUsername("test")).thenReturn(false);
-		when(passwordEncoder.encode(anyString())).thenReturn("hashedPassword");
+		when(userRepository.findUsernamesLike("test%")).thenReturn(List.of());
+		when(passwordHasher.encode(anyString())).thenReturn("hashedPassword");
 
 		User savedUser = new User();
 		savedUser.setId(1L);
@@ -80,7 +82,7 @@ class AuthServiceTest {
 		assertThat(response.getEmail()).isEqualTo("test@example.com");
 
 		// Verify password was encoded, not stored in plain text
-		verify(passwordEncoder).encode("Password1!x");
+		verify(passwordHasher).encode("Password1!x");
 		verify(userRepository).save(any(User.class));
 	}
 
@@ -97,10 +99,9 @@ class AuthServiceTest {
 	@Test
 	void register_shouldAppendSuffix_whenUsernameAlreadyExists() {
 		when(userRepository.existsByEmail(anyString())).thenReturn(false);
-		// "test" is taken, "test1" is free
-		when(userRepository.existsByUsername("test")).thenReturn(true);
-		when(userRepository.existsByUsername("test1")).thenReturn(false);
-		when(passwordEncoder.encode(anyString())).thenReturn("hashedPassword");
+		// "test" and "test2" are taken (names are compared in lower case), "test1" is free
+		when(userRepository.findUsernamesLike("test%")).thenReturn(List.of("Test", "tester", "test2"));
+		when(passwordHasher.encode(anyString())).thenReturn("hashedPassword");
 
 		User savedUser = new User();
 		savedUser.setId(2L);
@@ -114,7 +115,40 @@ class AuthServiceTest {
 		AuthResponse response = authService.register(registerRequest);
 
 		assertThat(response.getUsername()).isEqualTo("test1");
-		verify(userRepository).save(any(User.class));
+		verify(userRepository).save(argThat(user -> user.getUsername().equals("test1")));
+	}
+
+	@Test
+	void register_allocatesAgain_whenConcurrentRegistrationTookTheUsername() {
+		when(userRepository.existsByEmail(anyString())).thenReturn(false);
+		when(userRepository.findUsernamesLike("test%")).thenReturn(List.of()).thenReturn(List.of("test"));
+		when(passwordHasher.encode(anyString())).thenReturn("hashedPassword");
+
+		User savedUser = new User();
+		savedUser.setId(3L);
+		savedUser.setUsername("test1");
+		savedUser.setEmail("test@example.com");
+		when(userRepository.save(any(User.class))).thenThrow(new DataIntegrityViolationException("uk_users_username"))
+				.thenReturn(savedUser);
+
+		AuthResponse response = authService.register(registerRequest);
+
+		assertThat(response.getUsername()).isEqualTo("test1");
+		verify(userRepository).save(argThat(user -> user.getUsername().equals("test")));
+		verify(userRepository).save(argThat(user -> user.getUsername().equals("test1")));
+		// Hashed once, not once per attempt
+		verify(passwordHasher).encode("Password1!x");
+	}
+
+	@Test
+	void register_reportsDuplicateEmail_whenConcurrentRegistrationUsedIt() {
+		when(userRepository.existsByEmail(anyString())).thenReturn(false).thenReturn(true);
+		when(passwordHasher.encode(anyString())).thenReturn("hashedPassword");
+		when(userRepository.save(any(User.class))).thenThrow(new DataIntegrityViolationException("uk_users_email"));
+
+		assertThatThrownBy(() -> authService.register(registerRequest)).isInstanceOf(RuntimeException.class)
+				.hasMessage("Email is already registered!");
+		verify(userRepository, times(1)).save(any(User.class));
 	}
 
 	// --- Login Tests ---
@@ -128,7 +162,7 @@ class AuthServiceTest {
 		user.setPasswordHash("hashedPassword");
 
 		when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(user));
-		when(passwordEncoder.matches("Password1!x", "hashedPassword")).thenReturn(true);
+		when(passwordHasher.matches("Password1!x", "hashedPassword")).thenReturn(true);
 		when(jwtUtil.generateToken(1L, "test@example.com")).thenReturn("jwt-token");
 
 		AuthResponse response = authService.login(loginRequest);
@@ -154,9 +188,45 @@ class AuthServiceTest {
 		user.setPasswordHash("hashedPassword");
 
 		when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(user));
-		when(passwordEncoder.matches("Password1!x", "hashedPassword")).thenReturn(false);
+		when(passwordHasher.matches("Password1!x", "hashedPassword")).thenReturn(false);
 
 		assertThatThrownBy(() -> authService.login(loginRequest)).isInstanceOf(RuntimeException.class)
 				.hasMessage("Invalid email or password!");
 	}
+
+	@Test
+	void login_rehashesPassword_whenStoredCostDiffers() {
+		User user = new User();
+		user.setId(1L);
+		user.setEmail("test@example.com");
+		user.setPasswordHash("oldCostHash");
+
+		when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(user));
+		when(passwordHasher.matches("Password1!x", "oldCostHash")).thenReturn(true);
+		when(passwordHasher.needsRehash("oldCostHash")).thenReturn(true);
+		when(passwordHasher.encode("Password1!x")).thenReturn("newCostHash");
+
+		authService.login(loginRequest);
+
+		assertThat(user.getPasswordHash()).isEqualTo("newCostHash");
+		verify(userRepository).save(user);
+	}
+
+	@Test
+	void login_keepsOldHash_whenHashingPoolIsBusyForRehash() {
+		User user = new User();
+		user.setId(1L);
+		user.setEmail("test@example.com");
+		user.setPasswordHash("oldCostHash");
+
+		when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(user));
+		when(passwordHasher.matches("Password1!x", "oldCostHash")).thenReturn(true);
+		when(passwordHasher.needsRehash("oldCostHash")).thenReturn(true);
+		when(passwordHasher.encode("Password1!x")).thenThrow(new PasswordHasher.BusyException(1));
+		when(jwtUtil.generateToken(1L, "test@example.com")).thenReturn("jwt-token");
+
+		assertThat(authService.login(loginRequest).getToken()).isEqualTo("jwt-token");
+		assertThat(user.getPasswordHash()).isEqualTo("oldCostHash");
+		verify(userRepository, never()).save(any());
+	}
 }
@@ -0,0 +1,54 @@
+package org.polling.pollingapp.services;
+
+import org.junit.jupiter.api.Test;
+import org.polling.pollingapp.model.User;
+import org.polling.pollingapp.repositories.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Username allocation against H2: the prefix query and LIKE escaping
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class AuthServiceUsernameAllocationTest {
+
+	@Autowired
+	private AuthService authService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Test
+	void allocateUsername_picksSmallestFreeSuffix() {
+		save("alloc");
+		save("alloc1");
+		save("allocator");
+		save("alloc3");
+
+		assertThat(authService.allocateUsername("alloc")).isEqualTo("alloc2");
+		assertThat(authService.allocateUsername("allocx")).isEqualTo("allocx");
+	}
+
+	@Test
+	void allocateUsername_treatsLikeWildcardsInEmailPrefixLiterally() {
+		save("a1b_c");
+		save("a1bxc");
+		save("a1b%");
+
+		assertThat(authService.allocateUsername("a1b_c")).isEqualTo("a1b_c1");
+		assertThat(authService.allocateUsername("a1b_")).isEqualTo("a1b_");
+		assertThat(authService.allocateUsername("a1b!")).isEqualTo("a1b!");
+	}
+
+	private void save(String username) {
+		User user = new User();
+		user.setUsername(username);
+		user.setEmail(username + "@test.com");
+		user.setPasswordHash("hash");
+		userRepository.save(user);
+	}
+}
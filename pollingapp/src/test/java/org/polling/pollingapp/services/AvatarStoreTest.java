@@ -0,0 +1,96 @@
+package org.polling.pollingapp.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Unit tests for the content-addressed avatar files, written to a temporary directory
+class AvatarStoreTest {
+
+	@TempDir
+	private Path dir;
+
+	@Test
+	void store_writesOnceUnderHashWithSquareThumbnail() throws IOException {
+		AvatarStore store = new AvatarStore(dir.toString(), 100_000, 64);
+		byte[] png = png(200, 100);
+
+		String hash = store.store(png);
+
+		assertThat(hash).matches("[0-9a-f]{64}");
+		assertThat(store.store(png.clone())).isEqualTo(hash);
+		AvatarStore.Blob original = store.find(hash, false).orElseThrow();
+		assertThat(original.path()).isEqualTo(dir.resolve(hash.substring(0, 2)).resolve(hash));
+		assertThat(original.contentType()).isEqualTo("image/png");
+		assertThat(Files.readAllBytes(original.path())).isEqualTo(png);
+
+		AvatarStore.Blob thumbnail = store.find(hash, true).orElseThrow();
+		assertThat(thumbnail.path().getFileName().toString()).isEqualTo(hash + "-thumb.png");
+		BufferedImage image = ImageIO.read(thumbnail.path().toFile());
+		assertThat(image.getWidth()).isEqualTo(64);
+		assertThat(image.getHeight()).isEqualTo(64);
+		// Only the two images, no leftover temporary files
+		try (Stream<Path> files = Files.list(original.path().getParent())) {
+			assertThat(files.count()).isEqualTo(2);
+		}
+	}
+
+	@Test
+	void storeDataUrl_decodesBase64AndTrustsOnlyTheFileSignature() throws IOException {
+		AvatarStore store = new AvatarStore(dir.toString(), 100_000, 64);
+		byte[] png = png(10, 10);
+
+		// Declared as JPEG, served as what it is
+		String hash = store.storeDataUrl("data:image/jpeg;base64," + Base64.getEncoder().encodeToString(png));
+
+		assertThat(store.find(hash, false).orElseThrow().contentType()).isEqualTo("image/png");
+		assertThatThrownBy(() -> store.storeDataUrl("https://example.com/a.png"))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> store.storeDataUrl("data:image/png;base64,%%%"))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> store.storeDataUrl("data:text/html;base64,"
+				+ Base64.getEncoder().encodeToString("<script>".getBytes(StandardCharsets.UTF_8))))
+				.isInstanceOf(IllegalArgumentException.class).hasMessageContaining("PNG, JPEG, GIF or WebP");
+	}
+
+	@Test
+	void store_rejectsImagesOverMaxBytes() throws IOException {
+		AvatarStore store = new AvatarStore(dir.toString(), 100, 64);
+
+		assertThatThrownBy(() -> store.store(png(200, 200))).isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("at most");
+	}
+
+	@Test
+	void find_fallsBackToOriginalWithoutThumbnailAndIgnoresBadHashes() {
+		AvatarStore store = new AvatarStore(dir.toString(), 100_000, 64);
+		// ImageIO cannot decode WebP, so no thumbnail is made
+		byte[] webp = "RIFF\0\0\0\0WEBPVP8 ".getBytes(StandardCharsets.ISO_8859_1);
+
+		String hash = store.store(webp);
+
+		AvatarStore.Blob thumbnail = store.find(hash, true).orElseThrow();
+		assertThat(thumbnail.path().getFileName().toString()).isEqualTo(hash);
+		assertThat(thumbnail.contentType()).isEqualTo("image/webp");
+		assertThat(store.find("c".repeat(64), false)).isEmpty();
+		assertThat(store.find("../../etc/passwd", false)).isEmpty();
+	}
+
+	private static byte[] png(int width, int height) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", out);
+		return out.toByteArray();
+	}
+}
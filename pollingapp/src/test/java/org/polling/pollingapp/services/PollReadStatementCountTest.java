@@ -0,0 +1,169 @@
+package org.polling.pollingapp.services;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.polling.pollingapp.model.OptionVote;
+import org.polling.pollingapp.model.Poll;
+import org.polling.pollingapp.model.User;
+import org.polling.pollingapp.repositories.PollRepository;
+import org.polling.pollingapp.repositories.UserRepository;
+import org.polling.pollingapp.request.PollPage;
+import org.polling.pollingapp.security.AuthUser;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Poll reads must cost a fixed number of SQL statements however many polls, options and owners
+// they return. Every statement prepared on the DataSource is counted, JPA and JDBC alike.
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:read-statements;MODE=MySQL;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+@Transactional
+class PollReadStatementCountTest {
+
+	private static final AtomicInteger statements = new AtomicInteger();
+	private static final List<String> preparedSql = new CopyOnWriteArrayList<>();
+
+	@TestConfiguration
+	static class CountingDataSourceConfig {
+
+		@Bean
+		static BeanPostProcessor countingDataSource() {
+			return new BeanPostProcessor() {
+				@Override
+				public Object postProcessAfterInitialization(Object bean, String beanName) {
+					return bean instanceof DataSource dataSource ? new CountingDataSource(dataSource) : bean;
+				}
+			};
+		}
+	}
+
+	@Autowired
+	private PollService pollService;
+
+	@Autowired
+	private PollRepository pollRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@BeforeEach
+	void setUp() {
+		pollRepository.deleteAll();
+		// 12 polls with 3 options each, spread over 4 owners
+		for (int o = 0; o < 4; o++) {
+			User owner = userRepository.save(user("statements-" + o));
+			for (int p = 0; p < 3; p++) {
+				Poll poll = new Poll();
+				poll.setQuestion("Poll " + o + "-" + p);
+				for (String text : List.of("A", "B", "C")) {
+					OptionVote option = new OptionVote();
+					option.setOptText(text);
+					poll.getOptions().add(option);
+				}
+				pollService.savePoll(poll, AuthUser.of(owner));
+			}
+		}
+		entityManager.flush();
+		entityManager.clear();
+	}
+
+	@Test
+	void listPolls_usesTwoStatementsPerPage() {
+		statements.set(0);
+		PollPage page = pollService.listPolls(null, 10);
+
+		assertThat(page.getPolls()).hasSize(10).allMatch(p -> p.options().size() == 3 && p.owner() != null);
+		assertThat(statements.get()).isEqualTo(2);
+
+		statements.set(0);
+		assertThat(pollService.listPolls(page.getNextCursor(), 10).getPolls()).hasSize(2);
+		assertThat(statements.get()).isEqualTo(2);
+	}
+
+	@Test
+	void getPollById_usesTwoStatements() {
+		Long id = pollRepository.findAll().get(0).getId();
+		entityManager.clear();
+
+		statements.set(0);
+		assertThat(pollService.getPollById(id)).isPresent();
+		assertThat(statements.get()).isEqualTo(2);
+	}
+
+	// Owners are loaded with every poll; the LONGTEXT of legacy avatars must not come along
+	@Test
+	void pollReads_doNotSelectLegacyAvatars() {
+		preparedSql.clear();
+		pollService.listPolls(null, 10);
+		pollService.getPollById(pollRepository.findAll().get(0).getId());
+
+		assertThat(preparedSql).isNotEmpty().noneMatch(sql -> sql.toLowerCase().contains("avatar_url"));
+	}
+
+	private static User user(String name) {
+		User user = new User();
+		user.setUsername(name);
+		user.setEmail(name + "@test.com");
+		user.setPasswordHash("hash");
+		return user;
+	}
+
+	// Hands out connections that count the statements created on them
+	private static class CountingDataSource extends DelegatingDataSource {
+
+		private static final Set<String> STATEMENT_METHODS = Set.of("prepareStatement", "prepareCall",
+				"createStatement");
+
+		CountingDataSource(DataSource target) {
+			super(target);
+		}
+
+		@Override
+		public Connection getConnection() throws SQLException {
+			return counting(super.getConnection());
+		}
+
+		@Override
+		public Connection getConnection(String username, String password) throws SQLException {
+			return counting(super.getConnection(username, password));
+		}
+
+		private static Connection counting(Connection connection) {
+			return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+					new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+						if (STATEMENT_METHODS.contains(method.getName())) {
+							statements.incrementAndGet();
+							if (args != null && args.length > 0 && args[0] instanceof String sql) {
+								preparedSql.add(sql);
+							}
+						}
+						try {
+							return method.invoke(connection, args);
+						} catch (InvocationTargetException e) {
+							throw e.getCause();
+						}
+					});
+		}
+	}
+}
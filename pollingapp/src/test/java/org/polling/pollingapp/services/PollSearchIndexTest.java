@@ -0,0 +1,122 @@
+package org.polling.pollingapp.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.polling.pollingapp.repositories.PollReadRepository;
+import org.polling.pollingapp.repositories.PollReadRepository.IdRange;
+import org.polling.pollingapp.repositories.PollReadRepository.SearchDocument;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+// Unit tests for the poll search index; no transaction is active, so changes are indexed immediately
+class PollSearchIndexTest {
+
+	private final PollReadRepository pollReadRepository = mock(PollReadRepository.class);
+
+	private final PollSearchIndex index = new PollSearchIndex(pollReadRepository, new SimpleMeterRegistry(), 2, 2,
+			100);
+
+	@Test
+	void search_matchesAllWordsAsWordsOrPrefixes() {
+		index.index(1L, "Favourite color?", List.of("Red", "Blue"));
+		index.index(2L, "Favourite food?", List.of("Pizza", "Pasta"));
+		index.index(3L, "Best colour scheme", List.of("Dark", "Light"));
+
+		assertThat(index.search("favourite", 0, 10)).containsExactlyInAnyOrder(1L, 2L);
+		assertThat(index.search("FAV col", 0, 10)).containsExactly(1L);
+		assertThat(index.search("colo", 0, 10)).containsExactlyInAnyOrder(1L, 3L);
+		assertThat(index.search("pa", 0, 10)).containsExactly(2L);
+		assertThat(index.search("favourite green", 0, 10)).isEmpty();
+	}
+
+	@Test
+	void search_ranksQuestionAndWholeWordMatchesFirstThenNewest() {
+		index.index(1L, "Which pet?", List.of("Cat", "Dog"));
+		index.index(2L, "Cat or dog?", List.of("Cat", "Dog"));
+		index.index(3L, "Which animal?", List.of("Cats", "Dogs"));
+		index.index(4L, "Which pet?", List.of("Cat", "Parrot"));
+
+		// 2: question + option; 4 and 1: option, newest first; 3: prefix of "cats" only
+		assertThat(index.search("cat", 0, 10)).containsExactly(2L, 4L, 1L, 3L);
+		assertThat(index.search("cat", 1, 2)).containsExactly(4L, 1L);
+		assertThat(index.search("cat", 4, 2)).isEmpty();
+	}
+
+	@Test
+	void search_ignoresCaseAndAccents() {
+		index.index(1L, "Café or thé?", List.of("Café", "Thé"));
+
+		assertThat(index.search("CAFE", 0, 10)).containsExactly(1L);
+		assertThat(index.search("the", 0, 10)).containsExactly(1L);
+	}
+
+	@Test
+	void index_updateReplacesOldWordsAndRemoveDropsPoll() {
+		index.index(1L, "Favourite color?", List.of("Red", "Blue"));
+		index.index(1L, "Favourite season?", List.of("Summer", "Winter"));
+
+		assertThat(index.search("color", 0, 10)).isEmpty();
+		assertThat(index.search("summer", 0, 10)).containsExactly(1L);
+
+		index.remove(1L);
+		assertThat(index.search("favourite", 0, 10)).isEmpty();
+	}
+
+	@Test
+	void search_queryWithoutWords_throwsException() {
+		assertThatThrownBy(() -> index.search(" ?! ", 0, 10)).isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("must contain a word");
+	}
+
+	@Test
+	void rebuild_loadsAllChunksAndKeepsNewerWrites() {
+		when(pollReadRepository.findIdRange()).thenReturn(Optional.of(new IdRange(1, 5)));
+		when(pollReadRepository.findSearchDocuments(anyLong(), anyLong())).thenAnswer(invocation -> {
+			long fromId = invocation.getArgument(0);
+			long toId = invocation.getArgument(1);
+			return LongStream.range(fromId, toId)
+					.mapToObj(id -> new SearchDocument(id, "Old question " + id, List.of("Yes", "No"))).toList();
+		});
+		// Indexed by a write that is newer than what the rebuild reads
+		index.index(2L, "New question", List.of("Yes", "No"));
+
+		index.rebuild();
+
+		assertThat(index.search("yes", 0, 10)).containsExactly(5L, 4L, 3L, 2L, 1L);
+		assertThat(index.search("old", 0, 10)).containsExactly(5L, 4L, 3L, 1L);
+		assertThat(index.search("new", 0, 10)).containsExactly(2L);
+		assertThat(index.isAvailable()).isTrue();
+	}
+
+	@Test
+	void rebuild_failureLeavesIndexUnavailableUntilARetrySucceeds() {
+		when(pollReadRepository.findIdRange()).thenThrow(new DataAccessResourceFailureException("database down"))
+				.thenReturn(Optional.of(new IdRange(1, 1)));
+		when(pollReadRepository.findSearchDocuments(1, 2))
+				.thenReturn(List.of(new SearchDocument(1L, "Favourite color?", List.of("Red", "Blue"))));
+
+		index.rebuild();
+		assertThat(index.isAvailable()).isFalse();
+
+		index.retryRebuild();
+		assertThat(index.isAvailable()).isTrue();
+		assertThat(index.search("color", 0, 10)).containsExactly(1L);
+	}
+
+	@Test
+	void retryRebuild_doesNothingWithoutAFailedRebuild() {
+		index.retryRebuild();
+
+		verifyNoInteractions(pollReadRepository);
+	}
+}
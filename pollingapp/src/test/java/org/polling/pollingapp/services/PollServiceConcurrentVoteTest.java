@@ -0,0 +1,171 @@
+package org.polling.pollingapp.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.polling.pollingapp.model.OptionVote;
+import org.polling.pollingapp.model.Poll;
+import org.polling.pollingapp.model.User;
+import org.polling.pollingapp.repositories.UserRepository;
+import org.polling.pollingapp.security.AuthUser;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Stress test for the optimistic commit mode: many threads vote on one poll through PollService,
+// alone or mixed with batched applyVotes, and afterwards every option's tally must equal the
+// number of votes rows pointing at it.
+// Uses its own in-memory database because the votes are really committed.
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:concurrent-votes;MODE=MySQL;DB_CLOSE_DELAY=-1",
+		"polls.votes.commit-mode=optimistic", "polls.votes.optimistic.max-attempts=200",
+		"polls.votes.optimistic.max-backoff-ms=20"})
+@ActiveProfiles("test")
+class PollServiceConcurrentVoteTest {
+
+	private static final int THREADS = 8;
+	private static final int USERS_PER_THREAD = 25;
+	private static final int VOTES_PER_THREAD = 250;
+	private static final int OPTIONS = 4;
+	private static final int BATCH_SIZE = 5;
+
+	@Autowired
+	private PollService pollService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Test
+	void doVote_parallelVotes_keepTalliesEqualToVoteRows() throws Exception {
+		Long pollId = createPoll("stress");
+		List<List<User>> usersByThread = createUsers("stress");
+
+		runThreads(usersByThread, (users, random) -> {
+			for (int v = 0; v < VOTES_PER_THREAD; v++) {
+				User voter = users.get(random.nextInt(users.size()));
+				pollService.doVote(pollId, random.nextInt(OPTIONS), AuthUser.of(voter));
+			}
+		});
+
+		assertTalliesMatchVoteRows(pollId);
+		// The threads really did collide, and the version check resolved it
+		assertThat(meterRegistry.find("polls.votes.commit.conflicts").tag("poll", String.valueOf(pollId)).counters())
+				.extracting(Counter::count).isNotEmpty().allMatch(count -> count > 0);
+	}
+
+	@Test
+	void doVoteAndApplyVotes_parallelVotes_keepTalliesEqualToVoteRows() throws Exception {
+		Long pollId = createPoll("mixed");
+		List<List<User>> usersByThread = createUsers("mixed");
+
+		// Half of the threads vote one at a time with optimistic commits, the other half in batches
+		// (like the batch endpoint and async ingestion), whose in-place UPDATEs bump Poll.version
+		AtomicInteger thread = new AtomicInteger();
+		runThreads(usersByThread, (users, random) -> {
+			boolean batches = thread.getAndIncrement() % 2 == 1;
+			for (int v = 0; v < VOTES_PER_THREAD; v += BATCH_SIZE) {
+				if (batches) {
+					List<VoteCommand> batch = new ArrayList<>();
+					for (int b = 0; b < BATCH_SIZE; b++) {
+						User voter = users.get(random.nextInt(users.size()));
+						batch.add(new VoteCommand(pollId, random.nextInt(OPTIONS), voter.getId()));
+					}
+					pollService.applyVotes(batch);
+				} else {
+					for (int b = 0; b < BATCH_SIZE; b++) {
+						User voter = users.get(random.nextInt(users.size()));
+						pollService.doVote(pollId, random.nextInt(OPTIONS), AuthUser.of(voter));
+					}
+				}
+			}
+		});
+
+		assertTalliesMatchVoteRows(pollId);
+	}
+
+	private interface Voting {
+		void vote(List<User> users, ThreadLocalRandom random);
+	}
+
+	// Each thread votes for its own users, so a user's votes never race each other;
+	// all threads still race on the same poll
+	private void runThreads(List<List<User>> usersByThread, Voting voting) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (List<User> users : usersByThread) {
+				futures.add(executor.submit(() -> voting.vote(users, ThreadLocalRandom.current())));
+			}
+			for (Future<?> future : futures) {
+				future.get(); // rethrows any vote that failed
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private Long createPoll(String name) {
+		User owner = userRepository.save(user(name + "-owner"));
+		Poll poll = new Poll();
+		poll.setQuestion("Stress?");
+		for (int i = 0; i < OPTIONS; i++) {
+			OptionVote option = new OptionVote();
+			option.setOptText("Option " + i);
+			poll.getOptions().add(option);
+		}
+		return pollService.savePoll(poll, AuthUser.of(owner)).getId();
+	}
+
+	private List<List<User>> createUsers(String name) {
+		List<List<User>> usersByThread = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			List<User> users = new ArrayList<>();
+			for (int u = 0; u < USERS_PER_THREAD; u++) {
+				users.add(userRepository.save(user(name + "-" + t + "-" + u)));
+			}
+			usersByThread.add(users);
+		}
+		return usersByThread;
+	}
+
+	private void assertTalliesMatchVoteRows(Long pollId) {
+		Map<Integer, Long> voteRows = new HashMap<>();
+		jdbcTemplate.query("SELECT option_index, COUNT(*) AS votes FROM votes WHERE poll_id = ? GROUP BY option_index",
+				rs -> {
+					voteRows.put(rs.getInt("option_index"), rs.getLong("votes"));
+				}, pollId);
+		List<Long> tallies = jdbcTemplate.queryForList(
+				"SELECT vote_count FROM poll_options WHERE poll_id = ? ORDER BY option_index", Long.class, pollId);
+
+		for (int i = 0; i < OPTIONS; i++) {
+			assertThat(tallies.get(i)).as("tally of option %d", i).isEqualTo(voteRows.getOrDefault(i, 0L));
+		}
+		assertThat(tallies.stream().mapToLong(Long::longValue).sum()).isEqualTo((long) THREADS * USERS_PER_THREAD);
+	}
+
+	private static User user(String name) {
+		User user = new User();
+		user.setUsername(name);
+		user.setEmail(name + "@test.com");
+		user.setPasswordHash("hash");
+		return user;
+	}
+}
@@ -0,0 +1,144 @@
+package org.polling.pollingapp.services;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.polling.pollingapp.model.OptionVote;
+import org.polling.pollingapp.model.Poll;
+import org.polling.pollingapp.model.User;
+import org.polling.pollingapp.repositories.PollReadRepository;
+import org.polling.pollingapp.repositories.PollRepository;
+import org.polling.pollingapp.repositories.UserRepository;
+import org.polling.pollingapp.request.PollPage;
+import org.polling.pollingapp.request.PollView;
+import org.polling.pollingapp.security.AuthUser;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Keyset pagination of poll listings against H2
+@SpringBootTest(properties = "polls.list.max-page-size=3")
+@ActiveProfiles("test")
+@Transactional
+class PollServiceListingTest {
+
+	private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+	@Autowired
+	private PollService pollService;
+
+	@Autowired
+	private PollRepository pollRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private PollReadRepository pollReadRepository;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	private User alice;
+	private User bob;
+
+	@BeforeEach
+	void setUp() {
+		pollRepository.deleteAll();
+		alice = userRepository.save(user("listing-alice"));
+		bob = userRepository.save(user("listing-bob"));
+		// a1 and a2 share a timestamp, so their order is decided by id
+		savePoll("a0", alice, T0);
+		savePoll("a1", alice, T0.plusMinutes(1));
+		savePoll("a2", alice, T0.plusMinutes(1));
+		savePoll("b0", bob, T0.plusMinutes(2));
+		savePoll("a3", alice, T0.plusMinutes(3));
+		entityManager.flush();
+		entityManager.clear();
+	}
+
+	@Test
+	void listPolls_pagesNewestFirstWithoutGapsOrRepeats() {
+		assertThat(allPages(null, 2)).containsExactly(List.of("a3", "b0"), List.of("a2", "a1"), List.of("a0"));
+	}
+
+	@Test
+	void listPollsByOwner_onlyPagesThroughOwnersPolls() {
+		assertThat(allPages(alice, 3)).containsExactly(List.of("a3", "a2", "a1"), List.of("a0"));
+		assertThat(allPages(bob, 3)).containsExactly(List.of("b0"));
+	}
+
+	@Test
+	void listPolls_pageSizeIsCapped() {
+		PollPage page = pollService.listPolls(null, 50);
+
+		assertThat(page.getPolls()).hasSize(3);
+		assertThat(page.getNextCursor()).isNotNull();
+		assertThat(pollService.listPolls(null, null).getPolls()).hasSize(5);
+	}
+
+	@Test
+	void listPolls_invalidCursorOrLimit_throwsException() {
+		assertThatThrownBy(() -> pollService.listPolls("not-a-cursor", null))
+				.isInstanceOf(IllegalArgumentException.class).hasMessageContaining("Invalid cursor");
+		assertThatThrownBy(() -> pollService.listPolls(null, 0)).isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("Page size");
+	}
+
+	// The database search that stands in while the search index is unavailable
+	@Test
+	void findIdsContainingWords_matchesEveryWordInQuestionOrOptionsNewestFirst() {
+		savePoll("Lunch today", bob, T0.plusMinutes(4), "Pizza", "Pasta");
+		entityManager.flush();
+
+		assertThat(questions(pollReadRepository.findIdsContainingWords(List.of("a"), 1, 3)))
+				.containsExactly("a3", "a2", "a1");
+		assertThat(questions(pollReadRepository.findIdsContainingWords(List.of("lunch", "pizz"), 0, 10)))
+				.containsExactly("Lunch today");
+		assertThat(pollReadRepository.findIdsContainingWords(List.of("lunch", "salad"), 0, 10)).isEmpty();
+	}
+
+	private List<String> questions(List<Long> pollIds) {
+		return pollIds.stream().map(id -> pollRepository.findById(id).orElseThrow().getQuestion()).toList();
+	}
+
+	private List<List<String>> allPages(User owner, int limit) {
+		List<List<String>> pages = new ArrayList<>();
+		String cursor = null;
+		do {
+			PollPage page = owner == null ? pollService.listPolls(cursor, limit)
+					: pollService.listPollsByOwner(owner.getId(), cursor, limit);
+			pages.add(page.getPolls().stream().map(PollView::question).toList());
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+		return pages;
+	}
+
+	private void savePoll(String question, User owner, LocalDateTime createdAt, String... options) {
+		Poll poll = new Poll();
+		poll.setQuestion(question);
+		poll.setCreatedAt(createdAt);
+		for (String text : options) {
+			OptionVote option = new OptionVote();
+			option.setOptText(text);
+			poll.getOptions().add(option);
+		}
+		pollService.savePoll(poll, AuthUser.of(owner));
+	}
+
+	private static User user(String name) {
+		User user = new User();
+		user.setUsername(name);
+		user.setEmail(name + "@test.com");
+		user.setPasswordHash("hash");
+		return user;
+	}
+}
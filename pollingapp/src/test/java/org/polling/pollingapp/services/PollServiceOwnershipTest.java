@@ -9,9 +9,17 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.polling.pollingapp.model.OptionVote;
 import org.polling.pollingapp.model.Poll;
 import org.polling.pollingapp.model.User;
+import org.polling.pollingapp.repositories.OptionTallyRepository;
+import org.polling.pollingapp.repositories.PollReadRepository;
+import org.polling.pollingapp.repositories.PollReadRepository.PollRow;
 import org.polling.pollingapp.repositories.PollRepository;
+import org.polling.pollingapp.repositories.UserRepository;
+import org.polling.pollingapp.repositories.VoteEventRepository;
 import org.polling.pollingapp.repositories.VoteRecordRepository;
+import org.polling.pollingapp.request.PollPage;
+import org.polling.pollingapp.security.AuthUser;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -19,6 +27,7 @@ import java.util.Optional;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,9 +36,33 @@ class PollServiceOwnershipTest {
 	@Mock
 	private PollRepository pollRepository;
 
+	@Mock
+	private PollReadRepository pollReadRepository;
+
 	@Mock
 	private VoteRecordRepository voteRecordRepository;
 
+	@Mock
+	private VoteTallyBuffer voteTallyBuffer;
+
+	@Mock
+	private VoteEventRepository voteEventRepository;
+
+	@Mock
+	private OptionTallyRepository optionTallyRepository;
+
+	@Mock
+	private PollViewCache pollViewCache;
+
+	@Mock
+	private TrendingService trendingService;
+
+	@Mock
+	private PollSearchIndex pollSearchIndex;
+
+	@Mock
+	private UserRepository userRepository;
+
 	@InjectMocks
 	private PollService pollService;
 
@@ -68,22 +101,55 @@ class PollServiceOwnershipTest {
 		Poll newPoll = new Poll();
 		newPoll.setQuestion("New poll?");
 
+		when(userRepository.findById(1L)).thenReturn(Optional.of(owner));
 		when(pollRepository.save(any(Poll.class))).thenReturn(newPoll);
 
-		Poll result = pollService.savePoll(newPoll, owner);
+		Poll result = pollService.savePoll(newPoll, AuthUser.of(owner));
 
 		assertThat(result.getOwner()).isEqualTo(owner);
 		verify(pollRepository).save(newPoll);
+		verify(pollSearchIndex).index(null, "New poll?", List.of());
+	}
+
+	@Test
+	void savePoll_counterShardsOutOfRange_throwsException() {
+		Poll newPoll = new Poll();
+		newPoll.setCounterShards(0);
+
+		assertThatThrownBy(() -> pollService.savePoll(newPoll, AuthUser.of(owner)))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("Counter shards");
+
+		newPoll.setCounterShards(65);
+		assertThatThrownBy(() -> pollService.savePoll(newPoll, AuthUser.of(owner)))
+				.isInstanceOf(IllegalArgumentException.class);
+		verify(pollRepository, never()).save(any());
+	}
+
+	// A failed startup rebuild leaves the search index unavailable; searches then read the database
+	@Test
+	void searchPolls_indexUnavailable_searchesTheDatabase() {
+		when(pollSearchIndex.isAvailable()).thenReturn(false);
+		when(pollReadRepository.findIdsContainingWords(List.of("cafe", "color"), 0, 21)).thenReturn(List.of(1L));
+		when(pollReadRepository.findByIds(List.of(1L)))
+				.thenReturn(List.of(new PollRow(1L, "Café color?", 1, LocalDateTime.now(), 1L, "owner")));
+
+		PollPage result = pollService.searchPolls("Café COLOR?", null, null);
+
+		assertThat(result.getPolls()).extracting(view -> view.id()).containsExactly(1L);
+		verify(pollSearchIndex, never()).search(any(), anyInt(), anyInt());
 	}
 
 	@Test
-	void getPollsByOwner_returnsPollsForOwner() {
-		when(pollRepository.findByOwnerId(1L)).thenReturn(List.of(poll));
+	void listPollsByOwner_returnsPollsForOwner() {
+		when(pollReadRepository.findPage(1L, null, null, 21))
+				.thenReturn(List.of(new PollRow(1L, "Test question?", 1, LocalDateTime.now(), 1L, "owner")));
 
-		List<Poll> result = pollService.getPollsByOwner(1L);
+		PollPage result = pollService.listPollsByOwner(1L, null, null);
 
-		assertThat(result).hasSize(1);
-		assertThat(result.get(0).getOwner().getId()).isEqualTo(1L);
+		assertThat(result.getPolls()).hasSize(1);
+		assertThat(result.getPolls().get(0).owner().id()).isEqualTo(1L);
+		assertThat(result.getNextCursor()).isNull();
 	}
 
 	@Test
@@ -95,17 +161,55 @@ class PollServiceOwnershipTest {
 		when(pollRepository.findById(1L)).thenReturn(Optional.of(poll));
 		when(pollRepository.save(any(Poll.class))).thenReturn(poll);
 
-		Poll result = pollService.updatePoll(1L, updatedData, owner);
+		Poll result = pollService.updatePoll(1L, updatedData, AuthUser.of(owner));
 
 		assertThat(result.getQuestion()).isEqualTo("Updated question?");
 		verify(pollRepository).save(poll);
+		verify(pollViewCache).invalidate(1L);
+		verify(pollSearchIndex).index(1L, "Updated question?", List.of("Option A", "Option B"));
+	}
+
+	// Buffered deltas count votes on the old options and must not be flushed onto the new ones;
+	// they are discarded before the options are touched
+	@Test
+	void updatePoll_discardsBufferedVoteDeltasBeforeReplacingOptions() {
+		Poll updatedData = new Poll();
+		updatedData.setQuestion("Updated question?");
+		updatedData.setOptions(poll.getOptions());
+
+		when(pollRepository.findById(1L)).thenReturn(Optional.of(poll));
+		when(pollRepository.save(any(Poll.class))).thenReturn(poll);
+
+		pollService.updatePoll(1L, updatedData, AuthUser.of(owner));
+
+		var inOrder = inOrder(voteTallyBuffer, pollRepository);
+		inOrder.verify(voteTallyBuffer).discard(1L);
+		inOrder.verify(pollRepository).save(poll);
+	}
+
+	@Test
+	void updatePoll_shardedPoll_dropsCounterShardsWithReplacedOptions() {
+		poll.setCounterShards(8);
+		Poll updatedData = new Poll();
+		updatedData.setQuestion("Updated question?");
+		updatedData.setOptions(poll.getOptions());
+		updatedData.setCounterShards(2);
+
+		when(pollRepository.findById(1L)).thenReturn(Optional.of(poll));
+		when(pollRepository.save(any(Poll.class))).thenReturn(poll);
+
+		Poll result = pollService.updatePoll(1L, updatedData, AuthUser.of(owner));
+
+		assertThat(result.getCounterShards()).isEqualTo(2);
+		verify(optionTallyRepository).deleteShards(1L);
 	}
 
 	@Test
 	void updatePoll_nonOwnerThrowsException() {
 		when(pollRepository.findById(1L)).thenReturn(Optional.of(poll));
 
-		assertThatThrownBy(() -> pollService.updatePoll(1L, new Poll(), otherUser)).isInstanceOf(RuntimeException.class)
+		assertThatThrownBy(() -> pollService.updatePoll(1L, new Poll(), AuthUser.of(otherUser)))
+				.isInstanceOf(RuntimeException.class)
 				.hasMessageContaining("not authorized to edit");
 
 		verify(pollRepository, never()).save(any());
@@ -115,7 +219,8 @@ class PollServiceOwnershipTest {
 	void updatePoll_pollNotFoundThrowsException() {
 		when(pollRepository.findById(99L)).thenReturn(Optional.empty());
 
-		assertThatThrownBy(() -> pollService.updatePoll(99L, new Poll(), owner)).isInstanceOf(RuntimeException.class)
+		assertThatThrownBy(() -> pollService.updatePoll(99L, new Poll(), AuthUser.of(owner)))
+				.isInstanceOf(RuntimeException.class)
 				.hasMessageContaining("Poll not found");
 	}
 
@@ -123,16 +228,22 @@ class PollServiceOwnershipTest {
 	void deletePoll_ownerCanDelete() {
 		when(pollRepository.findById(1L)).thenReturn(Optional.of(poll));
 
-		pollService.deletePoll(1L, owner);
+		pollService.deletePoll(1L, AuthUser.of(owner));
 
+		verify(optionTallyRepository).deleteShards(1L);
+		verify(voteEventRepository).deleteForPoll(1L);
 		verify(pollRepository).deleteById(1L);
+		verify(pollViewCache).invalidate(1L);
+		verify(trendingService).remove(1L);
+		verify(pollSearchIndex).remove(1L);
 	}
 
 	@Test
 	void deletePoll_nonOwnerThrowsException() {
 		when(pollRepository.findById(1L)).thenReturn(Optional.of(poll));
 
-		assertThatThrownBy(() -> pollService.deletePoll(1L, otherUser)).isInstanceOf(RuntimeException.class)
+		assertThatThrownBy(() -> pollService.deletePoll(1L, AuthUser.of(otherUser)))
+				.isInstanceOf(RuntimeException.class)
 				.hasMessageContaining("not authorized to delete");
 
 		verify(pollRepository, never()).deleteById(any());
@@ -142,7 +253,7 @@ class PollServiceOwnershipTest {
 	void deletePoll_pollNotFoundThrowsException() {
 		when(pollRepository.findById(99L)).thenReturn(Optional.empty());
 
-		assertThatThrownBy(() -> pollService.deletePoll(99L, owner)).isInstanceOf(RuntimeException.class)
+		assertThatThrownBy(() -> pollService.deletePoll(99L, AuthUser.of(owner))).isInstanceOf(RuntimeException.class)
 				.hasMessageContaining("Poll not found");
 	}
 }
@@ -0,0 +1,262 @@
+package org.polling.pollingapp.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.polling.pollingapp.model.User;
+import org.polling.pollingapp.repositories.OptionTallyRepository;
+import org.polling.pollingapp.repositories.OptionTallyRepository.Delta;
+import org.polling.pollingapp.repositories.OptionTallyRepository.ShardDelta;
+import org.polling.pollingapp.repositories.PollRepository;
+import org.polling.pollingapp.repositories.UserRepository;
+import org.polling.pollingapp.repositories.VoteRecordBatchRepository;
+import org.polling.pollingapp.repositories.VoteRecordBatchRepository.VoteRow;
+import org.polling.pollingapp.repositories.VoteEventRepository;
+import org.polling.pollingapp.repositories.VoteEventRepository.NewEvent;
+import org.polling.pollingapp.repositories.VoteRecordRepository;
+import org.polling.pollingapp.request.Vote;
+import org.polling.pollingapp.request.VoteResult;
+import org.polling.pollingapp.security.AuthUser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PollServiceVoteBatchTest {
+
+	@Mock
+	private PollRepository pollRepository;
+
+	@Mock
+	private VoteRecordRepository voteRecordRepository;
+
+	@Mock
+	private VoteTallyBuffer voteTallyBuffer;
+
+	@Mock
+	private VoteEventRepository voteEventRepository;
+
+	@Mock
+	private VoteRecordBatchRepository voteRecordBatchRepository;
+
+	@Mock
+	private OptionTallyRepository optionTallyRepository;
+
+	@Mock
+	private PollViewCache pollViewCache;
+
+	@Mock
+	private TrendingService trendingService;
+
+	@Mock
+	private UserRepository userRepository;
+
+	@InjectMocks
+	private PollService pollService;
+
+	private User voter;
+
+	@BeforeEach
+	void setUp() {
+		voter = new User();
+		voter.setId(10L);
+	}
+
+	@Test
+	void doVoteBatch_appliesItemsInOrderWithOneLookupPerTable() {
+		// Poll 1 has 3 options and an existing vote on option 0; poll 2 has 2 options
+		when(pollRepository.countOptions(any())).thenReturn(List.of(optionCount(1L, 3), optionCount(2L, 2)));
+		when(voteRecordRepository.findChoices(any(), any())).thenReturn(List.of(choice(1L, 0)));
+
+		List<VoteResult> results = pollService.doVoteBatch(
+				List.of(vote(1L, 0), vote(1L, 2), vote(2L, 1), vote(2L, 5), vote(3L, 0)), AuthUser.of(voter));
+
+		assertThat(results).extracting(VoteResult::getStatus).containsExactly(VoteResult.Status.UNCHANGED,
+				VoteResult.Status.APPLIED, VoteResult.Status.APPLIED, VoteResult.Status.INVALID_OPTION,
+				VoteResult.Status.POLL_NOT_FOUND);
+
+		verify(pollRepository, times(1)).countOptions(any());
+		verify(voteRecordRepository, times(1)).findChoices(any(), any());
+		verify(voteRecordBatchRepository).insertAll(List.of(new VoteRow(2L, 10L, 1)));
+		verify(voteRecordBatchRepository).updateAll(List.of(new VoteRow(1L, 10L, 2)));
+		verify(optionTallyRepository).applyDeltas(argThat(deltas -> deltas.size() == 3
+				&& deltas.containsAll(List.of(new Delta(1L, 0, -1), new Delta(1L, 2, 1), new Delta(2L, 1, 1)))));
+	}
+
+	@Test
+	void doVoteBatch_repeatedItemsForOnePoll_netOutTheirDeltas() {
+		when(pollRepository.countOptions(any())).thenReturn(List.of(optionCount(1L, 3)));
+		when(voteRecordRepository.findChoices(any(), any())).thenReturn(Collections.emptyList());
+
+		List<VoteResult> results = pollService.doVoteBatch(List.of(vote(1L, 0), vote(1L, 1), vote(1L, 1)),
+				AuthUser.of(voter));
+
+		assertThat(results).extracting(VoteResult::getStatus).containsExactly(VoteResult.Status.APPLIED,
+				VoteResult.Status.APPLIED, VoteResult.Status.UNCHANGED);
+		verify(voteRecordBatchRepository).insertAll(List.of(new VoteRow(1L, 10L, 1)));
+		verify(optionTallyRepository).applyDeltas(List.of(new Delta(1L, 1, 1)));
+	}
+
+	@Test
+	void doVoteBatch_writeBehind_buffersDeltas() {
+		when(voteTallyBuffer.isEnabled()).thenReturn(true);
+		when(pollRepository.countOptions(any())).thenReturn(List.of(optionCount(1L, 2)));
+		when(voteRecordRepository.findChoices(any(), any())).thenReturn(Collections.emptyList());
+
+		pollService.doVoteBatch(List.of(vote(1L, 1)), AuthUser.of(voter));
+
+		verify(voteTallyBuffer).recordDeltas(List.of(new Delta(1L, 1, 1)));
+		verify(optionTallyRepository, never()).applyDeltas(any());
+	}
+
+	@Test
+	void doVoteBatch_shardedPoll_writesNetDeltasToOneCounterSlot() {
+		when(pollRepository.countOptions(any())).thenReturn(List.of(optionCount(1L, 3, 8), optionCount(2L, 2)));
+		when(voteRecordRepository.findChoices(any(), any())).thenReturn(List.of(choice(1L, 0)));
+
+		pollService.doVoteBatch(List.of(vote(1L, 2), vote(2L, 1)), AuthUser.of(voter));
+
+		verify(optionTallyRepository).applyDeltas(List.of(new Delta(2L, 1, 1)));
+		verify(optionTallyRepository).applyShardDeltas(argThat(deltas -> deltas.size() == 2
+				&& deltas.stream().allMatch(d -> d.pollId().equals(1L) && d.shard() == deltas.get(0).shard())
+				&& deltas.get(0).shard() >= 0 && deltas.get(0).shard() < 8
+				&& deltas.stream().mapToLong(ShardDelta::delta).sum() == 0));
+	}
+
+	@Test
+	void doVoteBatch_withoutPollIds_skipsDatabase() {
+		List<VoteResult> results = pollService.doVoteBatch(List.of(vote(null, 0)), AuthUser.of(voter));
+
+		assertThat(results).extracting(VoteResult::getStatus).containsExactly(VoteResult.Status.POLL_NOT_FOUND);
+		verify(pollRepository, never()).countOptions(any());
+		verify(voteRecordRepository, never()).findChoices(any(), any());
+	}
+
+	@Test
+	void applyVotes_tracksChoicesPerUser() {
+		when(pollRepository.countOptions(any())).thenReturn(List.of(optionCount(1L, 2)));
+		when(voteRecordRepository.findChoices(any(), any())).thenReturn(List.of(choice(1L, 0))); // user 10
+
+		List<VoteResult> results = pollService.applyVotes(List.of(new VoteCommand(1L, 0, 10L),
+				new VoteCommand(1L, 0, 11L), new VoteCommand(1L, 1, 10L)));
+
+		assertThat(results).extracting(VoteResult::getStatus).containsExactly(VoteResult.Status.UNCHANGED,
+				VoteResult.Status.APPLIED, VoteResult.Status.APPLIED);
+		verify(voteRecordBatchRepository).insertAll(List.of(new VoteRow(1L, 11L, 0)));
+		verify(voteRecordBatchRepository).updateAll(List.of(new VoteRow(1L, 10L, 1)));
+		verify(optionTallyRepository).applyDeltas(List.of(new Delta(1L, 1, 1))); // 0: +1 -1
+		// Every applied vote is logged, in order, even when the tallies net out
+		verify(voteEventRepository)
+				.appendAll(List.of(new NewEvent(1L, 11L, null, 0), new NewEvent(1L, 10L, 0, 1)));
+		verify(pollViewCache).invalidate(1L);
+		verify(trendingService).recordVotes(List.of(1L, 1L));
+	}
+
+	@Test
+	void validateVote_rejectsUnknownPollAndBadIndex() {
+		when(pollRepository.countOptions(List.of(1L))).thenReturn(List.of(optionCount(1L, 2)));
+		when(pollRepository.countOptions(List.of(2L))).thenReturn(Collections.emptyList());
+
+		pollService.validateVote(1L, 1);
+		assertThatThrownBy(() -> pollService.validateVote(1L, 2)).isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("Invalid option index");
+		assertThatThrownBy(() -> pollService.validateVote(2L, 0)).isInstanceOf(RuntimeException.class)
+				.hasMessageContaining("Poll not found");
+	}
+
+	@Test
+	void doVoteBatch_tooManyItems_throwsException() {
+		List<Vote> votes = new ArrayList<>();
+		for (int i = 0; i < 1001; i++) {
+			votes.add(vote(1L, 0));
+		}
+
+		assertThatThrownBy(() -> pollService.doVoteBatch(votes, AuthUser.of(voter)))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("Batch exceeds");
+	}
+
+	@Test
+	void getMyVotes_returnsUsersChoicesInOneQuery() {
+		when(voteRecordRepository.findChoices(List.of(10L), Set.of(1L, 2L, 3L)))
+				.thenReturn(List.of(choice(1L, 2), choice(3L, 0)));
+
+		assertThat(pollService.getMyVotes(Set.of(1L, 2L, 3L), AuthUser.of(voter))).isEqualTo(Map.of(1L, 2, 3L, 0));
+		assertThat(pollService.getMyVotes(Set.of(), AuthUser.of(voter))).isEmpty();
+		verify(voteRecordRepository, times(1)).findChoices(any(), any());
+	}
+
+	@Test
+	void getMyVotes_tooManyPolls_throwsException() {
+		Set<Long> pollIds = new HashSet<>();
+		for (long id = 1; id <= 101; id++) {
+			pollIds.add(id);
+		}
+
+		assertThatThrownBy(() -> pollService.getMyVotes(pollIds, AuthUser.of(voter)))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("At most 100 polls");
+		verifyNoInteractions(voteRecordRepository);
+	}
+
+	private Vote vote(Long pollId, int optionIndex) {
+		Vote vote = new Vote();
+		vote.setPollId(pollId);
+		vote.setOptionIndex(optionIndex);
+		return vote;
+	}
+
+	private PollRepository.OptionCount optionCount(Long pollId, int count) {
+		return optionCount(pollId, count, 1);
+	}
+
+	private PollRepository.OptionCount optionCount(Long pollId, int count, int shards) {
+		return new PollRepository.OptionCount() {
+			@Override
+			public Long getPollId() {
+				return pollId;
+			}
+
+			@Override
+			public Integer getOptionCount() {
+				return count;
+			}
+
+			@Override
+			public Integer getCounterShards() {
+				return shards;
+			}
+		};
+	}
+
+	private VoteRecordRepository.VoteChoice choice(Long pollId, int optionIndex) {
+		return new VoteRecordRepository.VoteChoice() {
+			@Override
+			public Long getPollId() {
+				return pollId;
+			}
+
+			@Override
+			public Long getUserId() {
+				return 10L;
+			}
+
+			@Override
+			public Integer getOptionIndex() {
+				return optionIndex;
+			}
+		};
+	}
+}
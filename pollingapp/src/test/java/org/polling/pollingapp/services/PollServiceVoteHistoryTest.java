@@ -0,0 +1,126 @@
+package org.polling.pollingapp.services;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.polling.pollingapp.model.OptionVote;
+import org.polling.pollingapp.model.Poll;
+import org.polling.pollingapp.model.User;
+import org.polling.pollingapp.model.VoteRecord;
+import org.polling.pollingapp.repositories.UserRepository;
+import org.polling.pollingapp.repositories.VoteRecordRepository;
+import org.polling.pollingapp.request.VoteHistoryPage;
+import org.polling.pollingapp.request.VotedPoll;
+import org.polling.pollingapp.security.AuthUser;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Keyset pagination of a user's vote history against H2
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class PollServiceVoteHistoryTest {
+
+	private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+	@Autowired
+	private PollService pollService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private VoteRecordRepository voteRecordRepository;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	private User voter;
+
+	@BeforeEach
+	void setUp() {
+		User owner = userRepository.save(user("history-owner"));
+		voter = userRepository.save(user("history-voter"));
+		User other = userRepository.save(user("history-other"));
+		// q1 and q2 were voted on at the same time, so their order is decided by vote id
+		vote(poll("q0", owner), voter, 0, T0);
+		vote(poll("q1", owner), voter, 1, T0.plusMinutes(1));
+		vote(poll("q2", owner), voter, 0, T0.plusMinutes(1));
+		Poll q3 = poll("q3", owner);
+		vote(q3, voter, 1, T0.plusMinutes(2));
+		vote(q3, other, 0, T0.plusMinutes(3));
+		entityManager.flush();
+		entityManager.clear();
+	}
+
+	@Test
+	void listVotesByUser_pagesMostRecentFirstWithoutGapsOrRepeats() {
+		assertThat(allPages(voter, 2)).containsExactly(List.of("q3", "q2"), List.of("q1", "q0"));
+	}
+
+	@Test
+	void listVotesByUser_returnsChosenOptionText() {
+		VotedPoll latest = pollService.listVotesByUser(voter.getId(), null, 1).getVotes().get(0);
+
+		assertThat(latest.question()).isEqualTo("q3");
+		assertThat(latest.optionIndex()).isEqualTo(1);
+		assertThat(latest.optionText()).isEqualTo("No");
+		assertThat(latest.votedAt()).isEqualTo(T0.plusMinutes(2));
+	}
+
+	@Test
+	void listVotesByUser_invalidCursor_throwsException() {
+		assertThatThrownBy(() -> pollService.listVotesByUser(voter.getId(), "not-a-cursor", null))
+				.isInstanceOf(IllegalArgumentException.class).hasMessageContaining("Invalid cursor");
+	}
+
+	private List<List<String>> allPages(User user, int limit) {
+		List<List<String>> pages = new ArrayList<>();
+		String cursor = null;
+		do {
+			VoteHistoryPage page = pollService.listVotesByUser(user.getId(), cursor, limit);
+			pages.add(page.getVotes().stream().map(VotedPoll::question).toList());
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+		return pages;
+	}
+
+	private Poll poll(String question, User owner) {
+		Poll poll = new Poll();
+		poll.setQuestion(question);
+		List<OptionVote> options = new ArrayList<>();
+		for (String text : List.of("Yes", "No")) {
+			OptionVote option = new OptionVote();
+			option.setOptText(text);
+			options.add(option);
+		}
+		poll.setOptions(options);
+		return pollService.savePoll(poll, AuthUser.of(owner));
+	}
+
+	private void vote(Poll poll, User user, int optionIndex, LocalDateTime votedAt) {
+		VoteRecord vote = new VoteRecord();
+		vote.setPoll(poll);
+		vote.setUser(user);
+		vote.setOptionIndex(optionIndex);
+		vote.setVotedAt(votedAt);
+		voteRecordRepository.save(vote);
+	}
+
+	private static User user(String name) {
+		User user = new User();
+		user.setUsername(name);
+		user.setEmail(name + "@test.com");
+		user.setPasswordHash("hash");
+		return user;
+	}
+}
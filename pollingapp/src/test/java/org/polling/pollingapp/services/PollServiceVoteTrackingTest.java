@@ -1,25 +1,46 @@
 package org.polling.pollingapp.services;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.polling.pollingapp.model.OptionVote;
 import org.polling.pollingapp.model.Poll;
 import org.polling.pollingapp.model.User;
 import org.polling.pollingapp.model.VoteRecord;
+import org.polling.pollingapp.repositories.OptionTallyRepository;
+import org.polling.pollingapp.repositories.OptionTallyRepository.ShardDelta;
+import org.polling.pollingapp.repositories.PollReadRepository;
+import org.polling.pollingapp.repositories.PollReadRepository.OptionRow;
+import org.polling.pollingapp.repositories.PollReadRepository.PollRow;
 import org.polling.pollingapp.repositories.PollRepository;
+import org.polling.pollingapp.repositories.UserRepository;
+import org.polling.pollingapp.repositories.VoteEventRepository;
+import org.polling.pollingapp.repositories.VoteEventRepository.NewEvent;
 import org.polling.pollingapp.repositories.VoteRecordRepository;
+import org.polling.pollingapp.request.PollView;
+import org.polling.pollingapp.security.AuthUser;
 
+import org.springframework.test.util.ReflectionTestUtils;
+import tools.jackson.databind.json.JsonMapper;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -28,9 +49,37 @@ class PollServiceVoteTrackingTest {
 	@Mock
 	private PollRepository pollRepository;
 
+	@Mock
+	private PollReadRepository pollReadRepository;
+
 	@Mock
 	private VoteRecordRepository voteRecordRepository;
 
+	@Mock
+	private VoteTallyBuffer voteTallyBuffer;
+
+	@Mock
+	private VoteEventRepository voteEventRepository;
+
+	@Mock
+	private OptionTallyRepository optionTallyRepository;
+
+	@Mock
+	private VoteConflictRetrier voteConflictRetrier;
+
+	@Spy
+	private TransactionOperations transactionOperations = TransactionOperations.withoutTransaction();
+
+	@Spy
+	private PollViewCache pollViewCache = new PollViewCache(new SimpleMeterRegistry(),
+			JsonMapper.builder().build(), 100, 60_000);
+
+	@Mock
+	private TrendingService trendingService;
+
+	@Mock
+	private UserRepository userRepository;
+
 	@InjectMocks
 	private PollService pollService;
 
@@ -65,11 +114,14 @@ class PollServiceVoteTrackingTest {
 		when(pollRepository.findById(1L)).thenReturn(Optional.of(poll));
 		when(voteRecordRepository.findByPollIdAndUserId(1L, 10L)).thenReturn(Optional.empty());
 
-		pollService.doVote(1L, 0, voter);
+		pollService.doVote(1L, 0, AuthUser.of(voter));
 
-		assertThat(poll.getOptions().get(0).getVoteCount()).isEqualTo(1L);
-		verify(pollRepository).save(poll);
+		verify(pollRepository).adjustVoteCount(1L, 0, 1);
 		verify(voteRecordRepository).save(any(VoteRecord.class));
+		verify(voteEventRepository).append(new NewEvent(1L, 10L, null, 0));
+		verify(trendingService).recordVote(1L);
+		// Counts are changed in the database only; the poll is never rewritten
+		verify(pollRepository, never()).save(any());
 	}
 
 	@Test
@@ -87,14 +139,16 @@ class PollServiceVoteTrackingTest {
 		when(pollRepository.findById(1L)).thenReturn(Optional.of(poll));
 		when(voteRecordRepository.findByPollIdAndUserId(1L, 10L)).thenReturn(Optional.of(existing));
 
-		pollService.doVote(1L, 1, voter);
+		pollService.doVote(1L, 1, AuthUser.of(voter));
 
-		// Red decremented 5 -> 4, Blue incremented 3 -> 4
-		assertThat(poll.getOptions().get(0).getVoteCount()).isEqualTo(4L);
-		assertThat(poll.getOptions().get(1).getVoteCount()).isEqualTo(4L);
+		// Red decremented, Blue incremented - one single-row UPDATE each
+		verify(pollRepository).adjustVoteCount(1L, 0, -1);
+		verify(pollRepository).adjustVoteCount(1L, 1, 1);
 		assertThat(existing.getOptionIndex()).isEqualTo(1); // record updated
 		verify(voteRecordRepository).save(existing);
-		verify(pollRepository).save(poll);
+		verify(voteEventRepository).append(new NewEvent(1L, 10L, 0, 1));
+		verify(trendingService).recordVote(1L);
+		verify(pollRepository, never()).save(any());
 	}
 
 	@Test
@@ -107,19 +161,134 @@ class PollServiceVoteTrackingTest {
 		when(pollRepository.findById(1L)).thenReturn(Optional.of(poll));
 		when(voteRecordRepository.findByPollIdAndUserId(1L, 10L)).thenReturn(Optional.of(existing));
 
-		pollService.doVote(1L, 0, voter);
+		pollService.doVote(1L, 0, AuthUser.of(voter));
 
 		// Nothing changed
 		assertThat(poll.getOptions().get(0).getVoteCount()).isEqualTo(5L);
-		verify(pollRepository, never()).save(any());
+		verify(pollRepository, never()).adjustVoteCount(anyLong(), anyInt(), anyLong());
 		verify(voteRecordRepository, never()).save(any());
+		verifyNoInteractions(voteEventRepository, trendingService);
+	}
+
+	@Test
+	void doVote_writeBehind_buffersTallyInsteadOfSavingPoll() {
+		VoteRecord existing = new VoteRecord();
+		existing.setOptionIndex(0);
+
+		when(voteTallyBuffer.isEnabled()).thenReturn(true);
+		when(pollRepository.findById(1L)).thenReturn(Optional.of(poll));
+		when(voteRecordRepository.findByPollIdAndUserId(1L, 10L)).thenReturn(Optional.of(existing));
+
+		pollService.doVote(1L, 2, AuthUser.of(voter));
+
+		verify(voteTallyBuffer).recordVote(1L, 0, 2);
+		verify(voteRecordRepository).save(existing);
+		verify(pollRepository, never()).adjustVoteCount(anyLong(), anyInt(), anyLong());
+	}
+
+	@Test
+	void doVote_optimistic_changesLoadedCountsThroughRetrier() {
+		ReflectionTestUtils.setField(pollService, "commitMode", "optimistic");
+		doAnswer(invocation -> {
+			invocation.getArgument(1, Runnable.class).run();
+			return null;
+		}).when(voteConflictRetrier).run(eq(1L), any());
+
+		VoteRecord existing = new VoteRecord();
+		existing.setOptionIndex(0);
+		poll.getOptions().get(0).setVoteCount(4L);
+		when(pollRepository.findById(1L)).thenReturn(Optional.of(poll));
+		when(voteRecordRepository.findByPollIdAndUserId(1L, 10L)).thenReturn(Optional.of(existing));
+
+		pollService.doVote(1L, 2, AuthUser.of(voter));
+
+		// Counts are changed on the managed poll and written (with a version check) on commit
+		assertThat(poll.getOptions()).extracting(OptionVote::getVoteCount).containsExactly(3L, 0L, 1L);
+		verify(voteConflictRetrier).run(eq(1L), any());
+		verify(pollRepository, never()).adjustVoteCount(anyLong(), anyInt(), anyLong());
+	}
+
+	@Test
+	void getPollById_writeBehind_mergesPendingVotes() {
+		stubPollRow(1);
+		when(voteTallyBuffer.isEnabled()).thenReturn(true);
+		when(voteTallyBuffer.pendingDeltas(1L)).thenReturn(Map.of(0, 2L, 2, 1L));
+
+		PollView result = pollService.getPollById(1L).orElseThrow();
+
+		assertThat(result.options()).extracting(PollView.Option::voteCount).containsExactly(2L, 0L, 1L);
+	}
+
+	@Test
+	void doVote_shardedPoll_movesVoteWithinOneCounterSlot() {
+		VoteRecord existing = new VoteRecord();
+		existing.setOptionIndex(0);
+		poll.setCounterShards(4);
+
+		when(pollRepository.findById(1L)).thenReturn(Optional.of(poll));
+		when(voteRecordRepository.findByPollIdAndUserId(1L, 10L)).thenReturn(Optional.of(existing));
+
+		pollService.doVote(1L, 1, AuthUser.of(voter));
+
+		verify(optionTallyRepository).applyShardDeltas(argThat(deltas -> deltas.size() == 2
+				&& deltas.get(0).shard() == deltas.get(1).shard() && deltas.get(0).shard() >= 0
+				&& deltas.get(0).shard() < 4 && deltas.get(0).equals(new ShardDelta(1L, 0, deltas.get(0).shard(), -1))
+				&& deltas.get(1).equals(new ShardDelta(1L, 1, deltas.get(0).shard(), 1))));
+		verify(pollRepository, never()).adjustVoteCount(anyLong(), anyInt(), anyLong());
+	}
+
+	@Test
+	void getPollById_shardedPoll_addsCounterSlotsToVoteCounts() {
+		stubPollRow(4, 0L, 2L, 0L);
+		when(optionTallyRepository.sumShards(List.of(1L))).thenReturn(Map.of(1L, Map.of(0, 3L, 1, 5L)));
+
+		PollView result = pollService.getPollById(1L).orElseThrow();
+
+		assertThat(result.options()).extracting(PollView.Option::voteCount).containsExactly(3L, 7L, 0L);
+	}
+
+	@Test
+	void getPollById_unshardedPoll_skipsCounterSlots() {
+		stubPollRow(1);
+
+		pollService.getPollById(1L);
+
+		verify(optionTallyRepository, never()).sumShards(any());
+	}
+
+	@Test
+	void getPollById_cachedUntilAVoteChangesThePoll() {
+		stubPollRow(1);
+		when(pollRepository.findById(1L)).thenReturn(Optional.of(poll));
+		when(voteRecordRepository.findByPollIdAndUserId(1L, 10L)).thenReturn(Optional.empty());
+
+		pollService.getPollById(1L);
+		pollService.getPollById(1L);
+		verify(pollReadRepository, times(1)).findById(1L);
+
+		pollService.doVote(1L, 0, AuthUser.of(voter));
+		pollService.getPollById(1L);
+		verify(pollReadRepository, times(2)).findById(1L);
+	}
+
+	// Projection rows of poll 1 with the given counter shards and option counts (3 options at 0 by default)
+	private void stubPollRow(int counterShards, long... voteCounts) {
+		long[] counts = voteCounts.length > 0 ? voteCounts : new long[3];
+		List<OptionRow> options = new ArrayList<>();
+		for (int i = 0; i < counts.length; i++) {
+			options.add(new OptionRow(i, "Option " + i, counts[i]));
+		}
+		when(pollReadRepository.findById(1L)).thenReturn(
+				Optional.of(new PollRow(1L, "Favourite color?", counterShards, LocalDateTime.now(), null, null)));
+		when(pollReadRepository.findOptions(List.of(1L))).thenReturn(Map.of(1L, options));
 	}
 
 	@Test
 	void doVote_invalidOptionIndex_throwsException() {
 		when(pollRepository.findById(1L)).thenReturn(Optional.of(poll));
 
-		assertThatThrownBy(() -> pollService.doVote(1L, 5, voter)).isInstanceOf(IllegalArgumentException.class)
+		assertThatThrownBy(() -> pollService.doVote(1L, 5, AuthUser.of(voter)))
+				.isInstanceOf(IllegalArgumentException.class)
 				.hasMessageContaining("Invalid option index");
 	}
 
@@ -127,7 +296,8 @@ class PollServiceVoteTrackingTest {
 	void doVote_negativeIndex_throwsException() {
 		when(pollRepository.findById(1L)).thenReturn(Optional.of(poll));
 
-		assertThatThrownBy(() -> pollService.doVote(1L, -1, voter)).isInstanceOf(IllegalArgumentException.class)
+		assertThatThrownBy(() -> pollService.doVote(1L, -1, AuthUser.of(voter)))
+				.isInstanceOf(IllegalArgumentException.class)
 				.hasMessageContaining("Invalid option index");
 	}
 
@@ -135,7 +305,7 @@ class PollServiceVoteTrackingTest {
 	void doVote_pollNotFound_throwsException() {
 		when(pollRepository.findById(99L)).thenReturn(Optional.empty());
 
-		assertThatThrownBy(() -> pollService.doVote(99L, 0, voter)).isInstanceOf(RuntimeException.class)
+		assertThatThrownBy(() -> pollService.doVote(99L, 0, AuthUser.of(voter))).isInstanceOf(RuntimeException.class)
 				.hasMessageContaining("Poll not found");
 	}
 }
@@ -0,0 +1,158 @@
+package org.polling.pollingapp.services;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.polling.pollingapp.model.OptionVote;
+import org.polling.pollingapp.model.Poll;
+import org.polling.pollingapp.model.User;
+import org.polling.pollingapp.repositories.UserRepository;
+import org.polling.pollingapp.request.PollView;
+import org.polling.pollingapp.security.AuthUser;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// The PollServiceVoteTrackingTest scenarios, run against the native upsert path on H2 in MySQL mode
+@SpringBootTest(properties = "polls.votes.upsert.enabled=true")
+@ActiveProfiles("test")
+@Transactional
+class PollServiceVoteUpsertTest {
+
+	@Autowired
+	private PollService pollService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	private User voter;
+	private Poll poll;
+
+	@BeforeEach
+	void setUp() {
+		User owner = userRepository.save(user("owner"));
+		voter = userRepository.save(user("voter"));
+		poll = pollService.savePoll(poll("Favourite color?", 1, "Red", "Blue", "Green"), AuthUser.of(owner));
+		// The upsert path is plain JDBC, so the rows must be in the database before it runs
+		entityManager.flush();
+	}
+
+	@Test
+	void doVote_firstVote_incrementsAndCreatesRecord() {
+		pollService.doVote(poll.getId(), 0, AuthUser.of(voter));
+
+		assertThat(voteCounts(poll)).containsExactly(1L, 0L, 0L);
+		assertThat(recordedOption(poll, voter)).isEqualTo(0);
+	}
+
+	@Test
+	void doVote_changeVote_decrementsOldIncrementsNew() {
+		pollService.doVote(poll.getId(), 0, AuthUser.of(voter));
+		pollService.doVote(poll.getId(), 1, AuthUser.of(voter));
+
+		assertThat(voteCounts(poll)).containsExactly(0L, 1L, 0L);
+		assertThat(recordedOption(poll, voter)).isEqualTo(1);
+		assertThat(loggedEvents(poll)).containsExactly("CAST null->0", "CHANGED 0->1");
+	}
+
+	@Test
+	void doVote_sameOption_doesNothing() {
+		pollService.doVote(poll.getId(), 2, AuthUser.of(voter));
+		pollService.doVote(poll.getId(), 2, AuthUser.of(voter));
+		pollService.doVote(poll.getId(), 2, AuthUser.of(voter));
+
+		assertThat(voteCounts(poll)).containsExactly(0L, 0L, 1L);
+		assertThat(loggedEvents(poll)).containsExactly("CAST null->2");
+	}
+
+	@Test
+	void doVote_changeBackAndForth_keepsOneVote() {
+		pollService.doVote(poll.getId(), 0, AuthUser.of(voter));
+		pollService.doVote(poll.getId(), 1, AuthUser.of(voter));
+		pollService.doVote(poll.getId(), 1, AuthUser.of(voter));
+		pollService.doVote(poll.getId(), 0, AuthUser.of(voter));
+
+		assertThat(voteCounts(poll)).containsExactly(1L, 0L, 0L);
+	}
+
+	@Test
+	void doVote_invalidOptionIndex_throwsException() {
+		assertThatThrownBy(() -> pollService.doVote(poll.getId(), 5, AuthUser.of(voter)))
+				.isInstanceOf(IllegalArgumentException.class).hasMessageContaining("Invalid option index");
+		assertThatThrownBy(() -> pollService.doVote(poll.getId(), -1, AuthUser.of(voter)))
+				.isInstanceOf(IllegalArgumentException.class).hasMessageContaining("Invalid option index");
+		assertThat(voteCounts(poll)).containsExactly(0L, 0L, 0L);
+	}
+
+	@Test
+	void doVote_pollNotFound_throwsException() {
+		assertThatThrownBy(() -> pollService.doVote(999_999L, 0, AuthUser.of(voter)))
+				.isInstanceOf(RuntimeException.class)
+				.hasMessageContaining("Poll not found");
+	}
+
+	@Test
+	void doVote_shardedPoll_usesRegularPath() {
+		Poll hot = pollService.savePoll(poll("Hot?", 4, "Yes", "No"), AuthUser.of(poll.getOwner()));
+		entityManager.flush();
+
+		pollService.doVote(hot.getId(), 0, AuthUser.of(voter));
+		pollService.doVote(hot.getId(), 1, AuthUser.of(voter));
+
+		assertThat(voteCounts(hot)).containsExactly(0L, 0L);
+		assertThat(pollService.getPollById(hot.getId()).orElseThrow().options()).extracting(PollView.Option::voteCount)
+				.containsExactly(0L, 1L);
+	}
+
+	private List<Long> voteCounts(Poll p) {
+		return jdbcTemplate.queryForList("SELECT vote_count FROM poll_options WHERE poll_id = ? ORDER BY option_index",
+				Long.class, p.getId());
+	}
+
+	private List<String> loggedEvents(Poll p) {
+		return jdbcTemplate.query(
+				"SELECT type, old_option_index, new_option_index FROM vote_events WHERE poll_id = ? ORDER BY id",
+				(rs, i) -> rs.getString(1) + " " + rs.getObject(2) + "->" + rs.getInt(3), p.getId());
+	}
+
+	private Integer recordedOption(Poll p, User u) {
+		return jdbcTemplate.queryForObject("SELECT option_index FROM votes WHERE poll_id = ? AND user_id = ?",
+				Integer.class, p.getId(), u.getId());
+	}
+
+	private static User user(String name) {
+		User user = new User();
+		user.setUsername(name);
+		user.setEmail(name + "@test.com");
+		user.setPasswordHash("hash");
+		return user;
+	}
+
+	private static Poll poll(String question, int counterShards, String... options) {
+		Poll poll = new Poll();
+		poll.setQuestion(question);
+		poll.setCounterShards(counterShards);
+		List<OptionVote> optionVotes = new ArrayList<>();
+		for (String text : options) {
+			OptionVote option = new OptionVote();
+			option.setOptText(text);
+			optionVotes.add(option);
+		}
+		poll.setOptions(optionVotes);
+		return poll;
+	}
+}
@@ -0,0 +1,143 @@
+package org.polling.pollingapp.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.polling.pollingapp.controller.PollController;
+import org.polling.pollingapp.request.PollView;
+import org.polling.pollingapp.services.PollViewCache.CachedView;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Live results streams through the controller, with PollService mocked; frames are written
+// on virtual threads, so assertions wait for the response content to arrive
+@ExtendWith(MockitoExtension.class)
+class PollStreamServiceTest {
+
+	@Mock
+	private PollService pollService;
+
+	@Mock
+	private VoteIngestionQueue voteIngestionQueue;
+
+	@Mock
+	private VoteEventService voteEventService;
+
+	private PollStreamService pollStreamService;
+	private MockMvc mockMvc;
+
+	@BeforeEach
+	void setUp() {
+		pollStreamService = new PollStreamService(pollService, 2, 60_000, 7);
+		mockMvc = MockMvcBuilders.standaloneSetup(
+				new PollController(pollService, voteIngestionQueue, voteEventService, pollStreamService)).build();
+	}
+
+	@Test
+	void stream_sendsCurrentResultsThenOnlyChanges() throws Exception {
+		when(pollService.getPollJson(1L)).thenReturn(Optional.of(cached(3)));
+		MockHttpServletResponse response = mockMvc.perform(get("/api/polls/1/stream"))
+				.andExpect(request().asyncStarted()).andReturn().getResponse();
+		awaitFrames(response, "event:results", 1);
+
+		pollStreamService.publishChanges(); // unchanged: nothing sent
+		when(pollService.getPollJson(1L)).thenReturn(Optional.of(cached(4)));
+		pollStreamService.publishChanges();
+
+		String content = awaitFrames(response, "event:results", 2);
+		assertThat(content).contains("\"voteCount\":3").contains("\"voteCount\":4");
+		assertThat(pollStreamService.getSubscriberCount()).isEqualTo(1);
+	}
+
+	@Test
+	void stream_heartbeatsAreComments() throws Exception {
+		when(pollService.getPollJson(1L)).thenReturn(Optional.of(cached(0)));
+		MockHttpServletResponse response = mockMvc.perform(get("/api/polls/1/stream")).andReturn().getResponse();
+		awaitFrames(response, "event:results", 1); // a heartbeat never replaces an unsent frame
+
+		pollStreamService.sendHeartbeats();
+
+		awaitFrames(response, ":heartbeat", 1);
+	}
+
+	@Test
+	void stream_unknownPoll_returns404() throws Exception {
+		when(pollService.getPollJson(9L)).thenReturn(Optional.empty());
+
+		mockMvc.perform(get("/api/polls/9/stream")).andExpect(status().isNotFound());
+	}
+
+	@Test
+	void stream_overSubscriberCap_returns503() throws Exception {
+		when(pollService.getPollJson(1L)).thenReturn(Optional.of(cached(0)));
+		mockMvc.perform(get("/api/polls/1/stream")).andExpect(request().asyncStarted());
+		mockMvc.perform(get("/api/polls/1/stream")).andExpect(request().asyncStarted());
+
+		mockMvc.perform(get("/api/polls/1/stream")).andExpect(status().isServiceUnavailable())
+				.andExpect(header().string(HttpHeaders.RETRY_AFTER, "7"));
+		assertThat(pollStreamService.getSubscriberCount()).isEqualTo(2);
+	}
+
+	@Test
+	void stream_heartbeatDoesNotReplaceUnsentResults() throws Exception {
+		// Frames are only written when the test runs the queued drain task, like a subscriber that
+		// is still busy with an earlier write
+		ExecutorService senders = mock(ExecutorService.class);
+		pollStreamService = new PollStreamService(pollService, 2, 60_000, 7, senders);
+		mockMvc = MockMvcBuilders.standaloneSetup(
+				new PollController(pollService, voteIngestionQueue, voteEventService, pollStreamService)).build();
+		when(pollService.getPollJson(1L)).thenReturn(Optional.of(cached(0)));
+		MockHttpServletResponse response = mockMvc.perform(get("/api/polls/1/stream")).andReturn().getResponse();
+
+		when(pollService.getPollJson(1L)).thenReturn(Optional.of(cached(5)));
+		pollStreamService.publishChanges();
+		pollStreamService.sendHeartbeats();
+		ArgumentCaptor<Runnable> drain = ArgumentCaptor.forClass(Runnable.class);
+		verify(senders, times(1)).execute(drain.capture());
+		drain.getValue().run();
+
+		String content = response.getContentAsString(StandardCharsets.UTF_8);
+		assertThat(content).contains("\"voteCount\":5").doesNotContain("heartbeat");
+	}
+
+	private static String awaitFrames(MockHttpServletResponse response, String marker, int count)
+			throws Exception {
+		String content = "";
+		for (int i = 0; i < 200; i++) {
+			content = response.getContentAsString(StandardCharsets.UTF_8);
+			if (content.split(marker, -1).length - 1 >= count) {
+				return content;
+			}
+			Thread.sleep(10);
+		}
+		throw new AssertionError("Expected " + count + " x " + marker + " in: " + content);
+	}
+
+	private static CachedView cached(long votes) {
+		PollView view = new PollView(1L, "Q?", List.of(new PollView.Option("A", votes)), 1, null,
+				LocalDateTime.of(2026, 1, 1, 0, 0));
+		String json = "{\"id\":1,\"options\":[{\"optText\":\"A\",\"voteCount\":" + votes + "}]}";
+		return new CachedView(view, json.getBytes(StandardCharsets.UTF_8), "\"" + votes + "\"");
+	}
+}
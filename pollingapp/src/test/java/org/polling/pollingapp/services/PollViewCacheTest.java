@@ -0,0 +1,162 @@
+package org.polling.pollingapp.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.polling.pollingapp.request.PollView;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Unit tests for the poll read-model cache; no transaction is active, so invalidation is immediate
+class PollViewCacheTest {
+
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final AtomicInteger loads = new AtomicInteger();
+	private final Function<Long, Optional<PollView>> loader = id -> {
+		loads.incrementAndGet();
+		return Optional.of(view(id));
+	};
+
+	@Test
+	void get_loadsOnceUntilInvalidated() {
+		PollViewCache cache = new PollViewCache(meterRegistry, JsonMapper.builder().build(), 100, 60_000);
+
+		cache.get(1L, loader);
+		cache.get(1L, loader);
+		assertThat(loads).hasValue(1);
+
+		cache.invalidate(1L);
+		cache.get(1L, loader);
+		assertThat(loads).hasValue(2);
+		assertThat(meterRegistry.counter("polls.cache.gets", "result", "hit").count()).isEqualTo(1);
+		assertThat(meterRegistry.counter("polls.cache.gets", "result", "miss").count()).isEqualTo(2);
+	}
+
+	@Test
+	void get_concurrentMissesShareOneLoad() throws Exception {
+		PollViewCache cache = new PollViewCache(meterRegistry, JsonMapper.builder().build(), 100, 60_000);
+		CountDownLatch release = new CountDownLatch(1);
+		Function<Long, Optional<PollView>> slowLoader = id -> {
+			loads.incrementAndGet();
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return Optional.of(view(id));
+		};
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Optional<PollViewCache.CachedView>>> futures = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				futures.add(executor.submit(() -> cache.get(1L, slowLoader)));
+			}
+			Thread.sleep(50);
+			release.countDown();
+			for (Future<Optional<PollViewCache.CachedView>> future : futures) {
+				assertThat(future.get(5, TimeUnit.SECONDS)).isPresent();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertThat(loads).hasValue(1);
+	}
+
+	@Test
+	void get_absentPollsAndFailedLoadsAreNotCached() {
+		PollViewCache cache = new PollViewCache(meterRegistry, JsonMapper.builder().build(), 100, 60_000);
+
+		cache.get(1L, id -> {
+			loads.incrementAndGet();
+			return Optional.empty();
+		});
+		assertThatThrownBy(() -> cache.get(1L, id -> {
+			throw new IllegalStateException("database down");
+		})).isInstanceOf(IllegalStateException.class);
+		assertThat(cache.get(1L, loader)).isPresent();
+		assertThat(loads).hasValue(2);
+	}
+
+	@Test
+	void get_expiredEntryIsReloaded() throws InterruptedException {
+		PollViewCache cache = new PollViewCache(meterRegistry, JsonMapper.builder().build(), 100, 1);
+
+		cache.get(1L, loader);
+		Thread.sleep(5);
+		cache.get(1L, loader);
+
+		assertThat(loads).hasValue(2);
+		assertThat(meterRegistry.counter("polls.cache.evictions", "cause", "expired").count()).isEqualTo(1);
+	}
+
+	@Test
+	void get_overMaxSize_evictsLeastRecentlyRead() throws InterruptedException {
+		PollViewCache cache = new PollViewCache(meterRegistry, JsonMapper.builder().build(), 10, 60_000);
+		for (long id = 1; id <= 10; id++) {
+			cache.get(id, loader);
+			Thread.sleep(1);
+		}
+		cache.get(1L, loader); // poll 1 is now the most recently read
+
+		cache.get(11L, loader); // 11 entries: evict down to 9
+		assertThat(meterRegistry.counter("polls.cache.evictions", "cause", "size").count()).isEqualTo(2);
+		assertThat(meterRegistry.get("polls.cache.size").gauge().value()).isEqualTo(9);
+
+		loads.set(0);
+		cache.get(1L, loader);
+		cache.get(11L, loader);
+		assertThat(loads).hasValue(0);
+		cache.get(2L, loader);
+		cache.get(3L, loader);
+		assertThat(loads).hasValue(2);
+	}
+
+	@Test
+	void get_servesSameBytesAndETagUntilContentChanges() {
+		PollViewCache cache = new PollViewCache(meterRegistry, JsonMapper.builder().build(), 100, 60_000);
+		PollView view = view(1L);
+
+		PollViewCache.CachedView first = cache.get(1L, id -> Optional.of(view)).orElseThrow();
+		assertThat(new String(first.json(), StandardCharsets.UTF_8)).contains("\"question\":\"Poll 1\"");
+		assertThat(first.etag()).startsWith("\"").endsWith("\"");
+		assertThat(cache.get(1L, loader).orElseThrow().json()).isSameAs(first.json());
+
+		// Reloading unchanged content gives the same ETag, a changed count a new one
+		cache.invalidate(1L);
+		assertThat(cache.get(1L, id -> Optional.of(view)).orElseThrow().etag()).isEqualTo(first.etag());
+		cache.invalidate(1L);
+		PollView voted = new PollView(1L, view.question(), List.of(new PollView.Option("A", 2)), 1, null,
+				view.createdAt());
+		assertThat(cache.get(1L, id -> Optional.of(voted)).orElseThrow().etag()).isNotEqualTo(first.etag());
+	}
+
+	@Test
+	void get_maxSizeZero_disablesCaching() {
+		PollViewCache cache = new PollViewCache(meterRegistry, JsonMapper.builder().build(), 0, 60_000);
+
+		cache.get(1L, loader);
+		cache.get(1L, loader);
+
+		assertThat(loads).hasValue(2);
+	}
+
+	private static PollView view(Long id) {
+		return new PollView(id, "Poll " + id, List.of(new PollView.Option("A", 1)), 1, null, LocalDateTime.now());
+	}
+}
@@ -0,0 +1,72 @@
+package org.polling.pollingapp.services;
+
+import org.junit.jupiter.api.Test;
+import org.polling.pollingapp.repositories.VoteRecordBatchRepository;
+import org.polling.pollingapp.repositories.VoteRecordBatchRepository.VoteTimeHandler;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+// Unit tests for the trending ranking; no transaction is active, so votes are recorded immediately
+class TrendingServiceTest {
+
+	private final VoteRecordBatchRepository voteRecordBatchRepository = mock(VoteRecordBatchRepository.class);
+
+	@Test
+	void top_ranksPollsByVoteCountBestFirst() {
+		TrendingService trending = new TrendingService(voteRecordBatchRepository, 60, 24, 100);
+		trending.recordVotes(List.of(1L, 2L, 2L, 3L, 2L, 3L));
+
+		assertThat(trending.top(10)).extracting(TrendingService.Ranked::pollId).containsExactly(2L, 3L, 1L);
+		assertThat(trending.top(2)).extracting(TrendingService.Ranked::pollId).containsExactly(2L, 3L);
+		assertThat(trending.top(10).get(0).score()).isCloseTo(3, within(0.01));
+	}
+
+	@Test
+	void rebuild_olderVotesCountLess() {
+		LocalDateTime now = LocalDateTime.now();
+		stubVotes(voteRecordBatchRepository, List.of(
+				new Object[] { 1L, now.minusHours(3) }, new Object[] { 1L, now.minusHours(3) },
+				new Object[] { 1L, now.minusHours(3) }, new Object[] { 2L, now.minusMinutes(1) }));
+		TrendingService trending = new TrendingService(voteRecordBatchRepository, 60, 24, 100);
+
+		trending.rebuild();
+
+		// Three votes three half-lives old weigh 3/8 together, less than one fresh vote
+		List<TrendingService.Ranked> top = trending.top(10);
+		assertThat(top).extracting(TrendingService.Ranked::pollId).containsExactly(2L, 1L);
+		assertThat(top.get(1).score()).isCloseTo(0.375, within(0.01));
+	}
+
+	@Test
+	void recordVote_overMaxTracked_dropsLowestRanked() {
+		TrendingService trending = new TrendingService(voteRecordBatchRepository, 60, 24, 2);
+		trending.recordVotes(List.of(1L, 1L, 1L, 2L, 2L, 3L));
+
+		assertThat(trending.top(10)).extracting(TrendingService.Ranked::pollId).containsExactly(1L, 2L);
+	}
+
+	@Test
+	void remove_dropsPollFromRanking() {
+		TrendingService trending = new TrendingService(voteRecordBatchRepository, 60, 24, 100);
+		trending.recordVotes(List.of(1L, 2L, 2L));
+
+		trending.remove(2L);
+
+		assertThat(trending.top(10)).extracting(TrendingService.Ranked::pollId).containsExactly(1L);
+	}
+
+	private static void stubVotes(VoteRecordBatchRepository repository, List<Object[]> votes) {
+		doAnswer(invocation -> {
+			VoteTimeHandler handler = invocation.getArgument(1);
+			votes.forEach(vote -> handler.accept((Long) vote[0], (LocalDateTime) vote[1]));
+			return null;
+		}).when(repository).forEachVoteSince(any(), any());
+	}
+}
@@ -7,8 +7,11 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.polling.pollingapp.model.User;
+import org.polling.pollingapp.repositories.LegacyAvatarRepository;
 import org.polling.pollingapp.repositories.UserRepository;
 import org.polling.pollingapp.request.UpdateProfileRequest;
+import org.polling.pollingapp.security.AuthUser;
+import org.polling.pollingapp.security.PrincipalCache;
 
 import java.util.Optional;
 
@@ -23,9 +26,21 @@ class UserServiceTest {
 	@Mock
 	private UserRepository userRepository;
 
+	@Mock
+	private PrincipalCache principalCache;
+
+	@Mock
+	private AvatarStore avatarStore;
+
+	@Mock
+	private LegacyAvatarRepository legacyAvatarRepository;
+
 	@InjectMocks
 	private UserService userService;
 
+	private static final String OLD_AVATAR = "a".repeat(64);
+	private static final String NEW_AVATAR = "b".repeat(64);
+
 	private User user;
 
 	@BeforeEach
@@ -35,7 +50,9 @@ class UserServiceTest {
 		user.setUsername("testuser");
 		user.setEmail("test@example.com");
 		user.setBio("Old bio");
-		user.setAvatarUrl("https://example.com/old.png");
+		user.setAvatarHash(OLD_AVATAR);
+		// updateProfile loads the caller's entity by id
+		lenient().when(userRepository.findById(1L)).thenReturn(Optional.of(user));
 	}
 
 	@Test
@@ -60,17 +77,19 @@ class UserServiceTest {
 		UpdateProfileRequest request = new UpdateProfileRequest();
 		request.setUsername("newname");
 		request.setBio("New bio");
-		request.setAvatarUrl("https://example.com/new.png");
+		request.setAvatarUrl("data:image/png;base64,iVBORw0KGgo=");
 
 		when(userRepository.existsByUsername("newname")).thenReturn(false);
+		when(avatarStore.storeDataUrl("data:image/png;base64,iVBORw0KGgo=")).thenReturn(NEW_AVATAR);
 		when(userRepository.save(any(User.class))).thenReturn(user);
 
-		User result = userService.updateProfile(user, request);
+		User result = userService.updateProfile(AuthUser.of(user), request);
 
 		assertThat(user.getUsername()).isEqualTo("newname");
 		assertThat(user.getBio()).isEqualTo("New bio");
-		assertThat(user.getAvatarUrl()).isEqualTo("https://example.com/new.png");
+		assertThat(user.getAvatarHash()).isEqualTo(NEW_AVATAR);
 		verify(userRepository).save(user);
+		verify(principalCache).evict(1L);
 	}
 
 	@Test
@@ -82,7 +101,7 @@ class UserServiceTest {
 		when(userRepository.existsByUsername("testuser")).thenReturn(true);
 		when(userRepository.save(any(User.class))).thenReturn(user);
 
-		userService.updateProfile(user, request);
+		userService.updateProfile(AuthUser.of(user), request);
 
 		assertThat(user.getUsername()).isEqualTo("testuser");
 		assertThat(user.getBio()).isEqualTo("Updated bio");
@@ -96,7 +115,8 @@ class UserServiceTest {
 
 		when(userRepository.existsByUsername("taken")).thenReturn(true);
 
-		assertThatThrownBy(() -> userService.updateProfile(user, request)).isInstanceOf(RuntimeException.class)
+		assertThatThrownBy(() -> userService.updateProfile(AuthUser.of(user), request))
+				.isInstanceOf(RuntimeException.class)
 				.hasMessageContaining("Username is already taken");
 
 		verify(userRepository, never()).save(any());
@@ -109,14 +129,70 @@ class UserServiceTest {
 
 		when(userRepository.save(any(User.class))).thenReturn(user);
 
-		userService.updateProfile(user, request);
+		userService.updateProfile(AuthUser.of(user), request);
 
 		assertThat(user.getUsername()).isEqualTo("testuser");
 		assertThat(user.getBio()).isEqualTo("Old bio");
-		assertThat(user.getAvatarUrl()).isEqualTo("https://example.com/old.png");
+		assertThat(user.getAvatarHash()).isEqualTo(OLD_AVATAR);
 		verify(userRepository).save(user);
 	}
 
+	@Test
+	void updateProfile_unchangedAvatarUrl_keepsStoredAvatar() {
+		// Clients send back the avatar URL they were given when the picture was not edited
+		UpdateProfileRequest request = new UpdateProfileRequest();
+		request.setAvatarUrl("/api/users/1/avatar?v=" + OLD_AVATAR);
+
+		when(userRepository.save(any(User.class))).thenReturn(user);
+
+		userService.updateProfile(AuthUser.of(user), request);
+
+		assertThat(user.getAvatarHash()).isEqualTo(OLD_AVATAR);
+		verifyNoInteractions(avatarStore);
+	}
+
+	@Test
+	void updateProfile_linkedAvatar_isRejected() {
+		UpdateProfileRequest request = new UpdateProfileRequest();
+		request.setAvatarUrl("https://example.com/new.png");
+
+		assertThatThrownBy(() -> userService.updateProfile(AuthUser.of(user), request))
+				.isInstanceOf(IllegalArgumentException.class).hasMessageContaining("uploaded image");
+
+		assertThat(user.getAvatarHash()).isEqualTo(OLD_AVATAR);
+		verify(userRepository, never()).save(any());
+	}
+
+	@Test
+	void getAvatarUrl_carriesHashForCaching() {
+		assertThat(userService.getAvatarUrl(user)).isEqualTo("/api/users/1/avatar?v=" + OLD_AVATAR);
+		verifyNoInteractions(legacyAvatarRepository);
+
+		user.setAvatarHash(null);
+		assertThat(userService.getAvatarUrl(user)).isNull();
+	}
+
+	@Test
+	void legacyLinkedAvatar_isKeptUntilAnImageIsUploaded() {
+		// A link from before the avatar store, which V10 leaves in avatar_url
+		user.setAvatarHash(null);
+		when(legacyAvatarRepository.findAvatarUrlById(1L)).thenReturn(Optional.of("https://example.com/old.png"));
+		assertThat(userService.getAvatarUrl(user)).isEqualTo("https://example.com/old.png");
+
+		UpdateProfileRequest unchanged = new UpdateProfileRequest();
+		unchanged.setAvatarUrl("https://example.com/old.png");
+		when(userRepository.save(any(User.class))).thenReturn(user);
+		userService.updateProfile(AuthUser.of(user), unchanged);
+		verify(legacyAvatarRepository, never()).clearById(any());
+
+		UpdateProfileRequest upload = new UpdateProfileRequest();
+		upload.setAvatarUrl("data:image/png;base64,iVBORw0KGgo=");
+		when(avatarStore.storeDataUrl("data:image/png;base64,iVBORw0KGgo=")).thenReturn(NEW_AVATAR);
+		userService.updateProfile(AuthUser.of(user), upload);
+		verify(legacyAvatarRepository).clearById(1L);
+		assertThat(userService.getAvatarUrl(user)).isEqualTo("/api/users/1/avatar?v=" + NEW_AVATAR);
+	}
+
 	@Test
 	void updateProfile_blankUsername_keepsExisting() {
 		UpdateProfileRequest request = new UpdateProfileRequest();
@@ -125,7 +201,7 @@ class UserServiceTest {
 
 		when(userRepository.save(any(User.class))).thenReturn(user);
 
-		userService.updateProfile(user, request);
+		userService.updateProfile(AuthUser.of(user), request);
 
 		assertThat(user.getUsername()).isEqualTo("testuser"); // unchanged
 		assertThat(user.getBio()).isEqualTo("New bio");
@@ -142,7 +218,7 @@ class UserServiceTest {
 
 		when(userRepository.save(any(User.class))).thenReturn(user);
 
-		userService.updateProfile(user, request);
+		userService.updateProfile(AuthUser.of(user), request);
 
 		assertThat(user.getBio()).isNull();
 	}
@@ -154,7 +230,7 @@ class UserServiceTest {
 
 		when(userRepository.save(any(User.class))).thenReturn(user);
 
-		userService.updateProfile(user, request);
+		userService.updateProfile(AuthUser.of(user), request);
 
 		assertThat(user.getBio()).isNull();
 	}
@@ -174,7 +250,7 @@ class UserServiceTest {
 
 		when(userRepository.save(any(User.class))).thenReturn(user);
 
-		userService.updateProfile(user, request);
+		userService.updateProfile(AuthUser.of(user), request);
 
 		assertThat(user.getFirstName()).isEqualTo("Alice");
 		assertThat(user.getLastName()).isEqualTo("Smith");
@@ -198,7 +274,7 @@ class UserServiceTest {
 
 		when(userRepository.save(any(User.class))).thenReturn(user);
 
-		userService.updateProfile(user, request);
+		userService.updateProfile(AuthUser.of(user), request);
 
 		assertThat(user.getFirstName()).isEqualTo("Alice");
 		assertThat(user.getLastName()).isEqualTo("Smith");
@@ -0,0 +1,66 @@
+package org.polling.pollingapp.services;
+
+import org.polling.pollingapp.PollingappApplication;
+import org.polling.pollingapp.repositories.UserRepository;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+// Cost of picking a username for a new "john@..." when 10k users already share the prefix
+// (john, john1 ... john9999), before and after single-query allocation. Runs against the H2
+// test profile. Not a test (surefire skips it); run it from the IDE, or like JwtVerificationBenchmark.
+// "before" is the old loop: one existsByUsername round trip per candidate suffix.
+public final class UsernameAllocationBenchmark {
+
+	private static final int USERS = 10_000;
+	private static final int WARMUP_ROUNDS = 3;
+	private static final int ROUNDS = 10;
+
+	private UsernameAllocationBenchmark() {
+	}
+
+	public static void main(String[] args) {
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(PollingappApplication.class)
+				.profiles("test").run(args)) {
+			JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+			UserRepository userRepository = context.getBean(UserRepository.class);
+			AuthService authService = context.getBean(AuthService.class);
+
+			List<Object[]> rows = new ArrayList<>();
+			for (int i = 0; i < USERS; i++) {
+				String username = i == 0 ? "john" : "john" + i;
+				rows.add(new Object[] { username, username + "@bench.com", "hash" });
+			}
+			jdbcTemplate.batchUpdate("insert into users (username, email, password_hash, created_at) "
+					+ "values (?, ?, ?, current_timestamp)", rows);
+
+			run("before: existsByUsername per suffix", () -> {
+				String username = "john";
+				int suffix = 1;
+				while (userRepository.existsByUsername(username)) {
+					username = "john" + suffix;
+					suffix++;
+				}
+				return username;
+			});
+			run("after: one prefix query", () -> authService.allocateUsername("john"));
+		}
+	}
+
+	private static void run(String name, Supplier<String> allocate) {
+		String username = null;
+		for (int i = 0; i < WARMUP_ROUNDS; i++) {
+			username = allocate.get();
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < ROUNDS; i++) {
+			username = allocate.get();
+		}
+		double millis = (System.nanoTime() - start) / 1_000_000.0 / ROUNDS;
+		System.out.printf("%-40s %9.2f ms/registration -> %s%n", name, millis, username);
+	}
+}
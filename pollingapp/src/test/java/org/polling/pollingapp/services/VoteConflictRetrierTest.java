@@ -0,0 +1,60 @@
+package org.polling.pollingapp.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class VoteConflictRetrierTest {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final VoteConflictRetrier retrier = new VoteConflictRetrier(meterRegistry, 3, 1, 2);
+
+	@Test
+	void run_retriesConflictsUntilCommitSucceeds() {
+		AtomicInteger attempts = new AtomicInteger();
+
+		retrier.run(7L, () -> {
+			if (attempts.incrementAndGet() < 3) {
+				throw new OptimisticLockingFailureException("conflict");
+			}
+		});
+
+		assertThat(attempts).hasValue(3);
+		assertThat(meterRegistry.get("polls.votes.commit.conflicts").tag("poll", "7").counter().count()).isEqualTo(2);
+		assertThat(meterRegistry.get("polls.votes.commit.retries").tag("poll", "7").counter().count()).isEqualTo(2);
+		assertThat(meterRegistry.get("polls.votes.commit.exhausted").counter().count()).isZero();
+	}
+
+	@Test
+	void run_rethrowsConflictAfterMaxAttempts() {
+		AtomicInteger attempts = new AtomicInteger();
+
+		assertThatThrownBy(() -> retrier.run(7L, () -> {
+			attempts.incrementAndGet();
+			throw new OptimisticLockingFailureException("conflict");
+		})).isInstanceOf(OptimisticLockingFailureException.class);
+
+		assertThat(attempts).hasValue(3);
+		assertThat(meterRegistry.get("polls.votes.commit.conflicts").tag("poll", "7").counter().count()).isEqualTo(3);
+		assertThat(meterRegistry.get("polls.votes.commit.exhausted").counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void run_doesNotRetryOtherErrors() {
+		AtomicInteger attempts = new AtomicInteger();
+
+		assertThatThrownBy(() -> retrier.run(7L, () -> {
+			attempts.incrementAndGet();
+			throw new IllegalArgumentException("Invalid option index!");
+		})).isInstanceOf(IllegalArgumentException.class);
+
+		assertThat(attempts).hasValue(1);
+		assertThat(meterRegistry.find("polls.votes.commit.conflicts").counter()).isNull();
+	}
+}
@@ -0,0 +1,202 @@
+package org.polling.pollingapp.services;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.polling.pollingapp.model.OptionVote;
+import org.polling.pollingapp.model.Poll;
+import org.polling.pollingapp.model.User;
+import org.polling.pollingapp.repositories.PollRepository;
+import org.polling.pollingapp.repositories.UserRepository;
+import org.polling.pollingapp.repositories.VoteEventRepository;
+import org.polling.pollingapp.request.PollResults;
+import org.polling.pollingapp.security.AuthUser;
+import org.assertj.core.groups.Tuple;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Vote event log end to end on H2: events written by doVote, compaction into snapshots,
+// and results as of earlier points in time
+@SpringBootTest(properties = "polls.votes.events.compaction.gap-timeout-ms=0")
+@ActiveProfiles("test")
+@Transactional
+class VoteEventServiceTest {
+
+	@Autowired
+	private PollService pollService;
+
+	@Autowired
+	private VoteEventService voteEventService;
+
+	@Autowired
+	private VoteEventRepository voteEventRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PollRepository pollRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private Poll poll;
+	private final List<User> voters = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		User owner = userRepository.save(user("events-owner"));
+		for (int i = 0; i < 4; i++) {
+			voters.add(userRepository.save(user("events-voter-" + i)));
+		}
+		poll = new Poll();
+		poll.setQuestion("Replay?");
+		for (String text : List.of("A", "B", "C")) {
+			OptionVote option = new OptionVote();
+			option.setOptText(text);
+			poll.getOptions().add(option);
+		}
+		poll = pollService.savePoll(poll, AuthUser.of(owner));
+		entityManager.flush();
+	}
+
+	@Test
+	void getResultsAsOf_replaysFromNearestSnapshot() throws InterruptedException {
+		LocalDateTime beforeVotes = tick();
+		vote(0, 0);
+		vote(1, 0);
+		LocalDateTime afterFirstVotes = tick();
+		assertThat(voteEventService.compactBatch()).isEqualTo(2);
+
+		vote(0, 1); // changed
+		vote(1, 0); // unchanged, not logged
+		LocalDateTime afterChange = tick();
+		vote(2, 2);
+		assertThat(voteEventService.compactBatch()).isEqualTo(2);
+		vote(3, 1); // not compacted yet
+
+		assertThat(counts(beforeVotes)).containsExactly(0L, 0L, 0L);
+		assertThat(counts(afterFirstVotes)).containsExactly(2L, 0L, 0L);
+		assertThat(counts(afterChange)).containsExactly(1L, 1L, 0L);
+		assertThat(counts(LocalDateTime.now())).containsExactly(1L, 2L, 1L);
+
+		// afterChange is answered from the first snapshot plus the events after it
+		assertThat(voteEventRepository.findSnapshotAsOf(poll.getId(), afterChange))
+				.extracting(VoteEventRepository.SnapshotRow::voteCount).containsExactly(2L);
+	}
+
+	@Test
+	void compactBatch_foldsEachEventOnce() {
+		vote(0, 0);
+		vote(0, 2);
+
+		assertThat(voteEventService.compactBatch()).isEqualTo(2);
+		assertThat(voteEventService.compactBatch()).isZero();
+		assertThat(voteEventRepository.findLatestSnapshots(List.of(poll.getId())))
+				.extracting(VoteEventRepository.SnapshotRow::optionIndex, VoteEventRepository.SnapshotRow::voteCount)
+				.containsExactlyInAnyOrder(Tuple.tuple(0, 0L),
+						Tuple.tuple(2, 1L));
+	}
+
+	@Test
+	void compactBatch_replacesSnapshotsWithinTheInterval() throws InterruptedException {
+		vote(0, 0);
+		assertThat(voteEventService.compactBatch()).isEqualTo(1);
+		vote(1, 1);
+		LocalDateTime afterSecondVote = tick();
+		assertThat(voteEventService.compactBatch()).isEqualTo(1);
+		vote(2, 2);
+		assertThat(voteEventService.compactBatch()).isEqualTo(1);
+		vote(3, 2);
+		assertThat(voteEventService.compactBatch()).isEqualTo(1);
+
+		// Four runs within the hour leave the first snapshot and the newest one
+		assertThat(jdbcTemplate.queryForList("SELECT DISTINCT last_event_id FROM vote_tally_snapshots "
+				+ "WHERE poll_id = ?", Long.class, poll.getId())).hasSize(2);
+		assertThat(voteEventRepository.findLatestSnapshots(List.of(poll.getId())))
+				.extracting(VoteEventRepository.SnapshotRow::voteCount).containsExactlyInAnyOrder(1L, 1L, 2L);
+		// Points in between are replayed from the first snapshot
+		assertThat(counts(afterSecondVote)).containsExactly(1L, 1L, 0L);
+	}
+
+	// A vote that took its event id before the previous one but commits after it must still be
+	// folded: compaction stops at the missing id instead of moving the checkpoint past it
+	@Test
+	void compactBatch_waitsForAMissingEventId() {
+		VoteEventService waiting = new VoteEventService(voteEventRepository, pollRepository, transactionManager,
+				10_000, 60_000, 3_600_000);
+		vote(0, 0);
+		voteEventService.compactBatch(); // past the ids of rolled back tests
+		long lateId = reserveEventId();
+		vote(1, 1);
+
+		assertThat(waiting.compactBatch()).isZero();
+
+		jdbcTemplate.update("INSERT INTO vote_events (id, poll_id, user_id, type, new_option_index, created_at) "
+				+ "VALUES (?, ?, ?, 'CAST', 2, CURRENT_TIMESTAMP)", lateId, poll.getId(), voters.get(2).getId());
+		assertThat(waiting.compactBatch()).isEqualTo(2);
+		assertThat(voteEventRepository.findLatestSnapshots(List.of(poll.getId())))
+				.extracting(VoteEventRepository.SnapshotRow::voteCount).containsExactlyInAnyOrder(1L, 1L, 1L);
+	}
+
+	// An id that is never coming (rolled back) only holds compaction up for gap-timeout-ms
+	@Test
+	void compactBatch_skipsAMissingEventIdAfterTheTimeout() {
+		vote(0, 0);
+		voteEventService.compactBatch();
+		reserveEventId();
+		vote(1, 1);
+
+		assertThat(voteEventService.compactBatch()).isEqualTo(1);
+	}
+
+	// Take the next event id and leave a gap at it
+	private long reserveEventId() {
+		jdbcTemplate.update("INSERT INTO vote_events (poll_id, user_id, type, new_option_index, created_at) "
+				+ "VALUES (?, ?, 'CAST', 0, CURRENT_TIMESTAMP)", poll.getId(), voters.get(3).getId());
+		long id = jdbcTemplate.queryForObject("SELECT MAX(id) FROM vote_events", Long.class);
+		jdbcTemplate.update("DELETE FROM vote_events WHERE id = ?", id);
+		return id;
+	}
+
+	private void vote(int voter, int optionIndex) {
+		pollService.doVote(poll.getId(), optionIndex, AuthUser.of(voters.get(voter)));
+	}
+
+	private List<Long> counts(LocalDateTime asOf) {
+		PollResults results = voteEventService.getResultsAsOf(poll.getId(), asOf).orElseThrow();
+		return results.getOptions().stream().map(OptionVote::getVoteCount).toList();
+	}
+
+	// A point in time strictly between the events before and after it
+	private static LocalDateTime tick() throws InterruptedException {
+		Thread.sleep(5);
+		LocalDateTime now = LocalDateTime.now();
+		Thread.sleep(5);
+		return now;
+	}
+
+	private static User user(String name) {
+		User user = new User();
+		user.setUsername(name);
+		user.setEmail(name + "@test.com");
+		user.setPasswordHash("hash");
+		return user;
+	}
+}
@@ -0,0 +1,128 @@
+package org.polling.pollingapp.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.polling.pollingapp.security.AuthUser;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+// Unit tests for the async ingestion queue - PollService is mocked, consumers are real threads
+@ExtendWith(MockitoExtension.class)
+class VoteIngestionQueueTest {
+
+	@Mock
+	private PollService pollService;
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private VoteIngestionQueue queue;
+	private AuthUser voter;
+
+	@BeforeEach
+	void setUp() {
+		// One partition holding at most 2 votes, applied up to 10 at a time
+		queue = new VoteIngestionQueue(pollService, meterRegistry, true, 1, 2, 10, 3);
+		queue.start();
+
+		voter = new AuthUser(10L, "voter", "voter@test.com");
+	}
+
+	@AfterEach
+	void tearDown() throws InterruptedException {
+		queue.stop();
+	}
+
+	@Test
+	void submit_appliesQueuedVotesInBackground() {
+		assertThat(queue.submit(1L, 0, voter)).isTrue();
+
+		verify(pollService, timeout(2000)).applyVotes(List.of(new VoteCommand(1L, 0, 10L)));
+		assertThat(meterRegistry.get("polls.votes.ingest.accepted").counter().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("polls.votes.ingest.queue.depth").gauge().value()).isZero();
+	}
+
+	@Test
+	void submit_returnsFalseWhenPartitionIsFull() throws InterruptedException {
+		CountDownLatch applying = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		when(pollService.applyVotes(any())).thenAnswer(invocation -> {
+			applying.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			return List.of();
+		});
+
+		// The consumer takes the first vote and blocks; the next two fill the queue
+		assertThat(queue.submit(1L, 0, voter)).isTrue();
+		assertThat(applying.await(2, TimeUnit.SECONDS)).isTrue();
+		assertThat(queue.submit(1L, 1, voter)).isTrue();
+		assertThat(queue.submit(1L, 0, voter)).isTrue();
+
+		assertThat(queue.submit(1L, 1, voter)).isFalse();
+		assertThat(queue.queuedVotes()).isEqualTo(2);
+		assertThat(meterRegistry.get("polls.votes.ingest.rejected").counter().count()).isEqualTo(1);
+
+		// Once released, the queued votes are applied together as one micro-batch, in order
+		release.countDown();
+		verify(pollService, timeout(2000))
+				.applyVotes(List.of(new VoteCommand(1L, 1, 10L), new VoteCommand(1L, 0, 10L)));
+		assertThat(meterRegistry.get("polls.votes.ingest.batch.size").summary().max()).isEqualTo(2);
+	}
+
+	@Test
+	void apply_dropsOnlyTheVoteThatKeepsFailing() throws InterruptedException {
+		queue.stop();
+		queue = new VoteIngestionQueue(pollService, meterRegistry, true, 1, 10, 10, 3);
+		queue.start();
+
+		// Applying anything that contains the poison vote fails, everything else succeeds
+		VoteCommand poison = new VoteCommand(2L, 1, 10L);
+		CountDownLatch release = new CountDownLatch(1);
+		List<VoteCommand> applied = new CopyOnWriteArrayList<>();
+		when(pollService.applyVotes(any())).thenAnswer(invocation -> {
+			List<VoteCommand> batch = invocation.getArgument(0);
+			release.await(5, TimeUnit.SECONDS);
+			if (batch.contains(poison)) {
+				throw new IllegalStateException("Cannot apply vote");
+			}
+			applied.addAll(batch);
+			return List.of();
+		});
+
+		// The consumer blocks on the first vote while the rest queue up as one micro-batch
+		queue.submit(1L, 0, voter);
+		queue.submit(1L, 1, voter);
+		queue.submit(2L, 0, voter);
+		queue.submit(2L, 1, voter);
+		queue.submit(3L, 0, voter);
+		queue.submit(3L, 1, voter);
+		release.countDown();
+
+		verify(pollService, timeout(5000).atLeast(5)).applyVotes(any());
+		queue.stop();
+		assertThat(applied).containsExactly(new VoteCommand(1L, 0, 10L), new VoteCommand(1L, 1, 10L),
+				new VoteCommand(2L, 0, 10L), new VoteCommand(3L, 0, 10L), new VoteCommand(3L, 1, 10L));
+		assertThat(meterRegistry.get("polls.votes.ingest.failed").counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void submit_invalidVote_throwsWithoutQueueing() {
+		doThrow(new IllegalArgumentException("Invalid option index!")).when(pollService).validateVote(1L, 9);
+
+		assertThatThrownBy(() -> queue.submit(1L, 9, voter)).isInstanceOf(IllegalArgumentException.class);
+		assertThat(queue.queuedVotes()).isZero();
+		verify(pollService, never()).applyVotes(any());
+	}
+}
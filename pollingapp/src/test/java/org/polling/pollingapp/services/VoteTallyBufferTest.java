@@ -0,0 +1,197 @@
+package org.polling.pollingapp.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.polling.pollingapp.model.OptionVote;
+import org.polling.pollingapp.model.Poll;
+import org.polling.pollingapp.repositories.OptionTallyRepository;
+import org.polling.pollingapp.repositories.OptionTallyRepository.Delta;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+// Unit tests for the write-behind tally buffer - the transaction manager is a no-op mock
+@ExtendWith(MockitoExtension.class)
+class VoteTallyBufferTest {
+
+	@Mock
+	private OptionTallyRepository optionTallyRepository;
+
+	@Mock
+	private PlatformTransactionManager transactionManager;
+
+	private VoteTallyBuffer buffer;
+
+	@BeforeEach
+	void setUp() {
+		buffer = new VoteTallyBuffer(optionTallyRepository, transactionManager, true);
+	}
+
+	@Test
+	void mergeInto_addsUnflushedDeltas() {
+		buffer.recordVote(1L, null, 0);
+		buffer.recordVote(1L, null, 0);
+		buffer.recordVote(1L, 0, 1); // one voter moved from option 0 to 1
+
+		Poll poll = poll(1L, 10L, 5L);
+		buffer.mergeInto(poll);
+
+		assertThat(poll.getOptions().get(0).getVoteCount()).isEqualTo(11L);
+		assertThat(poll.getOptions().get(1).getVoteCount()).isEqualTo(6L);
+	}
+
+	@Test
+	void flush_writesAllDeltasAsOneBatchAndClearsThem() {
+		buffer.recordVote(1L, null, 0);
+		buffer.recordVote(1L, null, 1);
+		buffer.recordVote(1L, null, 1);
+		buffer.recordVote(2L, null, 0);
+		buffer.recordVote(2L, 0, 1); // net zero on option 0, skipped
+
+		buffer.flush();
+
+		verify(optionTallyRepository).applyDeltas(argThat(batch -> batch.size() == 3
+				&& batch.containsAll(List.of(new Delta(1L, 0, 1), new Delta(1L, 1, 2), new Delta(2L, 1, 1)))));
+
+		// Nothing left to merge or flush
+		Poll fresh = poll(1L, 1L, 2L);
+		buffer.mergeInto(fresh);
+		assertThat(fresh.getOptions().get(1).getVoteCount()).isEqualTo(2L);
+		buffer.flush();
+		verify(optionTallyRepository, times(1)).applyDeltas(any());
+	}
+
+	@Test
+	void flush_keepsDeltasWhenWriteFails() {
+		doThrow(new RuntimeException("connection lost")).when(optionTallyRepository).applyDeltas(any());
+
+		buffer.recordVote(1L, null, 0);
+		buffer.flush();
+
+		Poll poll = poll(1L, 0L, 0L);
+		buffer.mergeInto(poll);
+		assertThat(poll.getOptions().get(0).getVoteCount()).isEqualTo(1L);
+	}
+
+	@Test
+	void flush_deltasStayVisibleWhileBeingWritten() {
+		buffer.recordVote(1L, null, 0);
+		doAnswer(invocation -> {
+			buffer.recordVote(1L, null, 1); // a vote arriving during the flush
+			assertThat(buffer.pendingDeltas(1L)).containsEntry(0, 1L).containsEntry(1, 1L);
+			return null;
+		}).when(optionTallyRepository).applyDeltas(any());
+
+		buffer.flush();
+
+		// The written delta is gone, the late vote waits for the next flush
+		assertThat(buffer.pendingDeltas(1L)).containsExactlyEntriesOf(Map.of(1, 1L));
+	}
+
+	@Test
+	void flush_forgetsPollsWithoutDeltas() {
+		buffer.recordVote(1L, null, 0);
+		buffer.recordVote(2L, null, 0);
+		buffer.recordDeltas(List.of(new Delta(2L, 0, -1))); // cancelled again
+		assertThat(buffer.pendingDeltas(2L)).isEmpty();
+
+		buffer.flush();
+		assertThat(buffer.bufferedPolls()).isEqualTo(1); // poll 1, written down to zero
+		buffer.flush();
+
+		assertThat(buffer.bufferedPolls()).isZero();
+		assertThat(buffer.pendingDeltas(1L)).isEmpty();
+		verify(optionTallyRepository, times(1)).applyDeltas(any());
+	}
+
+	@Test
+	void flush_keepsVotesCountedWhileTheBatchIsWritten() {
+		buffer.recordVote(1L, null, 0);
+		doAnswer(invocation -> {
+			buffer.recordVote(1L, null, 0);
+			return null;
+		}).when(optionTallyRepository).applyDeltas(any());
+
+		buffer.flush();
+
+		assertThat(buffer.pendingDeltas(1L)).containsExactlyEntriesOf(Map.of(0, 1L));
+	}
+
+	@Test
+	void discard_dropsPendingDeltas() {
+		buffer.recordVote(1L, null, 0);
+		buffer.discard(1L);
+		buffer.flush();
+
+		verify(optionTallyRepository, never()).applyDeltas(any());
+	}
+
+	// An update replacing the options while votes are buffered: no flush may write the old deltas
+	// before the update commits, and afterwards they are gone
+	@Test
+	void discard_insideTransaction_holdsFlushesBackAndDropsDeltasOnCommit() throws Exception {
+		buffer.recordVote(1L, null, 0);
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			buffer.discard(1L);
+			CompletableFuture<Void> flush = CompletableFuture.runAsync(buffer::flush);
+			Thread.sleep(100);
+			assertThat(flush).isNotDone();
+			assertThat(buffer.pendingDeltas(1L)).containsExactlyEntriesOf(Map.of(0, 1L));
+
+			List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+			synchronizations.forEach(TransactionSynchronization::afterCommit);
+			synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+			flush.get(5, TimeUnit.SECONDS);
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+
+		assertThat(buffer.pendingDeltas(1L)).isEmpty();
+		verify(optionTallyRepository, never()).applyDeltas(any());
+	}
+
+	@Test
+	void discard_rolledBackTransaction_keepsDeltas() {
+		buffer.recordVote(1L, null, 0);
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			buffer.discard(1L);
+			TransactionSynchronizationManager.getSynchronizations()
+					.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+
+		buffer.flush();
+
+		verify(optionTallyRepository).applyDeltas(List.of(new Delta(1L, 0, 1)));
+	}
+
+	private Poll poll(Long id, long... counts) {
+		Poll poll = new Poll();
+		poll.setId(id);
+		List<OptionVote> options = new ArrayList<>();
+		for (long count : counts) {
+			OptionVote option = new OptionVote();
+			option.setOptText("Option " + options.size());
+			option.setVoteCount(count);
+			options.add(option);
+		}
+		poll.setOptions(options);
+		return poll;
+	}
+}
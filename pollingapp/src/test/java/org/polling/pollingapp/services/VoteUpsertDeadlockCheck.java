@@ -0,0 +1,114 @@
+package org.polling.pollingapp.services;
+
+import org.flywaydb.core.Flyway;
+import org.polling.pollingapp.PollingappApplication;
+import org.polling.pollingapp.model.OptionVote;
+import org.polling.pollingapp.model.Poll;
+import org.polling.pollingapp.security.AuthUser;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Manual MySQL check of the upsert vote path under contention; H2 takes no InnoDB next-key locks,
+// so the unit tests cannot show lock ordering problems. Not a test (surefire skips it). Point it at
+// an empty MySQL 8 schema, which it migrates with Flyway:
+//   mvn dependency:build-classpath -Dmdep.includeScope=test -Dmdep.outputFile=target/cp.txt
+//   java -Durl=jdbc:mysql://localhost:3306/polls_check -Duser=root -Dpassword=secret \
+//       -cp target/classes:target/test-classes:$(cat target/cp.txt) \
+//       org.polling.pollingapp.services.VoteUpsertDeadlockCheck
+// VOTERS users vote on one two-option poll at once, ROUNDS times, each round moving to a random
+// option (so many voters hit the same option row together, in both directions). Prints the
+// failed votes by exception type, which must be none (a deadlock shows up as
+// CannotAcquireLockException), and whether poll_options matches the votes table; exits with 1
+// otherwise.
+public final class VoteUpsertDeadlockCheck {
+
+	private static final int VOTERS = Integer.getInteger("voters", 200);
+	private static final int ROUNDS = Integer.getInteger("rounds", 20);
+
+	private VoteUpsertDeadlockCheck() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		String url = System.getProperty("url", "jdbc:mysql://localhost:3306/polls_check");
+		String user = System.getProperty("user", "root");
+		String password = System.getProperty("password", "");
+
+		Flyway.configure().dataSource(url, user, password)
+				.placeholders(Map.of("avatars-dir", Files.createTempDirectory("avatars").toString(),
+						"avatars-thumbnail-size", "128"))
+				.load().migrate();
+
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(PollingappApplication.class)
+				.profiles("test")
+				.properties("server.port=0", "spring.datasource.url=" + url, "spring.datasource.username=" + user,
+						"spring.datasource.password=" + password,
+						"spring.datasource.driver-class-name=com.mysql.cj.jdbc.Driver",
+						"spring.jpa.database-platform=org.hibernate.dialect.MySQLDialect",
+						"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.MySQLDialect",
+						"spring.jpa.hibernate.ddl-auto=validate", "polls.votes.upsert.enabled=true",
+						"polls.ratelimit.enabled=false", "spring.datasource.hikari.maximum-pool-size=50")
+				.run(args)) {
+			JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+			PollService pollService = context.getBean(PollService.class);
+
+			List<Object[]> rows = new ArrayList<>();
+			for (int i = 0; i < VOTERS; i++) {
+				rows.add(new Object[] {"check" + i, "check" + i + "@check.com", "hash"});
+			}
+			jdbcTemplate.batchUpdate("insert into users (username, email, password_hash, created_at) "
+					+ "values (?, ?, ?, current_timestamp)", rows);
+			List<Long> userIds = jdbcTemplate.queryForList(
+					"select id from users where username like 'check%' order by id", Long.class);
+
+			Poll poll = new Poll();
+			poll.setQuestion("Deadlock check?");
+			for (String text : List.of("A", "B")) {
+				OptionVote option = new OptionVote();
+				option.setOptText(text);
+				poll.getOptions().add(option);
+			}
+			Long pollId = pollService.savePoll(poll, new AuthUser(userIds.get(0), "check0", "check0@check.com"))
+					.getId();
+
+			Map<String, AtomicInteger> failures = new ConcurrentHashMap<>();
+			for (int round = 0; round < ROUNDS; round++) {
+				List<Thread> threads = new ArrayList<>();
+				for (Long userId : userIds) {
+					threads.add(Thread.ofVirtual().start(() -> {
+						try {
+							pollService.doVote(pollId, ThreadLocalRandom.current().nextInt(2),
+									new AuthUser(userId, "check", "check@check.com"));
+						} catch (RuntimeException e) {
+							failures.computeIfAbsent(e.getClass().getSimpleName(), k -> new AtomicInteger())
+									.incrementAndGet();
+						}
+					}));
+				}
+				for (Thread thread : threads) {
+					thread.join();
+				}
+			}
+
+			List<Long> tallies = jdbcTemplate.queryForList(
+					"select vote_count from poll_options where poll_id = ? order by option_index", Long.class, pollId);
+			List<Long> counted = jdbcTemplate.queryForList("select (select count(*) from votes v "
+					+ "where v.poll_id = po.poll_id and v.option_index = po.option_index) from poll_options po "
+					+ "where po.poll_id = ? order by po.option_index", Long.class, pollId);
+
+			System.out.printf("%d voters x %d rounds, failed votes: %s%n", VOTERS, ROUNDS, failures);
+			System.out.printf("poll_options %s, votes rows %s%n", tallies, counted);
+			if (!failures.isEmpty() || !tallies.equals(counted)) {
+				System.exit(1);
+			}
+		}
+	}
+}